@@ -0,0 +1,82 @@
+package WizardTD.gameEnv.benchmarks;
+// Imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import WizardTD.gameEnv.Quadtree;
+
+// Static imports
+import java.lang.Math;
+
+/**
+ * Objects drifting around the world the way the enemies in a game do, each call moving the next object one step along its velocity
+ * <p> The objects bounce off the edges of the world so the tree stays the same size and roughly the same shape for the whole run. Run with -prof gc to get the allocation rate alongside
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class MovingBenchmark{
+    // Instance vars
+    @Param({"10000", "100000", "1000000"})
+    public int objectCount;
+    @Param({"uniform", "clustered"})
+    public String distribution;
+    @Param({"0"})
+    public float looseness;
+    @Param({"2"})
+    public float speed; // How far an object can move in one step on each axis; the objects are 2 to 10 across
+    private Quadtree<Integer> tree;
+    private List<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers;
+    private float[] velocities;
+    private float half;
+    private final ArrayList<Integer> sink = new ArrayList<Integer>();
+    private int next;
+    // Instance methods
+    @Setup
+    public void setup(){
+        float[] bounds = Workload.generateBounds(this.distribution, this.objectCount, 0);
+        this.tree = Workload.createTree(this.objectCount, this.looseness);
+        this.containers = Workload.fillTree(this.tree, Workload.generateItems(this.objectCount), bounds);
+        this.half = Workload.getWorldSize(this.objectCount) / 2;
+        SplittableRandom random = new SplittableRandom(Workload.seed + 2);
+        this.velocities = new float[this.objectCount << 1];
+        for(int i = 0; i < this.velocities.length; i++){this.velocities[i] = (float) random.nextDouble(-this.speed, this.speed);}
+    }
+    private Quadtree<Integer>.QuadtreeObjectContainer<Integer> step(){
+        // Moves the next object and hands back its container
+        int object = this.next;
+        this.next = object + 1 == this.objectCount ? 0 : object + 1;
+        Quadtree<Integer>.QuadtreeObjectContainer<Integer> container = this.containers.get(object);
+        float posX = container.getPositionX() + this.velocities[object << 1], posY = container.getPositionY() + this.velocities[(object << 1) + 1];
+        if(Math.abs(posX) > this.half){this.velocities[object << 1] = -this.velocities[object << 1]; posX = container.getPositionX();}
+        if(Math.abs(posY) > this.half){this.velocities[(object << 1) + 1] = -this.velocities[(object << 1) + 1]; posY = container.getPositionY();}
+        this.tree.update(container, posX, posY, container.getSizeX(), container.getSizeY());
+        return container;
+    }
+    @Benchmark
+    public void update(){
+        step();
+    }
+    @Benchmark
+    public int updateThenQuery(){
+        // Move an object then look for whatever it's now touching, which is what a game does with each thing it moves
+        Quadtree<Integer>.QuadtreeObjectContainer<Integer> container = step();
+        this.sink.clear();
+        return this.tree.getObjectsIntersectingArea(container.getPositionX(), container.getPositionY(), container.getSizeX(), container.getSizeY(), this.sink);
+    }
+}
@@ -0,0 +1,98 @@
+package WizardTD.gameEnv.benchmarks;
+// Imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import WizardTD.gameEnv.Quadtree;
+
+/**
+ * Cost of adding and removing objects on a tree that's already full
+ * <p> Adding or removing one object at a time in a throughput loop would keep growing or draining the tree, so instead each iteration adds or removes one batch and the tree is put back afterwards, outside of the measurement.
+ * The scores are per object; run with -prof gc to get the bytes allocated per object as well
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class MutationBenchmark{
+    // Config vars
+    static final int batchSize = 10000; // No more than the smallest object count, since the objects to add are drawn from a set that size
+    // Instance vars
+    @Param({"10000", "100000", "1000000"})
+    public int objectCount;
+    @Param({"uniform", "clustered"})
+    public String distribution;
+    @Param({"0"})
+    public float looseness;
+    private Quadtree<Integer> tree;
+    private List<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers;
+    private float[] bounds, addedBounds;
+    private Integer[] items;
+    private int[] removalOrder;
+    private int nextRemoval;
+    private final ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> added = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(batchSize);
+    private final ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> removed = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(batchSize);
+    // Instance methods
+    @Setup(Level.Trial)
+    public void setup(){
+        this.items = Workload.generateItems(this.objectCount);
+        this.bounds = Workload.generateBounds(this.distribution, this.objectCount, 0);
+        // A second set from the same distribution so that the added objects land where the existing ones are
+        this.addedBounds = Workload.generateBounds(this.distribution, this.objectCount, 1);
+        this.tree = Workload.createTree(this.objectCount, this.looseness);
+        this.containers = Workload.fillTree(this.tree, this.items, this.bounds);
+        // Objects get removed in a random order so that each batch is spread over the whole tree
+        SplittableRandom random = new SplittableRandom(Workload.seed);
+        this.removalOrder = new int[this.objectCount];
+        for(int i = 0; i < this.objectCount; i++){this.removalOrder[i] = i;}
+        for(int i = this.objectCount - 1; i > 0; i--){
+            int other = random.nextInt(i + 1);
+            int swap = this.removalOrder[i]; this.removalOrder[i] = this.removalOrder[other]; this.removalOrder[other] = swap;
+        }
+    }
+    @TearDown(Level.Iteration)
+    public void restore(){
+        // Undo whichever batch just ran so that the next one starts from a tree of the same size
+        for(int i = 0; i < this.added.size(); i++){this.tree.remove(this.added.get(i));}
+        this.added.clear();
+        for(int i = 0; i < this.removed.size(); i++){
+            Quadtree<Integer>.QuadtreeObjectContainer<Integer> container = this.removed.get(i);
+            this.tree.update(container, container.getPositionX(), container.getPositionY(), container.getSizeX(), container.getSizeY());
+        }
+        this.removed.clear();
+    }
+    @Benchmark
+    @OperationsPerInvocation(batchSize)
+    public void add(){
+        for(int i = 0; i < batchSize; i++){
+            this.added.add(this.tree.add(this.items[i], this.addedBounds[i << 2], this.addedBounds[(i << 2) + 1], this.addedBounds[(i << 2) + 2], this.addedBounds[(i << 2) + 3]));
+        }
+    }
+    @Benchmark
+    @OperationsPerInvocation(batchSize)
+    public void remove(){
+        for(int i = 0; i < batchSize; i++){
+            Quadtree<Integer>.QuadtreeObjectContainer<Integer> container = this.containers.get(this.removalOrder[this.nextRemoval]);
+            this.nextRemoval = this.nextRemoval + 1 == this.objectCount ? 0 : this.nextRemoval + 1;
+            this.tree.remove(container);
+            this.removed.add(container);
+        }
+    }
+}
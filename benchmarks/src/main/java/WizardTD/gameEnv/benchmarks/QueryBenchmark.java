@@ -0,0 +1,113 @@
+package WizardTD.gameEnv.benchmarks;
+// Imports
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import WizardTD.gameEnv.Quadtree;
+import WizardTD.gameEnv.Vector2;
+
+/**
+ * Throughput of the read side of {@link Quadtree} over a tree that doesn't change
+ * <p> Each call runs the next query from a fixed set so that the tree is hit all over rather than in the same spot every time. Run with -prof gc to get the allocation rate alongside
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class QueryBenchmark{
+    // Instance vars
+    @Param({"10000", "100000", "1000000"})
+    public int objectCount;
+    @Param({"uniform", "clustered"})
+    public String distribution;
+    @Param({"0"})
+    public float looseness; // 0 for a regular tree, try 2 to compare against a loose one
+    private Quadtree<Integer> tree;
+    private float[] points;
+    private long[] geohashes;
+    private int[] depths;
+    private Vector2[] positions, sizes; // For the overloads that take vectors, made up front so that only what the tree allocates gets counted
+    private final ArrayList<Integer> sink = new ArrayList<Integer>();
+    private int next;
+    // Instance methods
+    @Setup
+    public void setup(){
+        Integer[] items = Workload.generateItems(this.objectCount);
+        float[] bounds = Workload.generateBounds(this.distribution, this.objectCount, 0);
+        this.tree = Workload.createTree(this.objectCount, this.looseness);
+        Workload.fillTree(this.tree, items, bounds);
+        this.points = Workload.generateQueryPoints(bounds);
+        this.geohashes = Workload.generateGeohashes(this.tree, this.points);
+        // The indexed lookup needs a depth that the tree actually reaches under the point, so take the depth of the leaf that's there
+        this.depths = new int[Workload.queryCount];
+        this.positions = new Vector2[Workload.queryCount]; this.sizes = new Vector2[Workload.queryCount];
+        Vector2 querySize = new Vector2(Workload.querySize, Workload.querySize);
+        for(int i = 0; i < Workload.queryCount; i++){
+            int depth = this.tree.getDepth();
+            long geohash = this.geohashes[i];
+            // The first layer's digit is the lowest, so dropping the top digits gives the geohash of the node above
+            while(depth > 1 && !this.tree.hasNode(geohash & ((1L << (depth << 1)) - 1), depth)){depth--;}
+            this.geohashes[i] = geohash & ((1L << (depth << 1)) - 1);
+            this.depths[i] = depth;
+            this.positions[i] = new Vector2(this.points[i << 1], this.points[(i << 1) + 1]);
+            this.sizes[i] = querySize;
+        }
+    }
+    private int nextQuery(){
+        int returnValue = this.next;
+        this.next = (returnValue + 1) & (Workload.queryCount - 1);
+        return returnValue;
+    }
+    @Benchmark
+    public int getObjectsInArea(){
+        int query = nextQuery();
+        this.sink.clear();
+        return this.tree.getObjectsInArea(this.points[query << 1], this.points[(query << 1) + 1], Workload.querySize, Workload.querySize, this.sink);
+    }
+    @Benchmark
+    public ArrayList<Integer> getObjectsInAreaVector(){
+        // The original overload, which hands back a fresh list every time
+        int query = nextQuery();
+        return this.tree.getObjectsInArea(this.positions[query], this.sizes[query]);
+    }
+    @Benchmark
+    public int getObjectsIntersectingArea(){
+        int query = nextQuery();
+        this.sink.clear();
+        return this.tree.getObjectsIntersectingArea(this.points[query << 1], this.points[(query << 1) + 1], Workload.querySize, Workload.querySize, this.sink);
+    }
+    @Benchmark
+    public int getObjectsAtPoint(){
+        int query = nextQuery();
+        this.sink.clear();
+        return this.tree.getObjectsAtPoint(this.points[query << 1], this.points[(query << 1) + 1], this.sink);
+    }
+    @Benchmark
+    public ArrayList<Integer> getObjectsAtPointVector(){
+        return this.tree.getObjectsAtPoint(this.positions[nextQuery()]);
+    }
+    @Benchmark
+    public void getNodeFromGeohash(Blackhole blackhole){
+        // Follows the digits down from the root
+        blackhole.consume(this.tree.getNodeFromGeohash(this.geohashes[nextQuery()]));
+    }
+    @Benchmark
+    public void getNodeFromGeohashIndexed(Blackhole blackhole){
+        // Looks the node up by its geohash and depth
+        int query = nextQuery();
+        blackhole.consume(this.tree.getNodePosition(this.geohashes[query], this.depths[query]));
+    }
+}
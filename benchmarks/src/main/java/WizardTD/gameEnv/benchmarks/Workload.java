@@ -0,0 +1,125 @@
+package WizardTD.gameEnv.benchmarks;
+// Imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import WizardTD.gameEnv.Quadtree;
+import WizardTD.gameEnv.Vector2;
+
+// Static imports
+import java.lang.Math;
+
+// Error imports
+import java.lang.IllegalArgumentException;
+
+/**
+ * Generates the objects, queries and geohashes that the benchmarks run over, seeded so that every run and every fork sees the same data
+ * <p> The world grows with the object count so that the density, and with it the number of objects per leaf and per query, stays the same at every size. That way a change in the score between sizes comes down to the tree getting deeper rather than the queries getting bigger
+ */
+public final class Workload{
+    // Config vars
+    static final float objectsPerArea = 1f / 256; // One object per 16x16 patch of world on average
+    static final float minimumObjectSize = 2, maximumObjectSize = 10;
+    static final float querySize = 64; // Each area query covers 64x64, so about 16 objects with the uniform distribution
+    static final int clusterCount = 32;
+    static final int queryCount = 1 << 16; // Queries are cycled through rather than generated inside the benchmark; a power of 2 so the index can be masked
+    static final int maximumDepth = 12;
+    static final long seed = 0x5EED;
+    // Static methods
+    static float getWorldSize(int objectCount){return (float) Math.sqrt(objectCount / objectsPerArea);}
+    /**
+     * Generates the bounds of the objects, packed as position X, position Y, size X and size Y one object after the other
+     * @param distribution "uniform" spreads the objects evenly over the world, "clustered" packs them into a few gaussian blobs with a sparse background
+     * @param objectCount
+     * @param salt picks a different but still repeatable set of objects with the same distribution
+     * @return
+     */
+    static float[] generateBounds(String distribution, int objectCount, long salt){
+        float worldSize = getWorldSize(objectCount), half = worldSize / 2;
+        SplittableRandom random = new SplittableRandom(seed ^ salt);
+        float[] returnValue = new float[objectCount << 2];
+        float[] clusterCentres = new float[clusterCount << 1];
+        for(int i = 0; i < clusterCentres.length; i++){clusterCentres[i] = (float) random.nextDouble(-half * 0.8, half * 0.8);}
+        float clusterSpread = worldSize / 64;
+        for(int i = 0; i < objectCount; i++){
+            float posX, posY;
+            switch(distribution){
+                case "uniform":
+                    posX = (float) random.nextDouble(-half, half); posY = (float) random.nextDouble(-half, half);
+                    break;
+                case "clustered":
+                    // 90% of the objects go into the clusters, the rest are left scattered around so the space between them isn't completely empty
+                    if(random.nextInt(10) == 0){
+                        posX = (float) random.nextDouble(-half, half); posY = (float) random.nextDouble(-half, half);
+                        break;
+                    }
+                    int cluster = random.nextInt(clusterCount);
+                    posX = clamp(clusterCentres[cluster << 1] + (float) (random.nextGaussian() * clusterSpread), half);
+                    posY = clamp(clusterCentres[(cluster << 1) + 1] + (float) (random.nextGaussian() * clusterSpread), half);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown distribution " + distribution);
+            }
+            returnValue[i << 2] = posX; returnValue[(i << 2) + 1] = posY;
+            returnValue[(i << 2) + 2] = (float) random.nextDouble(minimumObjectSize, maximumObjectSize);
+            returnValue[(i << 2) + 3] = (float) random.nextDouble(minimumObjectSize, maximumObjectSize);
+        }
+        return returnValue;
+    }
+    /**
+     * Generates query points that follow the same distribution as the objects, so that clustered worlds get queried where the objects are
+     * @param bounds from {@link #generateBounds}
+     * @return position X and position Y of each query, one after the other
+     */
+    static float[] generateQueryPoints(float[] bounds){
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        int objectCount = bounds.length >> 2;
+        float[] returnValue = new float[queryCount << 1];
+        for(int i = 0; i < queryCount; i++){
+            // Jitter around a random object so that the point isn't always right on top of one
+            int object = random.nextInt(objectCount);
+            returnValue[i << 1] = bounds[object << 2] + (float) random.nextDouble(-querySize, querySize);
+            returnValue[(i << 1) + 1] = bounds[(object << 2) + 1] + (float) random.nextDouble(-querySize, querySize);
+        }
+        return returnValue;
+    }
+    /**
+     * Works out the geohash of the leaf-depth node under each query point
+     * @param tree
+     * @param points from {@link #generateQueryPoints}
+     * @return
+     */
+    static long[] generateGeohashes(Quadtree<?> tree, float[] points){
+        int depth = tree.getDepth();
+        long[] returnValue = new long[points.length >> 1];
+        for(int i = 0; i < returnValue.length; i++){returnValue[i] = tree.getGeohash(points[i << 1], points[(i << 1) + 1], depth);}
+        return returnValue;
+    }
+    /**
+     * Boxes each object's index once up front so that the benchmarks don't measure the boxing
+     * @param objectCount
+     * @return
+     */
+    static Integer[] generateItems(int objectCount){
+        Integer[] returnValue = new Integer[objectCount];
+        for(int i = 0; i < objectCount; i++){returnValue[i] = Integer.valueOf(i);}
+        return returnValue;
+    }
+    static Quadtree<Integer> createTree(int objectCount, float looseness){
+        float worldSize = getWorldSize(objectCount);
+        Quadtree<Integer> returnValue = looseness == 0 ? new Quadtree<Integer>(new Vector2(worldSize, worldSize), new Vector2(0, 0)) : new Quadtree<Integer>(new Vector2(worldSize, worldSize), new Vector2(0, 0), looseness);
+        returnValue.setMaximumDepth(maximumDepth);
+        return returnValue;
+    }
+    static List<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> fillTree(Quadtree<Integer> tree, Integer[] items, float[] bounds){
+        // Added one at a time rather than bulk loaded, since that's the shape of tree a game that's been running for a while ends up with
+        List<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> returnValue = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(items.length);
+        for(int i = 0; i < items.length; i++){
+            returnValue.add(tree.add(items[i], bounds[i << 2], bounds[(i << 2) + 1], bounds[(i << 2) + 2], bounds[(i << 2) + 3]));
+        }
+        return returnValue;
+    }
+    private static float clamp(float value, float half){return Math.max(-half, Math.min(half, value));}
+    // Constructors
+    private Workload(){super();}
+}
@@ -0,0 +1,55 @@
+package WizardTD.gameEnv;
+// Static imports
+import java.lang.Math;
+
+// Error imports
+import java.lang.IllegalArgumentException;
+
+/**
+ * Split policy that gives busy regions smaller leaves and quiet ones bigger leaves, based on how queries and updates are spread across the tree
+ * <p> A query pays for every object in the leaves it goes through, so its cost grows with the capacity. An update pays whenever an object crosses into another leaf or a leaf splits or merges, which gets less likely the bigger the leaves are.
+ * Adding those up, the capacity that costs the least grows with the square root of how many updates a region sees per query. So each leaf gets the base capacity scaled by the square root of its share of the updates over its share of the queries.
+ * A region that gets queried a lot more than its objects move ends up with fine cells, and one that's mostly moving objects that nobody asks about stays shallow
+ * <p> Leaves that haven't seen much of either are treated as getting their fair share by area of both, so they sit at the base capacity until there's something to go on
+ */
+public class AdaptiveSplitPolicy implements SplitPolicy{
+    // Config vars
+    private static final int defaultBaseCapacity = 8, defaultMinimumCapacity = 2, defaultMaximumCapacity = 64;
+    // Instance vars
+    private final int baseCapacity, minimumCapacity, maximumCapacity;
+    // Accessors
+    public int getBaseCapacity(){return this.baseCapacity;}
+    public int getMinimumCapacity(){return this.minimumCapacity;}
+    public int getMaximumCapacity(){return this.maximumCapacity;}
+    // Instance methods
+    public int getCapacity(long geohash, int depth, float queryShare, float updateShare){
+        // A node at this depth covers 4^-depth of the tree, which is the share it'd get if everything was spread out evenly
+        float evenShare = Math.scalb(1f, -2 * depth);
+        double ratio = (updateShare + evenShare) / (queryShare + evenShare);
+        long capacity = Math.round(this.baseCapacity * Math.sqrt(ratio));
+        return (int) Math.max(this.minimumCapacity, Math.min(this.maximumCapacity, capacity));
+    }
+    public int getCollapseThreshold(long geohash, int depth, float queryShare, float updateShare){
+        // Half the capacity so that a node doesn't flip between split and merged while a few objects come and go
+        return getCapacity(geohash, depth, queryShare, updateShare) / 2;
+    }
+    // Constructors
+    /**
+     * Creates a policy where leaves hold 8 objects when queries and updates are spread evenly, and anywhere between 2 and 64 otherwise
+     */
+    public AdaptiveSplitPolicy(){
+        this(defaultBaseCapacity, defaultMinimumCapacity, defaultMaximumCapacity);
+    }
+    /**
+     * @param baseCapacity how many objects a leaf holds where the queries and updates are spread evenly
+     * @param minimumCapacity the least a leaf can hold no matter how busy its region is, at least 1
+     * @param maximumCapacity the most a leaf can hold no matter how quiet its region is
+     */
+    public AdaptiveSplitPolicy(int baseCapacity, int minimumCapacity, int maximumCapacity){
+        super();
+        if(minimumCapacity < 1 || baseCapacity < minimumCapacity || maximumCapacity < baseCapacity){
+            throw new IllegalArgumentException("Capacities of " + String.valueOf(minimumCapacity) + ", " + String.valueOf(baseCapacity) + " and " + String.valueOf(maximumCapacity) + " have to be at least 1 and in order");
+        }
+        this.baseCapacity = baseCapacity; this.minimumCapacity = minimumCapacity; this.maximumCapacity = maximumCapacity;
+    }
+}
@@ -0,0 +1,771 @@
+package WizardTD.gameEnv;
+// Imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+// Static imports
+import java.lang.Math;
+
+// Error imports
+import java.lang.IllegalArgumentException;
+
+/**
+ * Quadtree that behaves the same as {@link Quadtree} but keeps its nodes and objects in primitive arrays instead of one object each
+ * <p> Nodes, objects and the entries that record which object is in which node are all ids indexing into those arrays, so walking the tree is a matter of reading ints and floats that sit next to each other rather than chasing pointers
+ * <p> Freed ids go onto free lists and get reused, so a tree whose population has settled doesn't allocate at all. Objects are handed back as int handles instead of containers
+ * <p> {@link SpatialIndex} is the contract the two trees share, so code written against it can take either. Past that it only has adding, moving and removing by handle, and none of these are supported:
+ * <ul>
+ * <li>loose trees and {@link SplitPolicy split policies}</li>
+ * <li>{@link Quadtree#bulkLoad bulkLoad} and {@link Quadtree#addAll addAll}</li>
+ * <li>{@link Quadtree#raycast(Vector2, Vector2, float) raycast}, {@link Quadtree#segmentQuery(Vector2, Vector2) segmentQuery} and {@link Quadtree#forEachOverlappingPair forEachOverlappingPair}</li>
+ * <li>batch queries such as {@link Quadtree#getObjectsInAreas(float[], java.util.List) getObjectsInAreas}</li>
+ * <li>geohash lookups, Morton codes and {@link Quadtree#getLeafIntervalsInArea leaf intervals}</li>
+ * <li>{@link Quadtree#snapshot() snapshots}, {@link Quadtree#save saving} and {@link Quadtree#load loading}, so it can't be read by {@link MappedQuadtree} either</li>
+ * <li>{@link Quadtree#subscribe(Vector2, Vector2, RegionListener) subscriptions}</li>
+ * <li>{@link Quadtree#enableMetrics() metrics} and {@link Quadtree#getStats() stats}</li>
+ * <li>being wrapped by {@link ConcurrentQuadtree}; like {@link Quadtree} it's only safe to use from one thread at a time</li>
+ * </ul>
+ */
+public class CompactQuadtree<Obj> implements SpatialIndex<Obj>{
+    // Config vars
+    private int defaultMaximumDepth = 5;
+    private int defaultMaxChilds = 2;
+    private int defaultCollapseThreshold = 1; // Kept below maxChilds so that a freshly merged leaf doesn't immediately split again
+    private Vector2 defaultMinimumLeafSize = new Vector2(20,20); // The same as what a Quadtree starts off with
+    private static final int NONE = -1; // Stands in for null with node, entry and object ids
+    // Children are allocated 4 at a time, so a child's id is the id of the block plus one of these
+    private static final int NE = 0, NW = 1, SE = 2, SW = 3;
+    // Helper methods
+    private void growNodes(int minimumCapacity){
+        int capacity = Math.max(minimumCapacity, this.nodeChildren.length << 1);
+        this.nodeBounds = Arrays.copyOf(this.nodeBounds, capacity << 2);
+        this.nodeChildren = Arrays.copyOf(this.nodeChildren, capacity); this.nodeParent = Arrays.copyOf(this.nodeParent, capacity);
+        this.nodeDepth = Arrays.copyOf(this.nodeDepth, capacity); this.nodeGeohash = Arrays.copyOf(this.nodeGeohash, capacity);
+        this.nodeFirstEntry = Arrays.copyOf(this.nodeFirstEntry, capacity); this.nodeObjectCount = Arrays.copyOf(this.nodeObjectCount, capacity);
+    }
+    private void growEntries(){
+        int capacity = this.entryObject.length << 1;
+        this.entryObject = Arrays.copyOf(this.entryObject, capacity); this.entryNode = Arrays.copyOf(this.entryNode, capacity);
+        this.entryPrevious = Arrays.copyOf(this.entryPrevious, capacity); this.entryNext = Arrays.copyOf(this.entryNext, capacity);
+        this.entryNextOfObject = Arrays.copyOf(this.entryNextOfObject, capacity);
+    }
+    private void growObjects(){
+        int capacity = this.objectInstances.length << 1;
+        this.objectBounds = Arrays.copyOf(this.objectBounds, capacity << 2);
+        this.objectInstances = Arrays.copyOf(this.objectInstances, capacity); this.objectFirstEntry = Arrays.copyOf(this.objectFirstEntry, capacity);
+        this.objectStamp = Arrays.copyOf(this.objectStamp, capacity); this.objectAlive = Arrays.copyOf(this.objectAlive, capacity);
+    }
+    private int allocateBlock(){
+        // Hands out the id of the first of 4 consecutive nodes, reusing blocks freed by collapsing nodes first
+        if(this.freeBlockCount > 0){return this.freeBlocks[--this.freeBlockCount];}
+        if(this.nodesCreated + 4 > this.nodeChildren.length){growNodes(this.nodesCreated + 4);}
+        int block = this.nodesCreated;
+        this.nodesCreated += 4;
+        return block;
+    }
+    private void freeBlock(int block){
+        if(this.freeBlockCount == this.freeBlocks.length){this.freeBlocks = Arrays.copyOf(this.freeBlocks, this.freeBlocks.length << 1);}
+        this.freeBlocks[this.freeBlockCount++] = block;
+    }
+    private int allocateObject(){
+        int object;
+        if(this.freeObjectCount > 0){
+            object = this.freeObjects[--this.freeObjectCount];
+        } else {
+            if(this.objectsCreated == this.objectInstances.length){growObjects();}
+            object = this.objectsCreated++;
+        }
+        this.objectAlive[object] = true; this.objectFirstEntry[object] = NONE; this.objectStamp[object] = 0;
+        return object;
+    }
+    private void freeObject(int object){
+        this.objectAlive[object] = false; this.objectInstances[object] = null;
+        if(this.freeObjectCount == this.freeObjects.length){this.freeObjects = Arrays.copyOf(this.freeObjects, this.freeObjects.length << 1);}
+        this.freeObjects[this.freeObjectCount++] = object;
+    }
+    private void linkEntry(int node, int object){
+        // Records that the object is in the node; the entry goes on the front of both the node's list and the object's list
+        int entry = this.freeEntry;
+        if(entry != NONE){
+            this.freeEntry = this.entryNext[entry]; // Freed entries are chained through entryNext
+        } else {
+            if(this.entriesCreated == this.entryObject.length){growEntries();}
+            entry = this.entriesCreated++;
+        }
+        this.entryObject[entry] = object; this.entryNode[entry] = node;
+        int nextEntry = this.nodeFirstEntry[node];
+        this.entryPrevious[entry] = NONE; this.entryNext[entry] = nextEntry;
+        if(nextEntry != NONE){this.entryPrevious[nextEntry] = entry;}
+        this.nodeFirstEntry[node] = entry; this.nodeObjectCount[node]++;
+        this.entryNextOfObject[entry] = this.objectFirstEntry[object]; this.objectFirstEntry[object] = entry;
+    }
+    private void unlinkEntryFromNode(int entry){
+        // Takes the entry out of its node's list and puts it on the free list; the object's list is up to the caller
+        int node = this.entryNode[entry], previousEntry = this.entryPrevious[entry], nextEntry = this.entryNext[entry];
+        if(previousEntry != NONE){this.entryNext[previousEntry] = nextEntry;} else {this.nodeFirstEntry[node] = nextEntry;}
+        if(nextEntry != NONE){this.entryPrevious[nextEntry] = previousEntry;}
+        this.nodeObjectCount[node]--;
+        this.entryNext[entry] = this.freeEntry; this.freeEntry = entry;
+    }
+    private void unlinkEntryFromObject(int object, int entry){
+        // The object's list is singly linked but it's only ever as long as the number of leaves the object straddles
+        int previousEntry = NONE, currentEntry = this.objectFirstEntry[object];
+        while(currentEntry != entry){previousEntry = currentEntry; currentEntry = this.entryNextOfObject[currentEntry];}
+        if(previousEntry == NONE){this.objectFirstEntry[object] = this.entryNextOfObject[entry];} else {this.entryNextOfObject[previousEntry] = this.entryNextOfObject[entry];}
+    }
+    private boolean isLeaf(int node){return this.nodeChildren[node] == NONE;}
+    private boolean intersectsWith(float posX, float posY, float sizeX, float sizeY, int node){
+        // Returns true if the item with the given size and position intersect with the given node, counting something with no width on its lower edges the same as Quadtree.overlapsAlong
+        float dirX = this.nodeBounds[node << 2] - posX, dirY = this.nodeBounds[(node << 2) + 1] - posY;
+        if(!(Math.abs(dirX) < (this.nodeBounds[(node << 2) + 2] + sizeX)/2 || (sizeX == 0 && dirX == this.nodeBounds[(node << 2) + 2]/2))){return false;}
+        return Math.abs(dirY) < (this.nodeBounds[(node << 2) + 3] + sizeY)/2 || (sizeY == 0 && dirY == this.nodeBounds[(node << 2) + 3]/2);
+    }
+    private boolean containsBounds(int node, float posX, float posY, float sizeX, float sizeY){
+        // True if the object with the given size at the given position sits entirely inside the node, leaving out something with no width on its upper edges like Quadtree does
+        if((sizeX == 0 && posX - this.nodeBounds[node << 2] == this.nodeBounds[(node << 2) + 2]/2) || (sizeY == 0 && posY - this.nodeBounds[(node << 2) + 1] == this.nodeBounds[(node << 2) + 3]/2)){return false;}
+        return (Math.abs(this.nodeBounds[node << 2] - posX) + sizeX/2 <= this.nodeBounds[(node << 2) + 2]/2) && (Math.abs(this.nodeBounds[(node << 2) + 1] - posY) + sizeY/2 <= this.nodeBounds[(node << 2) + 3]/2);
+    }
+    private boolean objectIntersects(int object, float posX, float posY, float sizeX, float sizeY){
+        return (Math.abs(this.objectBounds[object << 2] - posX) < ((this.objectBounds[(object << 2) + 2] + sizeX)/2)) && (Math.abs(this.objectBounds[(object << 2) + 1] - posY) < ((this.objectBounds[(object << 2) + 3] + sizeY)/2));
+    }
+    private boolean objectContains(int object, float pointX, float pointY){
+        return (Math.abs(this.objectBounds[object << 2] - pointX) <= this.objectBounds[(object << 2) + 2]/2) && (Math.abs(this.objectBounds[(object << 2) + 1] - pointY) <= this.objectBounds[(object << 2) + 3]/2);
+    }
+    private int getChildAtPosition(int node, float pointX, float pointY){
+        // Same quadrant rules as Quadtree.getLeafQuadrant
+        int block = this.nodeChildren[node];
+        float dirX = pointX - this.nodeBounds[node << 2], dirY = pointY - this.nodeBounds[(node << 2) + 1];
+        if(dirX >= 0 && dirY >= 0){return block + NE;}
+        if(dirX < 0 && dirY >= 0){return block + NW;}
+        if(dirX >= 0){return block + SE;}
+        return block + SW;
+    }
+    private int getNodeAtPosition(float pointX, float pointY){
+        int currentNode = 0;
+        while(!isLeaf(currentNode)){currentNode = getChildAtPosition(currentNode, pointX, pointY);}
+        return currentNode;
+    }
+    private boolean holdsPoint(float pointX, float pointY, int node){
+        // Edges count, see Quadtree.holdsPoint
+        return (Math.abs(this.nodeBounds[node << 2] - pointX) <= this.nodeBounds[(node << 2) + 2]/2) && (Math.abs(this.nodeBounds[(node << 2) + 1] - pointY) <= this.nodeBounds[(node << 2) + 3]/2);
+    }
+    private boolean ownsPoint(int leaf, float pointX, float pointY, int object){
+        // Whether leaf is the one leaf out of those holding the point that hands the object over, see Quadtree.ownsPoint
+        float posX = this.objectBounds[object << 2], posY = this.objectBounds[(object << 2) + 1], sizeX = this.objectBounds[(object << 2) + 2], sizeY = this.objectBounds[(object << 2) + 3];
+        int currentNode = 0;
+        while(!isLeaf(currentNode)){
+            int block = this.nodeChildren[currentNode], nextNode = NONE;
+            for(int i = 0; i < 4 && nextNode == NONE; i++){
+                if(holdsPoint(pointX, pointY, block + i) && intersectsWith(posX, posY, sizeX, sizeY, block + i)){nextNode = block + i;}
+            }
+            if(nextNode == NONE){return false;}
+            currentNode = nextNode;
+        }
+        return currentNode == leaf;
+    }
+    private int getFirstNode(float posX, float posY, float sizeX, float sizeY){
+        // returns the first node that's either a leaf or can't fit the object with the given size at the given position
+        int currentNode = 0;
+        while(!isLeaf(currentNode)){
+            int childNode = getChildAtPosition(currentNode, posX, posY);
+            // Stop if the child is smaller than the object or the object pokes out into the child's siblings
+            if(sizeX > this.nodeBounds[(childNode << 2) + 2] || sizeY > this.nodeBounds[(childNode << 2) + 3]){return currentNode;}
+            if(!containsBounds(childNode, posX, posY, sizeX, sizeY)){return currentNode;}
+            currentNode = childNode;
+        }
+        return currentNode;
+    }
+    private int getCommonAncestor(int first, int second){
+        while(this.nodeDepth[first] > this.nodeDepth[second]){first = this.nodeParent[first];}
+        while(this.nodeDepth[second] > this.nodeDepth[first]){second = this.nodeParent[second];}
+        while(first != second){first = this.nodeParent[first]; second = this.nodeParent[second];}
+        return first;
+    }
+    private void pushTraversal(int node){
+        if(this.traversalTop == this.traversalStack.length){this.traversalStack = Arrays.copyOf(this.traversalStack, this.traversalStack.length << 1);}
+        this.traversalStack[this.traversalTop++] = node;
+    }
+    private void divideNode(int node){
+        // Gives the node 4 leaves, laid out the same way as QuadtreeNode.divideNode
+        int block = allocateBlock();
+        float divisionSizeX = this.nodeBounds[(node << 2) + 2]/2, divisionSizeY = this.nodeBounds[(node << 2) + 3]/2;
+        float posX = this.nodeBounds[node << 2], posY = this.nodeBounds[(node << 2) + 1];
+        int childDepth = this.nodeDepth[node] + 1;
+        for(int i = 0; i < 4; i++){
+            int child = block + i;
+            this.nodeBounds[(child << 2) + 2] = divisionSizeX; this.nodeBounds[(child << 2) + 3] = divisionSizeY;
+            this.nodeBounds[child << 2] = (i == NE || i == SE) ? posX + divisionSizeX/2 : posX - divisionSizeX/2;
+            this.nodeBounds[(child << 2) + 1] = (i == NE || i == NW) ? posY + divisionSizeY/2 : posY - divisionSizeY/2;
+            this.nodeChildren[child] = NONE; this.nodeParent[child] = node; this.nodeDepth[child] = childDepth;
+            this.nodeFirstEntry[child] = NONE; this.nodeObjectCount[child] = 0;
+        }
+        this.nodeGeohash[block + NE] = Quadtree.computeGeohash(this.nodeGeohash[node], Quadtree.Leaf.NE, childDepth);
+        this.nodeGeohash[block + NW] = Quadtree.computeGeohash(this.nodeGeohash[node], Quadtree.Leaf.NW, childDepth);
+        this.nodeGeohash[block + SE] = Quadtree.computeGeohash(this.nodeGeohash[node], Quadtree.Leaf.SE, childDepth);
+        this.nodeGeohash[block + SW] = Quadtree.computeGeohash(this.nodeGeohash[node], Quadtree.Leaf.SW, childDepth);
+        this.nodeChildren[node] = block;
+        if(childDepth > this.depth){this.depth = (byte) childDepth;}
+    }
+    private void moveObjectsToLeaves(int node){
+        // Hands every object in a node that's just been divided down to the children it overlaps with
+        int block = this.nodeChildren[node];
+        int currentEntry = this.nodeFirstEntry[node];
+        while(currentEntry != NONE){
+            int nextEntry = this.entryNext[currentEntry];
+            int object = this.entryObject[currentEntry];
+            unlinkEntryFromObject(object, currentEntry);
+            unlinkEntryFromNode(currentEntry);
+            float posX = this.objectBounds[object << 2], posY = this.objectBounds[(object << 2) + 1], sizeX = this.objectBounds[(object << 2) + 2], sizeY = this.objectBounds[(object << 2) + 3];
+            for(int i = 0; i < 4; i++){
+                if(intersectsWith(posX, posY, sizeX, sizeY, block + i)){linkEntry(block + i, object);}
+            }
+            currentEntry = nextEntry;
+        }
+    }
+    private void insertObject(int firstNode, int object){
+        // Pushes the object down from firstNode into every leaf it overlaps with, splitting leaves along the way
+        float posX = this.objectBounds[object << 2], posY = this.objectBounds[(object << 2) + 1], sizeX = this.objectBounds[(object << 2) + 2], sizeY = this.objectBounds[(object << 2) + 3];
+        int stackBase = this.traversalTop;
+        pushTraversal(firstNode);
+        while(this.traversalTop > stackBase){
+            int currentNode = this.traversalStack[this.traversalTop - 1]; // Not popped yet since a node that's just been split needs to be checked again
+            if(isLeaf(currentNode)){
+                if((this.nodeBounds[(currentNode << 2) + 2]/2 > this.minimumLeafSizeX) && (this.nodeBounds[(currentNode << 2) + 3]/2 > this.minimumLeafSizeY) && (this.nodeDepth[currentNode] < this.maximumDepth)){
+                    if(this.nodeObjectCount[currentNode] >= this.maxChilds){
+                        divideNode(currentNode);
+                        moveObjectsToLeaves(currentNode);
+                        continue;
+                    }
+                }
+                this.traversalTop--;
+                linkEntry(currentNode, object);
+                continue;
+            }
+            this.traversalTop--;
+            int block = this.nodeChildren[currentNode];
+            for(int i = 0; i < 4; i++){
+                if(intersectsWith(posX, posY, sizeX, sizeY, block + i)){pushTraversal(block + i);}
+            }
+        }
+    }
+    private int unlinkObject(int object){
+        // Removes the object from every node it's in, keeping those nodes in unlinkedNodes so they can be collapsed afterwards
+        int unlinkedCount = 0;
+        int currentEntry = this.objectFirstEntry[object];
+        while(currentEntry != NONE){
+            int nextEntry = this.entryNextOfObject[currentEntry];
+            if(unlinkedCount == this.unlinkedNodes.length){this.unlinkedNodes = Arrays.copyOf(this.unlinkedNodes, this.unlinkedNodes.length << 1);}
+            this.unlinkedNodes[unlinkedCount++] = this.entryNode[currentEntry];
+            unlinkEntryFromNode(currentEntry);
+            currentEntry = nextEntry;
+        }
+        this.objectFirstEntry[object] = NONE;
+        return unlinkedCount;
+    }
+    private void collapseUnlinkedNodes(int unlinkedCount){
+        for(int i = 0; i < unlinkedCount; i++){collapseNode(this.nodeParent[this.unlinkedNodes[i]]);}
+    }
+    private void collapseNode(int node){
+        // Merges the children of the node back into it if they're all leaves and hold few enough objects between them, then does the same for its parent
+        //  Like Quadtree, the root always stays divided
+        while(node > 0){
+            if(isLeaf(node)){return;}
+            int block = this.nodeChildren[node];
+            if(!(isLeaf(block + NE) && isLeaf(block + NW) && isLeaf(block + SE) && isLeaf(block + SW))){return;}
+            // Objects that straddle the children are in more than one of them so count them with a stamp
+            int stamp = nextQueryStamp();
+            int population = 0;
+            for(int i = 0; i < 4 && population <= this.collapseThreshold; i++){
+                for(int currentEntry = this.nodeFirstEntry[block + i]; currentEntry != NONE && population <= this.collapseThreshold; currentEntry = this.entryNext[currentEntry]){
+                    int object = this.entryObject[currentEntry];
+                    if(this.objectStamp[object] == stamp){continue;}
+                    this.objectStamp[object] = stamp;
+                    population++;
+                }
+            }
+            if(population > this.collapseThreshold){return;}
+            // Pull the objects back up and free the children
+            stamp = nextQueryStamp();
+            for(int i = 0; i < 4; i++){
+                int currentEntry = this.nodeFirstEntry[block + i];
+                while(currentEntry != NONE){
+                    int nextEntry = this.entryNext[currentEntry];
+                    int object = this.entryObject[currentEntry];
+                    unlinkEntryFromObject(object, currentEntry);
+                    unlinkEntryFromNode(currentEntry);
+                    if(this.objectStamp[object] != stamp){
+                        this.objectStamp[object] = stamp;
+                        linkEntry(node, object);
+                    }
+                    currentEntry = nextEntry;
+                }
+            }
+            this.nodeChildren[node] = NONE;
+            freeBlock(block);
+            node = this.nodeParent[node];
+        }
+    }
+    private int nextQueryStamp(){
+        // Hands out a stamp that no object currently has, wiping all of them in the rare case that the counter wraps around
+        if(++this.queryStamp == 0){
+            Arrays.fill(this.objectStamp, 0);
+            this.queryStamp = 1;
+        }
+        return this.queryStamp;
+    }
+    private void checkHandle(int handle){
+        if(handle < 0 || handle >= this.objectsCreated || !this.objectAlive[handle]){throw new IllegalArgumentException("Handle " + String.valueOf(handle) + " doesn't refer to an object in this quadtree");}
+    }
+    @SuppressWarnings("unchecked")
+    private int visitObjectsInArea(float posX, float posY, float sizeX, float sizeY, boolean exact, Collection<? super Obj> sink, Consumer<? super Obj> visitor){
+        // Same as Quadtree.visitObjectsInArea, including starting from the current top of the stack so that visitors can query the tree
+        //  and holding exact visits back until the stamping's done, since a visitor's own exact query would stamp over ours
+        int stackBase = this.traversalTop, bufferBase = this.visitBuffer.size();
+        int visited = 0;
+        boolean buffered = exact && visitor != null;
+        int stamp = exact ? nextQueryStamp() : 0;
+        pushTraversal(0);
+        try{
+            while(this.traversalTop > stackBase){
+                int currentNode = this.traversalStack[--this.traversalTop];
+                if(isLeaf(currentNode)){
+                    for(int currentEntry = this.nodeFirstEntry[currentNode]; currentEntry != NONE; currentEntry = this.entryNext[currentEntry]){
+                        int object = this.entryObject[currentEntry];
+                        if(exact){
+                            if(this.objectStamp[object] == stamp){continue;}
+                            this.objectStamp[object] = stamp;
+                            if(!objectIntersects(object, posX, posY, sizeX, sizeY)){continue;}
+                        }
+                        Obj instance = (Obj) this.objectInstances[object];
+                        if(sink != null){sink.add(instance);} else if(buffered){this.visitBuffer.add(instance);} else {visitor.accept(instance);}
+                        visited++;
+                    }
+                    continue;
+                }
+                int block = this.nodeChildren[currentNode];
+                for(int i = 0; i < 4; i++){
+                    if(intersectsWith(posX, posY, sizeX, sizeY, block + i)){pushTraversal(block + i);}
+                }
+            }
+            int bufferEnd = this.visitBuffer.size();
+            for(int i = bufferBase; i < bufferEnd; i++){visitor.accept(this.visitBuffer.get(i));}
+        } finally {
+            this.traversalTop = stackBase;
+            while(this.visitBuffer.size() > bufferBase){this.visitBuffer.remove(this.visitBuffer.size() - 1);}
+        }
+        return visited;
+    }
+    @SuppressWarnings("unchecked")
+    private int visitObjectsAtPoint(float pointX, float pointY, boolean exact, Collection<? super Obj> sink, Consumer<? super Obj> visitor){
+        // Every leaf that holds the point, edges included, the same as Quadtree.visitObjectsAtPoint
+        int stackBase = this.traversalTop;
+        int visited = 0;
+        boolean shared = false;
+        pushTraversal(0);
+        try{
+            while(this.traversalTop > stackBase){
+                int currentNode = this.traversalStack[--this.traversalTop];
+                if(!isLeaf(currentNode)){
+                    int block = this.nodeChildren[currentNode], childBase = this.traversalTop;
+                    for(int i = 0; i < 4; i++){
+                        if(holdsPoint(pointX, pointY, block + i)){pushTraversal(block + i);}
+                    }
+                    if(this.traversalTop - childBase > 1){shared = true;}
+                    continue;
+                }
+                for(int currentEntry = this.nodeFirstEntry[currentNode]; currentEntry != NONE; currentEntry = this.entryNext[currentEntry]){
+                    int object = this.entryObject[currentEntry];
+                    if(exact && !objectContains(object, pointX, pointY)){continue;}
+                    if(shared && this.entryNextOfObject[this.objectFirstEntry[object]] != NONE && !ownsPoint(currentNode, pointX, pointY, object)){continue;}
+                    Obj instance = (Obj) this.objectInstances[object];
+                    if(sink != null){sink.add(instance);} else {visitor.accept(instance);}
+                    visited++;
+                }
+            }
+        } finally {
+            this.traversalTop = stackBase;
+        }
+        return visited;
+    }
+    private static float distanceToBounds(float pointX, float pointY, float posX, float posY, float sizeX, float sizeY){
+        float dirX = Math.max(Math.abs(pointX - posX) - sizeX/2, 0), dirY = Math.max(Math.abs(pointY - posY) - sizeY/2, 0);
+        return (float) Math.sqrt(dirX*dirX + dirY*dirY);
+    }
+    private void pushNearestCandidate(float distance, int reference){
+        // Binary min-heap kept in two parallel arrays; nodes are stored as their id and objects as -(id + 1)
+        if(this.heapSize == this.heapDistances.length){
+            this.heapDistances = Arrays.copyOf(this.heapDistances, this.heapDistances.length << 1);
+            this.heapReferences = Arrays.copyOf(this.heapReferences, this.heapReferences.length << 1);
+        }
+        int index = this.heapSize++;
+        while(index > 0){
+            int parentIndex = (index - 1) >> 1;
+            if(this.heapDistances[parentIndex] <= distance){break;}
+            this.heapDistances[index] = this.heapDistances[parentIndex]; this.heapReferences[index] = this.heapReferences[parentIndex];
+            index = parentIndex;
+        }
+        this.heapDistances[index] = distance; this.heapReferences[index] = reference;
+    }
+    private int popNearestCandidate(){
+        int returnValue = this.heapReferences[0];
+        float lastDistance = this.heapDistances[--this.heapSize];
+        int lastReference = this.heapReferences[this.heapSize];
+        int index = 0;
+        while(true){
+            int childIndex = (index << 1) + 1;
+            if(childIndex >= this.heapSize){break;}
+            if(childIndex + 1 < this.heapSize && this.heapDistances[childIndex + 1] < this.heapDistances[childIndex]){childIndex++;}
+            if(this.heapDistances[childIndex] >= lastDistance){break;}
+            this.heapDistances[index] = this.heapDistances[childIndex]; this.heapReferences[index] = this.heapReferences[childIndex];
+            index = childIndex;
+        }
+        this.heapDistances[index] = lastDistance; this.heapReferences[index] = lastReference;
+        return returnValue;
+    }
+    private void pushNearestNode(int node, float pointX, float pointY, float maxDistance){
+        float distance = distanceToBounds(pointX, pointY, this.nodeBounds[node << 2], this.nodeBounds[(node << 2) + 1], this.nodeBounds[(node << 2) + 2], this.nodeBounds[(node << 2) + 3]);
+        if(distance <= maxDistance){pushNearestCandidate(distance, node);}
+    }
+    @SuppressWarnings("unchecked")
+    private int visitNearestObjects(float pointX, float pointY, int k, float maxDistance, Collection<? super Obj> sink){
+        // Best first search like Quadtree.visitNearestObjects, except that the queue is a primitive heap that's kept between queries
+        if(k < 1){throw new IllegalArgumentException("Can't look for " + String.valueOf(k) + " nearest objects");}
+        int stamp = nextQueryStamp();
+        int found = 0;
+        this.heapSize = 0;
+        pushNearestNode(0, pointX, pointY, maxDistance);
+        while(this.heapSize > 0 && found < k){
+            int reference = popNearestCandidate();
+            if(reference < 0){
+                sink.add((Obj) this.objectInstances[-(reference + 1)]);
+                found++;
+                continue;
+            }
+            if(isLeaf(reference)){
+                for(int currentEntry = this.nodeFirstEntry[reference]; currentEntry != NONE; currentEntry = this.entryNext[currentEntry]){
+                    int object = this.entryObject[currentEntry];
+                    if(this.objectStamp[object] == stamp){continue;}
+                    this.objectStamp[object] = stamp;
+                    float distance = distanceToBounds(pointX, pointY, this.objectBounds[object << 2], this.objectBounds[(object << 2) + 1], this.objectBounds[(object << 2) + 2], this.objectBounds[(object << 2) + 3]);
+                    if(distance <= maxDistance){pushNearestCandidate(distance, -(object + 1));}
+                }
+                continue;
+            }
+            int block = this.nodeChildren[reference];
+            for(int i = 0; i < 4; i++){pushNearestNode(block + i, pointX, pointY, maxDistance);}
+        }
+        return found;
+    }
+    // Instance vars
+    // Nodes, indexed by node id. The root is node 0 and every other node is part of a block of 4 siblings
+    private float[] nodeBounds; // Position X, position Y, size X then size Y for each node, kept together so that an overlap test only touches one cache line
+    private int[] nodeChildren; // The id of the NE child with NW, SE and SW right after it, or NONE for leaves
+    private int[] nodeParent, nodeDepth;
+    private long[] nodeGeohash;
+    private int[] nodeFirstEntry, nodeObjectCount;
+    private int nodesCreated; // Doubles as the next unused node id
+    private int[] freeBlocks; private int freeBlockCount;
+    // Entries, one for every node an object is in. Each entry is in a doubly linked list for its node and a singly linked list for its object
+    private int[] entryObject, entryNode, entryPrevious, entryNext, entryNextOfObject;
+    private int entriesCreated;
+    private int freeEntry = NONE;
+    // Objects, indexed by the handle returned from add
+    private float[] objectBounds; // Laid out the same way as nodeBounds
+    private Object[] objectInstances;
+    private int[] objectFirstEntry, objectStamp;
+    private boolean[] objectAlive;
+    private int objectsCreated;
+    private int[] freeObjects; private int freeObjectCount;
+    private int objectCount;
+    // Tree settings and scratch space
+    private int maximumDepth, maxChilds, collapseThreshold;
+    private float minimumLeafSizeX, minimumLeafSizeY; // Kept as raw numbers since every insert compares against them
+    private byte depth;
+    private int[] traversalStack; private int traversalTop;
+    private int[] unlinkedNodes;
+    private int queryStamp;
+    private final ArrayList<Obj> visitBuffer = new ArrayList<Obj>(); // Same as Quadtree.visitBuffer
+    private float[] heapDistances; private int[] heapReferences; private int heapSize;
+    // Accessors
+    public Vector2 getSize(){return new Vector2(this.nodeBounds[2], this.nodeBounds[3]);}
+    public Vector2 getPosition(){return new Vector2(this.nodeBounds[0], this.nodeBounds[1]);}
+    public int getMaximumDepth(){return this.maximumDepth;}
+    public int getCollapseThreshold(){return this.collapseThreshold;}
+    public int getMaxChilds(){return this.maxChilds;}
+    public Vector2 getMinimumLeafSize(){return new Vector2(this.minimumLeafSizeX, this.minimumLeafSizeY);}
+    /**
+     * Returns the deepest layer the tree has reached so far; like {@link Quadtree#getDepth()} this doesn't go back down when nodes collapse
+     * @return
+     */
+    public int getDepth(){return this.depth;}
+    /**
+     * @return how many objects are in the tree
+     */
+    public int getObjectCount(){return this.objectCount;}
+    /**
+     * Fetches the object that a handle refers to
+     * @param handle the handle returned by {@link #add}
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Obj getInstance(int handle){
+        checkHandle(handle);
+        return (Obj) this.objectInstances[handle];
+    }
+    // Mutators
+    /**
+     * Sets how deep nodes can be divided, see {@link Quadtree#setMaximumDepth(int)}
+     * @param maximumDepth between 1 and 31
+     */
+    public void setMaximumDepth(int maximumDepth){
+        if(maximumDepth < 1 || maximumDepth > 31){throw new IllegalArgumentException("Maximum depth of " + String.valueOf(maximumDepth) + " is outside of [1, 31]");}
+        this.maximumDepth = maximumDepth;
+    }
+    /**
+     * Sets how many objects sibling leaves can hold between them before they stop being merged, see {@link Quadtree#setCollapseThreshold(int)}
+     * @param collapseThreshold has to be below maxChilds
+     */
+    public void setCollapseThreshold(int collapseThreshold){
+        if(collapseThreshold < 0 || collapseThreshold >= this.maxChilds){throw new IllegalArgumentException("Collapse threshold of " + String.valueOf(collapseThreshold) + " is outside of [0, " + String.valueOf(this.maxChilds) + ")");}
+        this.collapseThreshold = collapseThreshold;
+    }
+    /**
+     * Sets how many objects a leaf can hold before it gets divided, see {@link Quadtree#setMaxChilds(int)}
+     * @param maxChilds has to be above the collapse threshold
+     */
+    public void setMaxChilds(int maxChilds){
+        if(maxChilds < 1 || maxChilds <= this.collapseThreshold){throw new IllegalArgumentException("Max childs of " + String.valueOf(maxChilds) + " has to be at least 1 and above the collapse threshold of " + String.valueOf(this.collapseThreshold));}
+        this.maxChilds = maxChilds;
+    }
+    /**
+     * Sets how small a leaf can get, see {@link Quadtree#setMinimumLeafSize(Vector2)}
+     * @param minimumLeafSize
+     */
+    public void setMinimumLeafSize(Vector2 minimumLeafSize){
+        if(!(minimumLeafSize.getX() >= 0) || !(minimumLeafSize.getY() >= 0)){throw new IllegalArgumentException("Minimum leaf size of " + String.valueOf(minimumLeafSize) + " can't be negative");}
+        this.minimumLeafSizeX = minimumLeafSize.getX(); this.minimumLeafSizeY = minimumLeafSize.getY();
+    }
+    // Instance methods
+    /**
+     * Adds the given object to the quadtree at the position and the size
+     * @param item the object to add
+     * @param position the position to add the object to
+     * @param size the size of the object for the purposes of spatial querying
+     * @return the handle for the object, which can be handed back to {@link #update} and {@link #remove(int)}
+     */
+    public int add(Obj item, Vector2 position, Vector2 size){
+        return add(item, position.getX(), position.getY(), size.getX(), size.getY());
+    }
+    /**
+     * Same as {@link #add(Object, Vector2, Vector2)} but with raw numbers
+     * @param item
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @return the handle for the object
+     */
+    public int add(Obj item, float posX, float posY, float sizeX, float sizeY){
+        int object = allocateObject();
+        this.objectInstances[object] = item;
+        this.objectBounds[object << 2] = posX; this.objectBounds[(object << 2) + 1] = posY; this.objectBounds[(object << 2) + 2] = sizeX; this.objectBounds[(object << 2) + 3] = sizeY;
+        insertObject(getFirstNode(posX, posY, sizeX, sizeY), object);
+        this.objectCount++;
+        return object;
+    }
+    /**
+     * Moves and/or resizes an object that's already in the quadtree, see {@link Quadtree#update(Quadtree.QuadtreeObjectContainer, float, float, float, float)}
+     * @param handle the handle returned by {@link #add}
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     */
+    public void update(int handle, float posX, float posY, float sizeX, float sizeY){
+        checkHandle(handle);
+        int firstEntry = this.objectFirstEntry[handle];
+        // If the object is only in one leaf and still fits inside it, nothing in the tree has to change
+        if(firstEntry != NONE && this.entryNextOfObject[firstEntry] == NONE && containsBounds(this.entryNode[firstEntry], posX, posY, sizeX, sizeY)){
+            this.objectBounds[handle << 2] = posX; this.objectBounds[(handle << 2) + 1] = posY; this.objectBounds[(handle << 2) + 2] = sizeX; this.objectBounds[(handle << 2) + 3] = sizeY;
+            return;
+        }
+        // Otherwise re-insert from the lowest node that has all of its current leaves and fits the new bounds
+        int ancestor = 0;
+        if(firstEntry != NONE){
+            ancestor = this.entryNode[firstEntry];
+            for(int currentEntry = this.entryNextOfObject[firstEntry]; currentEntry != NONE; currentEntry = this.entryNextOfObject[currentEntry]){
+                ancestor = getCommonAncestor(ancestor, this.entryNode[currentEntry]);
+            }
+            while(ancestor != 0 && !containsBounds(ancestor, posX, posY, sizeX, sizeY)){ancestor = this.nodeParent[ancestor];}
+        }
+        int unlinkedCount = unlinkObject(handle);
+        this.objectBounds[handle << 2] = posX; this.objectBounds[(handle << 2) + 1] = posY; this.objectBounds[(handle << 2) + 2] = sizeX; this.objectBounds[(handle << 2) + 3] = sizeY;
+        insertObject(ancestor == 0 ? getFirstNode(posX, posY, sizeX, sizeY) : ancestor, handle);
+        collapseUnlinkedNodes(unlinkedCount);
+    }
+    /**
+     * Same as {@link #update(int, float, float, float, float)} but with vectors
+     * @param handle the handle returned by {@link #add}
+     * @param position the new position of the object
+     * @param size the new size of the object
+     */
+    public void update(int handle, Vector2 position, Vector2 size){
+        update(handle, position.getX(), position.getY(), size.getX(), size.getY());
+    }
+    /**
+     * Removes the object the handle refers to; the handle can be given out again by a later {@link #add}
+     * @param handle the handle returned by {@link #add}
+     */
+    public void remove(int handle){
+        checkHandle(handle);
+        int unlinkedCount = unlinkObject(handle);
+        freeObject(handle);
+        this.objectCount--;
+        collapseUnlinkedNodes(unlinkedCount);
+    }
+    /**
+     * Removes the given object using the position placed at to find the object in question
+     * <p> Like {@link Quadtree#remove(Object, Vector2)} this only looks in the leaf at the position
+     * @param object
+     * @param position
+     */
+    public void remove(Obj object, Vector2 position){
+        int closestNode = getNodeAtPosition(position.getX(), position.getY());
+        for(int currentEntry = this.nodeFirstEntry[closestNode]; currentEntry != NONE; currentEntry = this.entryNext[currentEntry]){
+            int handle = this.entryObject[currentEntry];
+            if(this.objectInstances[handle] == object){
+                remove(handle);
+                break;
+            }
+        }
+    }
+    /**
+     * Fetches all objects that are within the node closest to the point, see {@link Quadtree#getObjectsAtPoint(Vector2)}
+     * @param point
+     * @return
+     */
+    public ArrayList<Obj> getObjectsAtPoint(Vector2 point){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        visitObjectsAtPoint(point.getX(), point.getY(), false, returnValue, null);
+        return returnValue;
+    }
+    /**
+     * Fetches all the objects that fall within the nodes that overlap with the size at the position, see {@link Quadtree#getObjectsInArea(Vector2, Vector2)}
+     * @param position
+     * @param size
+     * @return
+     */
+    public ArrayList<Obj> getObjectsInArea(Vector2 position, Vector2 size){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        visitObjectsInArea(position.getX(), position.getY(), size.getX(), size.getY(), false, returnValue, null);
+        return returnValue;
+    }
+    /**
+     * Fetches every object whose own bounds overlap with the area, once each, see {@link Quadtree#getObjectsIntersectingArea(Vector2, Vector2)}
+     * @param position
+     * @param size
+     * @return
+     */
+    public ArrayList<Obj> getObjectsIntersectingArea(Vector2 position, Vector2 size){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        visitObjectsInArea(position.getX(), position.getY(), size.getX(), size.getY(), true, returnValue, null);
+        return returnValue;
+    }
+    /**
+     * Fetches every object whose own bounds contain the point, see {@link Quadtree#getObjectsContainingPoint(Vector2)}
+     * @param point
+     * @return
+     */
+    public ArrayList<Obj> getObjectsContainingPoint(Vector2 point){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        visitObjectsAtPoint(point.getX(), point.getY(), true, returnValue, null);
+        return returnValue;
+    }
+    // And yknow the overloads to those
+    public int getObjectsAtPoint(float pointX, float pointY, Collection<? super Obj> sink){
+        return visitObjectsAtPoint(pointX, pointY, false, sink, null);
+    }
+    public int getObjectsInArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink){
+        return visitObjectsInArea(posX, posY, sizeX, sizeY, false, sink, null);
+    }
+    public int getObjectsIntersectingArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink){
+        return visitObjectsInArea(posX, posY, sizeX, sizeY, true, sink, null);
+    }
+    public int getObjectsContainingPoint(float pointX, float pointY, Collection<? super Obj> sink){
+        return visitObjectsAtPoint(pointX, pointY, true, sink, null);
+    }
+    public int forEachObjectAtPoint(float pointX, float pointY, Consumer<? super Obj> visitor){
+        return visitObjectsAtPoint(pointX, pointY, false, null, visitor);
+    }
+    public int forEachObjectInArea(float posX, float posY, float sizeX, float sizeY, Consumer<? super Obj> visitor){
+        return visitObjectsInArea(posX, posY, sizeX, sizeY, false, null, visitor);
+    }
+    public int forEachObjectIntersectingArea(float posX, float posY, float sizeX, float sizeY, Consumer<? super Obj> visitor){
+        return visitObjectsInArea(posX, posY, sizeX, sizeY, true, null, visitor);
+    }
+    public int forEachObjectContainingPoint(float pointX, float pointY, Consumer<? super Obj> visitor){
+        return visitObjectsAtPoint(pointX, pointY, true, null, visitor);
+    }
+    /**
+     * Fetches the object whose bounds are closest to the point
+     * @param point
+     * @return the closest object, or null if the tree is empty
+     */
+    public Obj nearest(Vector2 point){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(1);
+        visitNearestObjects(point.getX(), point.getY(), 1, Float.POSITIVE_INFINITY, returnValue);
+        return returnValue.isEmpty() ? null : returnValue.get(0);
+    }
+    /**
+     * Fetches up to k objects whose bounds are within maxDistance of the point, closest first, see {@link Quadtree#kNearest(Vector2, int, float)}
+     * @param point
+     * @param k how many objects to return at most
+     * @param maxDistance how far away from the point an object can be, inclusive
+     * @return
+     */
+    public ArrayList<Obj> kNearest(Vector2 point, int k, float maxDistance){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(Math.min(k, 16));
+        visitNearestObjects(point.getX(), point.getY(), k, maxDistance, returnValue);
+        return returnValue;
+    }
+    public int kNearest(float pointX, float pointY, int k, float maxDistance, Collection<? super Obj> sink){
+        return visitNearestObjects(pointX, pointY, k, maxDistance, sink);
+    }
+
+    // Constructors
+    public CompactQuadtree(Vector2 treeSize, Vector2 treePosition){
+        super();
+        int nodeCapacity = 64, entryCapacity = 64, objectCapacity = 64;
+        this.nodeBounds = new float[nodeCapacity << 2];
+        this.nodeChildren = new int[nodeCapacity]; this.nodeParent = new int[nodeCapacity]; this.nodeDepth = new int[nodeCapacity]; this.nodeGeohash = new long[nodeCapacity];
+        this.nodeFirstEntry = new int[nodeCapacity]; this.nodeObjectCount = new int[nodeCapacity];
+        this.freeBlocks = new int[16];
+        this.entryObject = new int[entryCapacity]; this.entryNode = new int[entryCapacity]; this.entryPrevious = new int[entryCapacity]; this.entryNext = new int[entryCapacity]; this.entryNextOfObject = new int[entryCapacity];
+        this.objectBounds = new float[objectCapacity << 2];
+        this.objectInstances = new Object[objectCapacity]; this.objectFirstEntry = new int[objectCapacity]; this.objectStamp = new int[objectCapacity]; this.objectAlive = new boolean[objectCapacity];
+        this.freeObjects = new int[16];
+        this.traversalStack = new int[32]; this.unlinkedNodes = new int[4];
+        this.heapDistances = new float[32]; this.heapReferences = new int[32];
+        this.maxChilds = defaultMaxChilds; this.maximumDepth = defaultMaximumDepth; this.collapseThreshold = defaultCollapseThreshold;
+        this.minimumLeafSizeX = defaultMinimumLeafSize.getX(); this.minimumLeafSizeY = defaultMinimumLeafSize.getY();
+        // Set up the root and split it straight away, same as Quadtree does
+        this.nodeBounds[0] = treePosition.getX(); this.nodeBounds[1] = treePosition.getY(); this.nodeBounds[2] = treeSize.getX(); this.nodeBounds[3] = treeSize.getY();
+        this.nodeChildren[0] = NONE; this.nodeParent[0] = NONE; this.nodeFirstEntry[0] = NONE;
+        this.nodesCreated = 1;
+        divideNode(0);
+    }
+    /**
+     * Creates a quadtree with its own maxChilds and minimum leaf size instead of the defaults, see {@link Quadtree#Quadtree(Vector2, Vector2, int, Vector2)}
+     * @param treeSize
+     * @param treePosition
+     * @param maxChilds how many objects a leaf can hold before it's divided
+     * @param minimumLeafSize how small a leaf can get
+     */
+    public CompactQuadtree(Vector2 treeSize, Vector2 treePosition, int maxChilds, Vector2 minimumLeafSize){
+        this(treeSize, treePosition);
+        setMaxChilds(maxChilds);
+        setMinimumLeafSize(minimumLeafSize);
+    }
+}
@@ -0,0 +1,509 @@
+package WizardTD.gameEnv;
+// Imports
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Quadtree that can be shared between threads, where any number of threads can query it while others add, move and remove objects
+ * <p> Writers take turns through an exclusive lock. Readers don't take a lock at all; they run the query optimistically, buffering the results, and only keep them if no writer got in while the query was running.
+ * A reader only falls back to waiting on the lock after being interrupted by writers several times in a row, so under normal load queries never block and scale with the number of threads
+ * <p> Visitors are called once the query is over and the results are known to be consistent, so they're free to do anything including writing to this tree
+ * <p> Queries never write anything to the tree, so they don't count towards a {@link SplitPolicy}'s load; only the adds, moves and removes do.
+ * {@link Quadtree#getNodeFromGeohash} isn't offered here since the node it hands back is part of the live tree, which a writer could change at any moment; query a {@link #snapshot()} instead
+ */
+public class ConcurrentQuadtree<Obj>{
+    // Config vars
+    private int defaultOptimisticAttempts = 3; // How many times a read retries without the lock before it waits for writers to finish
+    // Helper methods
+    private interface Read<T>{
+        // A query run against the underlying tree that puts its results into the buffer
+        int run(Quadtree<T>.Traversal traversal, ArrayList<T> buffer);
+    }
+    private int read(Read<Obj> query, Collection<? super Obj> sink, Consumer<? super Obj> visitor){
+        // A visitor running another query on this tree shares our thread's buffer, so we only ever touch what's past where our results start, the same as Quadtree.visitObjectsInArea does
+        Quadtree<Obj>.Traversal traversal = this.traversals.get();
+        ArrayList<Obj> buffer = this.buffers.get();
+        int bufferBase = buffer.size();
+        int visited = -1;
+        try{
+            long stamp = this.lock.tryOptimisticRead();
+            for(int attempt = 0; attempt < this.optimisticAttempts && stamp != 0; attempt++){
+                truncate(buffer, bufferBase);
+                RuntimeException readError = null;
+                try{
+                    visited = query.run(traversal, buffer);
+                } catch(RuntimeException error){
+                    // A writer changing the nodes under us can make the traversal trip over half finished lists, which is fine as long as we throw those results away
+                    readError = error;
+                }
+                traversal.clear();
+                if(this.lock.validate(stamp)){
+                    if(readError != null){throw readError;} // Nobody wrote anything so this is a genuine error
+                    break;
+                }
+                visited = -1;
+                stamp = this.lock.tryOptimisticRead();
+            }
+            if(visited < 0){
+                // The writers kept getting in the way so wait for them to finish this time
+                long readStamp = this.lock.readLock();
+                try{
+                    truncate(buffer, bufferBase);
+                    visited = query.run(traversal, buffer);
+                } finally {
+                    traversal.clear();
+                    this.lock.unlockRead(readStamp);
+                }
+            }
+            // Only now that we know the results are consistent do we hand them over
+            //  Queries the visitor runs put their own objects after ours, so only go up to where ours end
+            int bufferEnd = buffer.size();
+            for(int i = bufferBase; i < bufferEnd; i++){
+                if(sink != null){sink.add(buffer.get(i));} else {visitor.accept(buffer.get(i));}
+            }
+            return visited;
+        } finally {
+            truncate(buffer, bufferBase); // Don't keep the objects alive through the thread's buffer
+        }
+    }
+    private static void truncate(ArrayList<?> buffer, int size){
+        while(buffer.size() > size){buffer.remove(buffer.size() - 1);}
+    }
+    // Instance vars
+    private final Quadtree<Obj> tree;
+    private final StampedLock lock = new StampedLock();
+    private final ThreadLocal<Quadtree<Obj>.Traversal> traversals;
+    private final ThreadLocal<ArrayList<Obj>> buffers = ThreadLocal.withInitial(() -> new ArrayList<Obj>(16));
+    private volatile int optimisticAttempts;
+    // Accessors
+    public Vector2 getSize(){return this.tree.getSize();}
+    public Vector2 getPosition(){return this.tree.getPosition();}
+    public float getLooseness(){return this.tree.getLooseness();}
+    public SplitPolicy getSplitPolicy(){return this.tree.getSplitPolicy();}
+    public int getOptimisticAttempts(){return this.optimisticAttempts;}
+    public int getMaximumDepth(){return this.tree.getMaximumDepth();}
+    public int getCollapseThreshold(){return this.tree.getCollapseThreshold();}
+    public int getMaxChilds(){return this.tree.getMaxChilds();}
+    public Vector2 getMinimumLeafSize(){return this.tree.getMinimumLeafSize();}
+    public int getDepth(){return this.tree.getDepth();}
+    // Mutators
+    /**
+     * Sets how many times a query is retried without the lock before it waits for the writers instead
+     * @param optimisticAttempts 0 makes every query take the read lock
+     */
+    public void setOptimisticAttempts(int optimisticAttempts){
+        if(optimisticAttempts < 0){throw new IllegalArgumentException("Can't make " + String.valueOf(optimisticAttempts) + " attempts");}
+        this.optimisticAttempts = optimisticAttempts;
+    }
+    /**
+     * See {@link Quadtree#setMaximumDepth(int)}
+     * @param maximumDepth
+     */
+    public void setMaximumDepth(int maximumDepth){
+        long stamp = this.lock.writeLock();
+        try{this.tree.setMaximumDepth(maximumDepth);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * See {@link Quadtree#setCollapseThreshold(int)}
+     * @param collapseThreshold
+     */
+    public void setCollapseThreshold(int collapseThreshold){
+        long stamp = this.lock.writeLock();
+        try{this.tree.setCollapseThreshold(collapseThreshold);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * See {@link Quadtree#setMaxChilds(int)}
+     * @param maxChilds
+     */
+    public void setMaxChilds(int maxChilds){
+        long stamp = this.lock.writeLock();
+        try{this.tree.setMaxChilds(maxChilds);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * See {@link Quadtree#setMinimumLeafSize(Vector2)}
+     * @param minimumLeafSize
+     */
+    public void setMinimumLeafSize(Vector2 minimumLeafSize){
+        long stamp = this.lock.writeLock();
+        try{this.tree.setMinimumLeafSize(minimumLeafSize);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * See {@link Quadtree#setSplitPolicy(SplitPolicy)}; only the adds, moves and removes count towards the load the policy sees, since the readers don't write anything to the tree
+     * @param splitPolicy
+     */
+    public void setSplitPolicy(SplitPolicy splitPolicy){
+        long stamp = this.lock.writeLock();
+        try{this.tree.setSplitPolicy(splitPolicy);} finally {this.lock.unlockWrite(stamp);}
+    }
+    // Instance methods
+    /**
+     * See {@link Quadtree#enableMetrics()}; the metrics are shared by every thread so they cover the queries from all of them
+     * <p> Queries that have to be retried because a writer got in the way are counted once per attempt
+     * @return
+     */
+    public QuadtreeMetrics enableMetrics(){
+        long stamp = this.lock.writeLock();
+        try{return this.tree.enableMetrics();} finally {this.lock.unlockWrite(stamp);}
+    }
+    public void disableMetrics(){
+        long stamp = this.lock.writeLock();
+        try{this.tree.disableMetrics();} finally {this.lock.unlockWrite(stamp);}
+    }
+    public QuadtreeMetrics getMetrics(){return this.tree.getMetrics();}
+    /**
+     * See {@link Quadtree#getStats()}; holds the read lock while it walks the tree so writers wait until it's done
+     * @return
+     */
+    public QuadtreeStats getStats(){
+        long stamp = this.lock.readLock();
+        try{return this.tree.getStats();} finally {this.lock.unlockRead(stamp);}
+    }
+    /**
+     * Adds the given object to the quadtree at the position and the size, see {@link Quadtree#add(Object, float, float, float, float)}
+     * @param item
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @return the container wrapping the object
+     */
+    public Quadtree<Obj>.QuadtreeObjectContainer<Obj> add(Obj item, float posX, float posY, float sizeX, float sizeY){
+        long stamp = this.lock.writeLock();
+        try{return this.tree.add(item, posX, posY, sizeX, sizeY);} finally {this.lock.unlockWrite(stamp);}
+    }
+    public Quadtree<Obj>.QuadtreeObjectContainer<Obj> add(Obj item, Vector2 position, Vector2 size){
+        return add(item, position.getX(), position.getY(), size.getX(), size.getY());
+    }
+    /**
+     * See {@link Quadtree#addAll(Collection, Function, Function)}
+     */
+    public ArrayList<Quadtree<Obj>.QuadtreeObjectContainer<Obj>> addAll(Collection<? extends Obj> items, Function<? super Obj, Vector2> positionOf, Function<? super Obj, Vector2> sizeOf){
+        long stamp = this.lock.writeLock();
+        try{return this.tree.addAll(items, positionOf, sizeOf);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * See {@link Quadtree#bulkLoad(Collection, Function, Function)}
+     */
+    public ArrayList<Quadtree<Obj>.QuadtreeObjectContainer<Obj>> bulkLoad(Collection<? extends Obj> items, Function<? super Obj, Vector2> positionOf, Function<? super Obj, Vector2> sizeOf){
+        long stamp = this.lock.writeLock();
+        try{return this.tree.bulkLoad(items, positionOf, sizeOf);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * Moves and/or resizes an object that's already in the quadtree, see {@link Quadtree#update(Quadtree.QuadtreeObjectContainer, float, float, float, float)}
+     * @param object the container returned by {@link #add}
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     */
+    public void update(Quadtree<Obj>.QuadtreeObjectContainer<Obj> object, float posX, float posY, float sizeX, float sizeY){
+        long stamp = this.lock.writeLock();
+        try{this.tree.update(object, posX, posY, sizeX, sizeY);} finally {this.lock.unlockWrite(stamp);}
+    }
+    public void update(Quadtree<Obj>.QuadtreeObjectContainer<Obj> object, Vector2 position, Vector2 size){
+        update(object, position.getX(), position.getY(), size.getX(), size.getY());
+    }
+    /**
+     * Removes the given object from the quadtree given a quadtree container
+     * @param object the container returned by {@link #add}
+     */
+    public void remove(Quadtree<Obj>.QuadtreeObjectContainer<Obj> object){
+        long stamp = this.lock.writeLock();
+        try{this.tree.remove(object);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * See {@link Quadtree#remove(Object, Vector2)}
+     * @param object
+     * @param position
+     */
+    public void remove(Obj object, Vector2 position){
+        long stamp = this.lock.writeLock();
+        try{this.tree.remove(object, position);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * Replaces everything in the quadtree with what was saved, see {@link Quadtree#load(ReadableByteChannel, LongFunction)}
+     * @param channel
+     * @param objectOf
+     * @return the containers wrapping the objects, in the order they were saved in
+     * @throws IOException
+     */
+    public ArrayList<Quadtree<Obj>.QuadtreeObjectContainer<Obj>> load(ReadableByteChannel channel, LongFunction<? extends Obj> objectOf) throws IOException{
+        long stamp = this.lock.writeLock();
+        try{return this.tree.load(channel, objectOf);} finally {this.lock.unlockWrite(stamp);}
+    }
+    public ArrayList<Quadtree<Obj>.QuadtreeObjectContainer<Obj>> load(Path file, LongFunction<? extends Obj> objectOf) throws IOException{
+        long stamp = this.lock.writeLock();
+        try{return this.tree.load(file, objectOf);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * Takes a snapshot of the quadtree, see {@link Quadtree#snapshot()}
+     * <p> This waits for any writer to finish, after which the snapshot can be queried from any thread without ever going near the lock again
+     * @return
+     */
+    public Quadtree<Obj>.Snapshot snapshot(){
+        long stamp = this.lock.writeLock();
+        try{return this.tree.snapshot();} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * Starts watching a region for objects coming into, moving in and leaving it, see {@link Quadtree#subscribe(float, float, float, float, RegionListener)}
+     * <p> The listener is called by whichever thread made the change, while it still holds the write lock, so it mustn't query or change this tree; hand the events off to be dealt with afterwards instead.
+     * For the same reason the subscription has to be moved and closed through {@link #setRegion} and {@link #unsubscribe} rather than its own methods
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @param listener
+     * @return
+     */
+    public Quadtree<Obj>.Subscription subscribe(float posX, float posY, float sizeX, float sizeY, RegionListener<? super Obj> listener){
+        long stamp = this.lock.writeLock();
+        try{return this.tree.subscribe(posX, posY, sizeX, sizeY, listener);} finally {this.lock.unlockWrite(stamp);}
+    }
+    public Quadtree<Obj>.Subscription subscribe(Vector2 position, Vector2 size, RegionListener<? super Obj> listener){
+        return subscribe(position.getX(), position.getY(), size.getX(), size.getY(), listener);
+    }
+    /**
+     * Moves and/or resizes the region of a subscription, see {@link Quadtree.Subscription#setRegion(float, float, float, float)}
+     * @param subscription the subscription returned by {@link #subscribe}
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     */
+    public void setRegion(Quadtree<Obj>.Subscription subscription, float posX, float posY, float sizeX, float sizeY){
+        long stamp = this.lock.writeLock();
+        try{subscription.setRegion(posX, posY, sizeX, sizeY);} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * Stops watching the subscription's region, see {@link Quadtree.Subscription#close()}
+     * @param subscription the subscription returned by {@link #subscribe}
+     */
+    public void unsubscribe(Quadtree<Obj>.Subscription subscription){
+        long stamp = this.lock.writeLock();
+        try{subscription.close();} finally {this.lock.unlockWrite(stamp);}
+    }
+    /**
+     * Fetches all objects that are within the node closest to the point, see {@link Quadtree#getObjectsAtPoint(Vector2)}
+     * @param point
+     * @return
+     */
+    public ArrayList<Obj> getObjectsAtPoint(Vector2 point){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        getObjectsAtPoint(point.getX(), point.getY(), returnValue);
+        return returnValue;
+    }
+    /**
+     * Fetches all the objects that fall within the nodes that overlap with the size at the position, see {@link Quadtree#getObjectsInArea(Vector2, Vector2)}
+     * @param position
+     * @param size
+     * @return
+     */
+    public ArrayList<Obj> getObjectsInArea(Vector2 position, Vector2 size){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        getObjectsInArea(position.getX(), position.getY(), size.getX(), size.getY(), returnValue);
+        return returnValue;
+    }
+    /**
+     * Fetches every object whose own bounds overlap with the area, once each, see {@link Quadtree#getObjectsIntersectingArea(Vector2, Vector2)}
+     * @param position
+     * @param size
+     * @return
+     */
+    public ArrayList<Obj> getObjectsIntersectingArea(Vector2 position, Vector2 size){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        getObjectsIntersectingArea(position.getX(), position.getY(), size.getX(), size.getY(), returnValue);
+        return returnValue;
+    }
+    /**
+     * Fetches every object whose own bounds contain the point, see {@link Quadtree#getObjectsContainingPoint(Vector2)}
+     * @param point
+     * @return
+     */
+    public ArrayList<Obj> getObjectsContainingPoint(Vector2 point){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        getObjectsContainingPoint(point.getX(), point.getY(), returnValue);
+        return returnValue;
+    }
+    // And yknow the overloads to those
+    public int getObjectsAtPoint(float pointX, float pointY, Collection<? super Obj> sink){
+        return read((traversal, buffer) -> this.tree.readObjectsAtPoint(traversal, pointX, pointY, false, buffer), sink, null);
+    }
+    public int getObjectsInArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink){
+        return read((traversal, buffer) -> this.tree.readObjectsInArea(traversal, posX, posY, sizeX, sizeY, false, buffer), sink, null);
+    }
+    public int getObjectsIntersectingArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink){
+        return read((traversal, buffer) -> this.tree.readObjectsInArea(traversal, posX, posY, sizeX, sizeY, true, buffer), sink, null);
+    }
+    public int getObjectsContainingPoint(float pointX, float pointY, Collection<? super Obj> sink){
+        return read((traversal, buffer) -> this.tree.readObjectsAtPoint(traversal, pointX, pointY, true, buffer), sink, null);
+    }
+    public int forEachObjectAtPoint(float pointX, float pointY, Consumer<? super Obj> visitor){
+        return read((traversal, buffer) -> this.tree.readObjectsAtPoint(traversal, pointX, pointY, false, buffer), null, visitor);
+    }
+    public int forEachObjectInArea(float posX, float posY, float sizeX, float sizeY, Consumer<? super Obj> visitor){
+        return read((traversal, buffer) -> this.tree.readObjectsInArea(traversal, posX, posY, sizeX, sizeY, false, buffer), null, visitor);
+    }
+    public int forEachObjectIntersectingArea(float posX, float posY, float sizeX, float sizeY, Consumer<? super Obj> visitor){
+        return read((traversal, buffer) -> this.tree.readObjectsInArea(traversal, posX, posY, sizeX, sizeY, true, buffer), null, visitor);
+    }
+    public int forEachObjectContainingPoint(float pointX, float pointY, Consumer<? super Obj> visitor){
+        return read((traversal, buffer) -> this.tree.readObjectsAtPoint(traversal, pointX, pointY, true, buffer), null, visitor);
+    }
+    /**
+     * Fetches the object whose bounds are closest to the point
+     * @param point
+     * @return the closest object, or null if the tree is empty
+     */
+    public Obj nearest(Vector2 point){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(1);
+        kNearest(point.getX(), point.getY(), 1, Float.POSITIVE_INFINITY, returnValue);
+        return returnValue.isEmpty() ? null : returnValue.get(0);
+    }
+    /**
+     * Fetches up to k objects whose bounds are within maxDistance of the point, closest first, see {@link Quadtree#kNearest(Vector2, int, float)}
+     * @param point
+     * @param k
+     * @param maxDistance
+     * @return
+     */
+    public ArrayList<Obj> kNearest(Vector2 point, int k, float maxDistance){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(Math.min(k, 16));
+        kNearest(point.getX(), point.getY(), k, maxDistance, returnValue);
+        return returnValue;
+    }
+    public int kNearest(float pointX, float pointY, int k, float maxDistance, Collection<? super Obj> sink){
+        return read((traversal, buffer) -> this.tree.visitNearestObjects(pointX, pointY, k, maxDistance, true, buffer), sink, null);
+    }
+    /**
+     * Fetches the first object whose bounds the ray hits, see {@link Quadtree#raycast(Vector2, Vector2, float)}
+     * @param origin
+     * @param direction
+     * @param maxDistance
+     * @return the object hit first, or null if the ray doesn't hit anything
+     */
+    public Obj raycast(Vector2 origin, Vector2 direction, float maxDistance){
+        return raycast(origin.getX(), origin.getY(), direction.getX(), direction.getY(), maxDistance);
+    }
+    public Obj raycast(float originX, float originY, float directionX, float directionY, float maxDistance){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(1);
+        float magnitude = Quadtree.getRayMagnitude(directionX, directionY, maxDistance);
+        read((traversal, buffer) -> this.tree.readRayHits(traversal, originX, originY, directionX / magnitude, directionY / magnitude, maxDistance, true, buffer), returnValue, null);
+        return returnValue.isEmpty() ? null : returnValue.get(0);
+    }
+    /**
+     * Fetches every object the line segment hits in order from start to end, see {@link Quadtree#segmentQuery(Vector2, Vector2)}
+     * @param start
+     * @param end
+     * @return
+     */
+    public ArrayList<Obj> segmentQuery(Vector2 start, Vector2 end){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        segmentQuery(start.getX(), start.getY(), end.getX(), end.getY(), returnValue);
+        return returnValue;
+    }
+    public int segmentQuery(float startX, float startY, float endX, float endY, Collection<? super Obj> sink){
+        return read((traversal, buffer) -> this.tree.readRayHits(traversal, startX, startY, endX - startX, endY - startY, 1, false, buffer), sink, null);
+    }
+    /**
+     * Hands every pair of objects whose bounds overlap to the visitor, see {@link Quadtree#forEachOverlappingPair(BiConsumer)}
+     * <p> There can be far too many pairs to buffer, so unlike the other queries this holds the read lock while the visitor is being called. The visitor mustn't write to this tree, since that would wait on itself forever
+     * @param visitor
+     * @return the number of pairs handed over
+     */
+    public int forEachOverlappingPair(BiConsumer<? super Obj, ? super Obj> visitor){
+        long stamp = this.lock.readLock();
+        try{return this.tree.forEachOverlappingPair(visitor);} finally {this.lock.unlockRead(stamp);}
+    }
+    /**
+     * See {@link Quadtree#getLeafIntervalsInArea(float, float, float, float)}
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @return
+     */
+    public long[] getLeafIntervalsInArea(float posX, float posY, float sizeX, float sizeY){
+        Quadtree<Obj>.Traversal traversal = this.traversals.get();
+        long stamp = this.lock.readLock();
+        try{return this.tree.readLeafIntervalsInArea(traversal, posX, posY, sizeX, sizeY);} finally {
+            traversal.clear();
+            this.lock.unlockRead(stamp);
+        }
+    }
+    /**
+     * See {@link Quadtree#getMortonCode(float, float)}
+     * @param pointX
+     * @param pointY
+     * @return
+     */
+    public long getMortonCode(float pointX, float pointY){
+        // Only a load can move the tree's bounds, so this only needs the lock for that
+        long stamp = this.lock.readLock();
+        try{return this.tree.getMortonCode(pointX, pointY);} finally {this.lock.unlockRead(stamp);}
+    }
+    /**
+     * Writes the quadtree out, see {@link Quadtree#save(WritableByteChannel, ToLongFunction)}; holds the read lock while it writes so writers wait until it's done
+     * <p> To save without holding up the writers, save a {@link #snapshot()} instead
+     * @param channel
+     * @param idOf
+     * @throws IOException
+     */
+    public void save(WritableByteChannel channel, ToLongFunction<? super Obj> idOf) throws IOException{
+        long stamp = this.lock.readLock();
+        try{this.tree.save(channel, idOf);} finally {this.lock.unlockRead(stamp);}
+    }
+    public void save(Path file, ToLongFunction<? super Obj> idOf) throws IOException{
+        long stamp = this.lock.readLock();
+        try{this.tree.save(file, idOf);} finally {this.lock.unlockRead(stamp);}
+    }
+    /**
+     * Runs a batch of area queries in parallel, see {@link Quadtree#getObjectsInAreas(float[], List)}
+     * <p> A batch is too long to redo whenever a writer gets in, so it holds the read lock the whole way through instead
+     * @param areas
+     * @param sinks
+     */
+    public void getObjectsInAreas(float[] areas, List<? extends Collection<? super Obj>> sinks){
+        long stamp = this.lock.readLock();
+        try{this.tree.getObjectsInAreas(areas, sinks);} finally {this.lock.unlockRead(stamp);}
+    }
+    /**
+     * Runs a batch of exact area queries in parallel, see {@link Quadtree#getObjectsIntersectingAreas(float[], List)}
+     * @param areas
+     * @param sinks
+     */
+    public void getObjectsIntersectingAreas(float[] areas, List<? extends Collection<? super Obj>> sinks){
+        long stamp = this.lock.readLock();
+        try{this.tree.getObjectsIntersectingAreas(areas, sinks);} finally {this.lock.unlockRead(stamp);}
+    }
+
+    // Constructors
+    public ConcurrentQuadtree(Vector2 treeSize, Vector2 treePosition){
+        super();
+        this.tree = new Quadtree<Obj>(treeSize, treePosition);
+        this.traversals = ThreadLocal.withInitial(() -> this.tree.new Traversal(false)); // Readers never write to the nodes, so their queries don't count towards the split policy's load
+        this.optimisticAttempts = defaultOptimisticAttempts;
+    }
+    /**
+     * Creates a loose quadtree, see {@link Quadtree#Quadtree(Vector2, Vector2, float)}
+     * @param treeSize
+     * @param treePosition
+     * @param looseness
+     */
+    public ConcurrentQuadtree(Vector2 treeSize, Vector2 treePosition, float looseness){
+        super();
+        this.tree = new Quadtree<Obj>(treeSize, treePosition, looseness);
+        this.traversals = ThreadLocal.withInitial(() -> this.tree.new Traversal(false)); // Readers never write to the nodes, so their queries don't count towards the split policy's load
+        this.optimisticAttempts = defaultOptimisticAttempts;
+    }
+}
@@ -0,0 +1,285 @@
+package WizardTD.gameEnv;
+// Imports
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// Static imports
+import java.lang.Math;
+
+/**
+ * Read only quadtree that runs its queries straight off a file written by {@link Quadtree#save}, without building any nodes or containers
+ * <p> The file is memory mapped, so opening it costs about the same no matter how big it is and only the parts that queries touch ever get paged in. Objects come back as the ids they were saved with
+ * <p> Nothing about it changes once it's open so any number of threads can query it at once
+ */
+public class MappedQuadtree{
+    // Config vars
+    // Where each field sits within a node and an object, see Quadtree.fileNodeSize and Quadtree.fileObjectSize
+    private static final int nodePosition = 0, nodeSize = 8, nodeGeohash = 16, nodeDepth = 24, nodeFirstChild = 28, nodeFirstObject = 32, nodeObjectCount = 36;
+    private static final int objectId = 0, objectPosition = 8, objectSize = 16;
+    // Helper methods
+    private int getNodeOffset(int node){return this.nodesOffset + node * Quadtree.fileNodeSize;}
+    private int getObjectOffset(int object){return this.objectsOffset + object * Quadtree.fileObjectSize;}
+    private boolean intersectsNode(float posX, float posY, float sizeX, float sizeY, int node){
+        // Same check as Quadtree.overlapsNode so that the same nodes come up
+        int offset = getNodeOffset(node);
+        float nodePosX = this.file.getFloat(offset + nodePosition), nodePosY = this.file.getFloat(offset + nodePosition + 4);
+        float nodeSizeX = this.file.getFloat(offset + nodeSize), nodeSizeY = this.file.getFloat(offset + nodeSize + 4);
+        if(this.looseness != 0){
+            return (Math.abs(nodePosX - posX) <= ((nodeSizeX*this.looseness + sizeX)/2)) && (Math.abs(nodePosY - posY) <= ((nodeSizeY*this.looseness + sizeY)/2));
+        }
+        float dirX = nodePosX - posX, dirY = nodePosY - posY;
+        if(!(Math.abs(dirX) < (nodeSizeX + sizeX)/2 || (sizeX == 0 && dirX == nodeSizeX/2))){return false;}
+        return Math.abs(dirY) < (nodeSizeY + sizeY)/2 || (sizeY == 0 && dirY == nodeSizeY/2);
+    }
+    private boolean holdsPoint(float pointX, float pointY, int node){
+        int offset = getNodeOffset(node);
+        return (Math.abs(this.file.getFloat(offset + nodePosition) - pointX) <= this.file.getFloat(offset + nodeSize)/2) && (Math.abs(this.file.getFloat(offset + nodePosition + 4) - pointY) <= this.file.getFloat(offset + nodeSize + 4)/2);
+    }
+    private boolean ownsOverlap(int leaf, boolean point, float posX, float posY, float sizeX, float sizeY, float objectPosX, float objectPosY, float objectSizeX, float objectSizeY){
+        // Same as Quadtree.ownsOverlap, or Quadtree.ownsPoint when point is set; walks down taking the first child that both the area and the object are in and checks that it ends up at the leaf
+        int currentNode = 0, firstChild = this.file.getInt(getNodeOffset(0) + nodeFirstChild);
+        while(firstChild != -1){
+            int nextNode = -1;
+            for(int i = 0; i < 4; i++){
+                boolean areaIn = point ? holdsPoint(posX, posY, firstChild + i) : intersectsNode(posX, posY, sizeX, sizeY, firstChild + i);
+                if(areaIn && intersectsNode(objectPosX, objectPosY, objectSizeX, objectSizeY, firstChild + i)){
+                    nextNode = firstChild + i;
+                    break;
+                }
+            }
+            if(nextNode == -1){return false;}
+            currentNode = nextNode;
+            firstChild = this.file.getInt(getNodeOffset(currentNode) + nodeFirstChild);
+        }
+        return currentNode == leaf;
+    }
+    private int visitIdsInArea(float posX, float posY, float sizeX, float sizeY, boolean exact, LongConsumer visitor){
+        // Depth first search over every leaf that overlaps with the area, the same as Quadtree.readObjectsInArea
+        //  The file can't be stamped so exact queries only take an object from the one leaf ownsOverlap picks out of those it shares with the area
+        //  Loose trees have objects in every node rather than just the leaves, but each one is only in one node so there's nothing to deduplicate
+        //  We start from wherever the stack currently is so that the visitor can run another query on this tree without trampling ours
+        Traversal traversal = this.traversals.get();
+        int stackBase = traversal.top;
+        int visited = 0;
+        traversal.push(0);
+        try{
+            while(traversal.top > stackBase){
+                int index = --traversal.top;
+                int currentNode = traversal.nodes[index];
+                int nodeOffset = getNodeOffset(currentNode);
+                int firstChild = this.file.getInt(nodeOffset + nodeFirstChild);
+                if(firstChild == -1 || this.looseness != 0){
+                    int firstObject = this.file.getInt(nodeOffset + nodeFirstObject), objectCount = this.file.getInt(nodeOffset + nodeObjectCount);
+                    for(int i = 0; i < objectCount; i++){
+                        int objectOffset = getObjectOffset(this.file.getInt(this.referencesOffset + ((firstObject + i) << 2)));
+                        if(exact){
+                            float objectPosX = this.file.getFloat(objectOffset + objectPosition), objectPosY = this.file.getFloat(objectOffset + objectPosition + 4);
+                            float objectSizeX = this.file.getFloat(objectOffset + objectSize), objectSizeY = this.file.getFloat(objectOffset + objectSize + 4);
+                            if((Math.abs(objectPosX - posX) >= (objectSizeX + sizeX)/2) || (Math.abs(objectPosY - posY) >= (objectSizeY + sizeY)/2)){continue;}
+                            if(this.looseness == 0 && !ownsOverlap(currentNode, false, posX, posY, sizeX, sizeY, objectPosX, objectPosY, objectSizeX, objectSizeY)){continue;}
+                        }
+                        visitor.accept(this.file.getLong(objectOffset + objectId));
+                        visited++;
+                    }
+                    if(firstChild == -1){continue;}
+                }
+                // The children are NE, NW, SE then SW
+                for(int i = 0; i < 4; i++){
+                    if(intersectsNode(posX, posY, sizeX, sizeY, firstChild + i)){traversal.push(firstChild + i);}
+                }
+            }
+        } finally {
+            traversal.top = stackBase;
+        }
+        return visited;
+    }
+    private int visitIdsAtPoint(float pointX, float pointY, boolean exact, LongConsumer visitor){
+        // Every leaf that holds the point, edges included, the same as Quadtree.visitObjectsAtPoint. That's usually just the one, but once the walk branches
+        //  an object in several of them is only handed over from the one ownsOverlap picks
+        //  Loose nodes overlap though, so for those it's every node whose loose bounds hold the point instead
+        if(this.looseness != 0){return visitLooseIdsAtPoint(pointX, pointY, exact, visitor);}
+        Traversal traversal = this.traversals.get();
+        int stackBase = traversal.top;
+        int visited = 0;
+        boolean shared = false;
+        traversal.push(0);
+        try{
+            while(traversal.top > stackBase){
+                int currentNode = traversal.nodes[--traversal.top];
+                int nodeOffset = getNodeOffset(currentNode);
+                int firstChild = this.file.getInt(nodeOffset + nodeFirstChild);
+                if(firstChild != -1){
+                    int childBase = traversal.top;
+                    for(int i = 0; i < 4; i++){
+                        if(holdsPoint(pointX, pointY, firstChild + i)){traversal.push(firstChild + i);}
+                    }
+                    if(traversal.top - childBase > 1){shared = true;}
+                    continue;
+                }
+                int firstObject = this.file.getInt(nodeOffset + nodeFirstObject), objectCount = this.file.getInt(nodeOffset + nodeObjectCount);
+                for(int i = 0; i < objectCount; i++){
+                    int objectOffset = getObjectOffset(this.file.getInt(this.referencesOffset + ((firstObject + i) << 2)));
+                    float objectPosX = this.file.getFloat(objectOffset + objectPosition), objectPosY = this.file.getFloat(objectOffset + objectPosition + 4);
+                    float objectSizeX = this.file.getFloat(objectOffset + objectSize), objectSizeY = this.file.getFloat(objectOffset + objectSize + 4);
+                    if(exact && ((Math.abs(objectPosX - pointX) > objectSizeX/2) || (Math.abs(objectPosY - pointY) > objectSizeY/2))){continue;}
+                    if(shared && !ownsOverlap(currentNode, true, pointX, pointY, 0, 0, objectPosX, objectPosY, objectSizeX, objectSizeY)){continue;}
+                    visitor.accept(this.file.getLong(objectOffset + objectId));
+                    visited++;
+                }
+            }
+        } finally {
+            traversal.top = stackBase;
+        }
+        return visited;
+    }
+    private int visitLooseIdsAtPoint(float pointX, float pointY, boolean exact, LongConsumer visitor){
+        Traversal traversal = this.traversals.get();
+        int stackBase = traversal.top;
+        int visited = 0;
+        traversal.push(0);
+        try{
+            while(traversal.top > stackBase){
+                int nodeOffset = getNodeOffset(traversal.nodes[--traversal.top]);
+                int firstObject = this.file.getInt(nodeOffset + nodeFirstObject), objectCount = this.file.getInt(nodeOffset + nodeObjectCount);
+                for(int i = 0; i < objectCount; i++){
+                    int objectOffset = getObjectOffset(this.file.getInt(this.referencesOffset + ((firstObject + i) << 2)));
+                    if(exact){
+                        if(Math.abs(this.file.getFloat(objectOffset + objectPosition) - pointX) > this.file.getFloat(objectOffset + objectSize)/2){continue;}
+                        if(Math.abs(this.file.getFloat(objectOffset + objectPosition + 4) - pointY) > this.file.getFloat(objectOffset + objectSize + 4)/2){continue;}
+                    }
+                    visitor.accept(this.file.getLong(objectOffset + objectId));
+                    visited++;
+                }
+                int firstChild = this.file.getInt(nodeOffset + nodeFirstChild);
+                if(firstChild == -1){continue;}
+                for(int i = 0; i < 4; i++){
+                    if(intersectsNode(pointX, pointY, 0, 0, firstChild + i)){traversal.push(firstChild + i);}
+                }
+            }
+        } finally {
+            traversal.top = stackBase;
+        }
+        return visited;
+    }
+    // Instance vars
+    private final ByteBuffer file; // Only ever read with absolute gets, which is what makes it safe to share between threads
+    private final int nodeCount, objectCount, depth;
+    private final float looseness; // 0 unless the file was saved from a loose tree, see Quadtree(Vector2, Vector2, float)
+    private final int nodesOffset, objectsOffset, referencesOffset;
+    private final float rootMinX, rootMinY, rootMaxX, rootMaxY;
+    private final ThreadLocal<Traversal> traversals = ThreadLocal.withInitial(() -> new Traversal());
+    // Accessors
+    public Vector2 getSize(){return new Vector2(this.rootMaxX - this.rootMinX, this.rootMaxY - this.rootMinY);}
+    public Vector2 getPosition(){return new Vector2(this.file.getFloat(getNodeOffset(0) + nodePosition), this.file.getFloat(getNodeOffset(0) + nodePosition + 4));}
+    public int getNodeCount(){return this.nodeCount;}
+    public int getObjectCount(){return this.objectCount;}
+    public int getDepth(){return this.depth;}
+    public float getLooseness(){return this.looseness;}
+    // Instance methods
+    /**
+     * Hands the id of every object in the node closest to the point to the visitor, see {@link Quadtree#getObjectsAtPoint(Vector2)}
+     * @param pointX
+     * @param pointY
+     * @param visitor
+     * @return the number of ids visited
+     */
+    public int forEachIdAtPoint(float pointX, float pointY, LongConsumer visitor){
+        return visitIdsAtPoint(pointX, pointY, false, visitor);
+    }
+    /**
+     * Hands the id of every object in the nodes that overlap with the area to the visitor, see {@link Quadtree#getObjectsInArea(Vector2, Vector2)}
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @param visitor
+     * @return the number of ids visited
+     */
+    public int forEachIdInArea(float posX, float posY, float sizeX, float sizeY, LongConsumer visitor){
+        return visitIdsInArea(posX, posY, sizeX, sizeY, false, visitor);
+    }
+    /**
+     * Hands the id of every object whose bounds overlap with the area to the visitor exactly once, see {@link Quadtree#getObjectsIntersectingArea(Vector2, Vector2)}
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @param visitor
+     * @return the number of ids visited
+     */
+    public int forEachIdIntersectingArea(float posX, float posY, float sizeX, float sizeY, LongConsumer visitor){
+        return visitIdsInArea(posX, posY, sizeX, sizeY, true, visitor);
+    }
+    /**
+     * Hands the id of every object whose bounds contain the point to the visitor, see {@link Quadtree#getObjectsContainingPoint(Vector2)}
+     * @param pointX
+     * @param pointY
+     * @param visitor
+     * @return the number of ids visited
+     */
+    public int forEachIdContainingPoint(float pointX, float pointY, LongConsumer visitor){
+        return visitIdsAtPoint(pointX, pointY, true, visitor);
+    }
+
+    // Constructors
+    /**
+     * Maps the given file for reading; the file shouldn't be written to while it's mapped
+     * @param file
+     * @throws IOException if the file isn't a quadtree that this version can read, or is too big to map in one go
+     */
+    public MappedQuadtree(Path file) throws IOException{
+        this(mapFile(file));
+    }
+    /**
+     * Reads a quadtree out of a buffer that holds a whole file written by {@link Quadtree#save}, without copying it
+     * @param file
+     * @throws IOException if the buffer doesn't hold a quadtree that this version can read
+     */
+    public MappedQuadtree(ByteBuffer file) throws IOException{
+        super();
+        // Our own view of the buffer so that the caller's position and byte order are left alone
+        this.file = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.file.position(0);
+        if(this.file.capacity() < Quadtree.fileHeaderSize || this.file.getInt(0) != Quadtree.fileMagic){throw new IOException("Not a quadtree file");}
+        int version = this.file.getInt(4);
+        if(version != Quadtree.fileVersion){throw new IOException("Can't read version " + String.valueOf(version) + " quadtree files");}
+        float rootPosX = this.file.getFloat(8), rootPosY = this.file.getFloat(12), rootSizeX = this.file.getFloat(16), rootSizeY = this.file.getFloat(20);
+        this.rootMinX = rootPosX - rootSizeX/2; this.rootMinY = rootPosY - rootSizeY/2;
+        this.rootMaxX = rootPosX + rootSizeX/2; this.rootMaxY = rootPosY + rootSizeY/2;
+        this.depth = this.file.getInt(44);
+        this.looseness = this.file.getFloat(60);
+        if(!(this.looseness == 0 || this.looseness >= 1) || Float.isInfinite(this.looseness)){throw new IOException("Quadtree file has invalid settings");}
+        this.nodeCount = this.file.getInt(48); this.objectCount = this.file.getInt(52);
+        int referenceCount = this.file.getInt(56);
+        if(this.nodeCount < 1 || this.objectCount < 0 || referenceCount < 0){throw new IOException("Quadtree file has invalid counts");}
+        // Work the sections out in longs so that a file claiming to be huge doesn't overflow into looking fine
+        long objectsOffset = Quadtree.fileHeaderSize + (long) this.nodeCount * Quadtree.fileNodeSize;
+        long referencesOffset = objectsOffset + (long) this.objectCount * Quadtree.fileObjectSize;
+        if(referencesOffset + ((long) referenceCount << 2) != this.file.capacity()){throw new IOException("Quadtree file is the wrong size for what it holds");}
+        this.nodesOffset = Quadtree.fileHeaderSize; this.objectsOffset = (int) objectsOffset; this.referencesOffset = (int) referencesOffset;
+    }
+    private static ByteBuffer mapFile(Path file) throws IOException{
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            // A buffer is indexed with an int so that's as big as a single mapping can go; the mapping sticks around after the channel closes
+            if(channel.size() > Integer.MAX_VALUE){throw new IOException("Quadtree file is too big to map");}
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+    // Inner class
+    private static class Traversal{
+        // Each thread's stack of node indices, see Quadtree.Traversal
+        private int[] nodes = new int[32];
+        private int top;
+        private void push(int node){
+            if(this.top == this.nodes.length){this.nodes = Arrays.copyOf(this.nodes, this.nodes.length << 1);}
+            this.nodes[this.top] = node;
+            this.top++;
+        }
+    }
+}
@@ -0,0 +1,3043 @@
+package WizardTD.gameEnv;
+// Imports
+import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.PriorityQueue;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.io.IOException;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.lang.System;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+
+// Static imports
+import java.lang.Math;
+
+// Error imports
+import java.lang.IllegalArgumentException;
+import java.lang.IllegalStateException;
+
+/**
+ * Datastructure that facilitates spatial partioning by recursively subdividing areas into quarters
+ */
+public class Quadtree<Obj> implements SpatialIndex<Obj>{
+    // Config vars
+    private Vector2 defaultMinimumLeafSize = new Vector2(4,4); // The minimum size of the leaves; takes priority over other criteria for division
+    private int defaultMaximumDepth = 5;
+    private int defaultMaxChilds = 2;
+    private int defaultCollapseThreshold = 1; // Kept below maxChilds so that a freshly merged leaf doesn't immediately split again
+    private int batchGranularity = 32; // How many queries of a batch a worker runs itself before it stops splitting the batch up
+    private static final Leaf[] leaves = Leaf.values(); // values() hands back a new array every call
+    private static final int mortonLevels = 31; // Morton codes are always this many layers deep so that the codes of nodes at different depths line up
+    // The layout of the files written by save, which MappedQuadtree reads too. Everything is little endian
+    //  A header, then every node breadth first (so each node's 4 children sit together), then every object once, then the index of each object in each node, node by node
+    static final int fileMagic = 0x45525451; // "QTRE"
+    static final int fileVersion = 1;
+    static final int fileHeaderSize = 64;
+    static final int fileNodeSize = 40; // Position and size, geohash, depth, first child (or -1 for leaves), first object index and object count
+    static final int fileObjectSize = 24; // Id, then position and size
+    private static final int fileBufferSize = 1 << 16;
+    private static final int loadHalfLife = 1 << 16; // How many queries and updates it takes for the load a node saw to count for half as much, see recordLoad
+    private static final double loadDecayRate = -Math.log(2) / loadHalfLife;
+    // Static methods
+    /**
+     * Computes the geohash given the node's depth, the parent's node and the quadrant it in
+     * <p> each geohash digit is 2 bits and each successive depth appends that geohash digit onto the parents' so if a parent has a geohash of 3 (11), the next node would be something like 0111 (7) etc
+     * @param parentGeohash
+     * @param quadrant
+     * @param Depth
+     * @return
+     */
+    public static long computeGeohash(long parentGeohash, Leaf quadrant, int Depth){
+        long returnValue = parentGeohash;
+        long geohashPrefix = getGeohashDigit(quadrant); // If only I could use a 2 bit number
+        // Bitshift our prefix by Depth and put it on top of the parent's digits
+        //  It has to be a long before the shift, otherwise anything past 16 layers falls off the end of the int
+        returnValue |= geohashPrefix << ((Depth-1) << 1); //Normally we'd do depth * 2 since each geohash is 2 bits each but turns out we can also bitshift that too
+        return returnValue;
+    }
+    /**
+     * Converts the geohash of a node to the Morton code of its south east (bottom right) corner
+     * <p> Morton codes have the same digits as the geohash but with the first layer's digit at the top, padded out to 31 layers, so sorting nodes by them keeps neighbouring cells together.
+     * The padding is all SE digits (00), which is why the code lands on the node's bottom right corner. The node covers every code from this one up to but not including this plus 4^(31 - depth)
+     * <p> Since SE is 0, SW 1, NE 2 and NW 3, each cell is gone through SE, SW, NE then NW; that's a Z-order curve mirrored left to right, starting from the bottom right rather than the bottom left
+     * @param geohash
+     * @param depth how many digits the geohash has, 0 being the root
+     * @return
+     */
+    public static long computeMortonCode(long geohash, int depth){
+        long returnValue = 0;
+        for(int level = 0; level < depth; level++){
+            returnValue = (returnValue << 2) | ((geohash >>> (level << 1)) & 3);
+        }
+        return returnValue << ((mortonLevels - depth) << 1);
+    }
+    private static void fillBuffer(ReadableByteChannel channel, ByteBuffer buffer, int bytes) throws IOException{
+        // Makes sure there's at least the given number of bytes left to read in the buffer, reading more from the channel if there isn't
+        if(buffer.remaining() >= bytes){return;}
+        buffer.compact();
+        while(buffer.position() < bytes){
+            if(channel.read(buffer) < 0){throw new EOFException("Quadtree file ended early");}
+        }
+        buffer.flip();
+    }
+    private static void drainBuffer(WritableByteChannel channel, ByteBuffer buffer, int bytes) throws IOException{
+        // Makes sure there's room for the given number of bytes in the buffer, writing what's already in it out to the channel if there isn't
+        if(buffer.remaining() >= bytes){return;}
+        buffer.flip();
+        while(buffer.hasRemaining()){channel.write(buffer);}
+        buffer.clear();
+    }
+    private static float getLoadDecay(int elapsed){
+        // How much a load recorded this many records ago still counts for
+        return (float) Math.exp(elapsed * loadDecayRate);
+    }
+    static float getRayMagnitude(float directionX, float directionY, float maxDistance){
+        // Checks a ray's direction and distance, and gives the length to divide the direction by so that distances along it are in the tree's units
+        if(!(maxDistance >= 0)){throw new IllegalArgumentException("Ray length of " + String.valueOf(maxDistance) + " can't be negative");}
+        float returnValue = (float) Math.sqrt(directionX*directionX + directionY*directionY);
+        if(!(returnValue > 0) || Float.isInfinite(returnValue)){throw new IllegalArgumentException("Ray direction of (" + String.valueOf(directionX) + ", " + String.valueOf(directionY) + ") has no length");}
+        return returnValue;
+    }
+    private static float getLoadShare(float load, float totalLoad){return totalLoad > 0 ? Math.min(load / totalLoad, 1) : 0;}
+    private static void checkGeohashDepth(int depth){
+        if(depth < 0 || depth > 31){throw new IllegalArgumentException("Depth of " + String.valueOf(depth) + " is outside of [0, 31]");}
+    }
+    private static long getNodeKey(long geohash, int depth){
+        // Geohashes of different depths can be the same number (SE is 00 at every layer), so a bit just above the digits marks how many there are
+        return geohash | (1L << (depth << 1));
+    }
+    private static int getGeohashDigit(Leaf quadrant){
+        // The 2 bit geohash digit for each quadrant
+        switch(quadrant){
+            case NE: return 2; // 10
+            case NW: return 3; // 11
+            case SE: return 0; // 00
+            default: return 1; // SW, 01
+        }
+    }
+    private static Leaf getLeafQuadrant(float nodePosX, float nodePosY,float pointX, float pointY){    // And an overload where we just plug raw numbers in
+            float dirX, dirY;
+            dirX = pointX - nodePosX;
+            dirY = pointY - nodePosY;
+            // We've seen this pattern already
+            if(dirX >= 0 && dirY >= 0){
+                return Leaf.NE;
+            }else if(dirX < 0 && dirY >= 0){
+                return Leaf.NW;
+            }else if(dirX >= 0 && dirY < 0){
+                return Leaf.SE;
+            } else {
+                return Leaf.SW;
+            }
+    }
+    // Enum declaration
+    protected enum Leaf{NE, NW, SE, SW}
+    // Helper methods
+    private QuadtreeNode getNodeFromGeohash(long geohash, int depth){
+        // Looks the node up straight from the index, without walking down the tree, and gives null if the tree isn't divided that far there
+        checkGeohashDepth(depth);
+        if((geohash >>> (depth << 1)) != 0){throw new IllegalArgumentException("Given geohash of "+ String.valueOf(geohash) + " has more than " + String.valueOf(depth) + " digits");}
+        return this.nodeIndex.get(getNodeKey(geohash, depth));
+    }
+    private QuadtreeNode getFirstNode(Vector2 objectSize, Vector2 objectPosition){
+        return getFirstNode(objectPosition.getX(), objectPosition.getY(), objectSize.getX(), objectSize.getY());
+    }
+    private QuadtreeNode getFirstNode(float posX, float posY, float sizeX, float sizeY){
+        // returns the first node that's either a leaf or can't fit the (implied) object with the given size at the given position
+        // ObjectSize is a square centered on ObjectPosition. So the corners of the bounds can be derived by doing Position +- Size/2
+        //  There's only ever one child to carry on with so we just walk down instead of keeping a stack around
+        QuadtreeNode currentNode = this.root;
+        while(currentNode != null){
+            if(currentNode.isLeaf()){return currentNode;}
+            // Based on the direction vector between the position and the node's position, target a specific leaf
+            Vector2 currentNodePos = currentNode.getPosition();
+            QuadtreeNode childNode = currentNode.getNodeFromEnum(getLeafQuadrant(currentNodePos.getX(), currentNodePos.getY(), posX, posY));
+            // if the childNode is smaller than the size of the object then we stop since we've found the smallest node that can fit the object with the size at the position
+            Vector2 childSize = childNode.getSize();
+            if(sizeX > childSize.getX() || sizeY > childSize.getY()){return currentNode;}
+            // And if the object with the given size at the given position pokes out of the child then it overlaps with other nodes too
+            if(!childNode.containsBounds(posX, posY, sizeX, sizeY)){return currentNode;}
+            // If its not either of those two then carry on with the childNode
+            currentNode = childNode;
+        }
+        return null;
+    }
+    private static boolean overlapsAlong(float nodePos, float nodeSize, float pos, float size){
+        // Whether something overlaps with a node along one axis. Touching edges don't count, except that something with no width sitting right on the node's lower edge is in the node
+        //  That's the same way getLeafQuadrant sends ties to the NE, and it means something with no width on a split line still ends up in, and gets found in, the leaves on one side of it
+        float dir = nodePos - pos;
+        return Math.abs(dir) < (nodeSize + size)/2 || (size == 0 && dir == nodeSize/2);
+    }
+    private boolean intersectsWith(Vector2 size, Vector2 position, QuadtreeNode node){
+        // Returns true if the item with the given size and position intersect with the given node
+        return intersectsWith(position.getX(), position.getY(), size.getX(), size.getY(), node);
+    }
+    private boolean intersectsWith(float posX, float posY, float sizeX, float sizeY, QuadtreeNode node){
+        // Same check as above but with raw numbers so that the query path doesn't need to allocate any Vector2s
+        Vector2 nodePos, nodeSize; nodePos = node.getPosition(); nodeSize = node.getSize();
+        return overlapsAlong(nodePos.getX(), nodeSize.getX(), posX, sizeX) && overlapsAlong(nodePos.getY(), nodeSize.getY(), posY, sizeY);
+    }
+    private boolean holdsPoint(float pointX, float pointY, QuadtreeNode node){
+        // Edges count, since an object reaching right up to a split line from one side is only in the leaves on that side
+        Vector2 nodePos = node.getPosition(), nodeSize = node.getSize();
+        return (Math.abs(nodePos.getX() - pointX) <= nodeSize.getX()/2) && (Math.abs(nodePos.getY() - pointY) <= nodeSize.getY()/2);
+    }
+    private boolean ownsOverlap(QuadtreeNode root, QuadtreeNode leaf, float posX, float posY, float sizeX, float sizeY, float otherX, float otherY, float otherSizeX, float otherSizeY){
+        // Whether leaf is the one leaf that gets to hand over an overlap between an object and an area (or another object) that both reach into it, for the walks that can't use stamps
+        //  We walk down from the root taking the first child that both of them overlap, going by the same check insertContainer and the queries use, so the leaf we end up in always has
+        //  the object and always got visited. Working out a corner and checking which cell it's in instead goes wrong when the sums round to either side of a split line
+        QuadtreeNode currentNode = root;
+        while(!currentNode.isLeaf()){
+            if(intersectsWith(posX, posY, sizeX, sizeY, currentNode.NE) && intersectsWith(otherX, otherY, otherSizeX, otherSizeY, currentNode.NE)){currentNode = currentNode.NE;}
+            else if(intersectsWith(posX, posY, sizeX, sizeY, currentNode.NW) && intersectsWith(otherX, otherY, otherSizeX, otherSizeY, currentNode.NW)){currentNode = currentNode.NW;}
+            else if(intersectsWith(posX, posY, sizeX, sizeY, currentNode.SE) && intersectsWith(otherX, otherY, otherSizeX, otherSizeY, currentNode.SE)){currentNode = currentNode.SE;}
+            else if(intersectsWith(posX, posY, sizeX, sizeY, currentNode.SW) && intersectsWith(otherX, otherY, otherSizeX, otherSizeY, currentNode.SW)){currentNode = currentNode.SW;}
+            else {return false;}
+        }
+        return currentNode == leaf;
+    }
+    private boolean ownsPoint(QuadtreeNode root, QuadtreeNode leaf, float pointX, float pointY, float posX, float posY, float sizeX, float sizeY){
+        // Same as ownsOverlap for a point that sits on the edge of several leaves, taking the first child that holds the point and that the object is in
+        QuadtreeNode currentNode = root;
+        while(!currentNode.isLeaf()){
+            if(holdsPoint(pointX, pointY, currentNode.NE) && intersectsWith(posX, posY, sizeX, sizeY, currentNode.NE)){currentNode = currentNode.NE;}
+            else if(holdsPoint(pointX, pointY, currentNode.NW) && intersectsWith(posX, posY, sizeX, sizeY, currentNode.NW)){currentNode = currentNode.NW;}
+            else if(holdsPoint(pointX, pointY, currentNode.SE) && intersectsWith(posX, posY, sizeX, sizeY, currentNode.SE)){currentNode = currentNode.SE;}
+            else if(holdsPoint(pointX, pointY, currentNode.SW) && intersectsWith(posX, posY, sizeX, sizeY, currentNode.SW)){currentNode = currentNode.SW;}
+            else {return false;}
+        }
+        return currentNode == leaf;
+    }
+    private boolean overlapsNode(float posX, float posY, float sizeX, float sizeY, QuadtreeNode node){
+        // Whether a query for the area has to look inside the node; for loose trees that's whenever the area overlaps with the node's loose bounds
+        //  Touching edges count for loose nodes since the objects in them can reach right up to the edge of the loose bounds
+        if(this.looseness == 0){return intersectsWith(posX, posY, sizeX, sizeY, node);}
+        Vector2 nodePos = node.getPosition(), nodeSize = node.getSize();
+        if((Math.abs(nodePos.getX() - posX) > ((nodeSize.getX()*this.looseness + sizeX)/2)) || (Math.abs(nodePos.getY() - posY) > ((nodeSize.getY()*this.looseness + sizeY)/2))){return false;}
+        return true;
+    }
+    private boolean looseBoundsOverlap(QuadtreeNode first, QuadtreeNode second){
+        // Whether anything in the one node could overlap with anything in the other, going by their loose bounds
+        Vector2 firstPos = first.getPosition(), firstSize = first.getSize(), secondPos = second.getPosition(), secondSize = second.getSize();
+        if((Math.abs(firstPos.getX() - secondPos.getX()) > ((firstSize.getX() + secondSize.getX())*this.looseness/2)) || (Math.abs(firstPos.getY() - secondPos.getY()) > ((firstSize.getY() + secondSize.getY())*this.looseness/2))){return false;}
+        return true;
+    }
+    private boolean canDivide(QuadtreeNode node){
+        // If dividing the node means its leaves become smaller than the minimumSize or go past the maximum depth, we don't
+        return (node.getSize().getX()/2 > this.minimumLeafSize.getX()) && (node.getSize().getY()/2 > this.minimumLeafSize.getY()) && (node.getDepth() < this.maximumDepth);
+    }
+    private int getCapacity(QuadtreeNode node){
+        // How many objects the leaf can hold before it gets divided
+        SplitPolicy policy = this.splitPolicy;
+        if(policy == null){return this.maxChilds;}
+        int now = this.loadClock;
+        node.decayLoad(now);
+        float decay = getLoadDecay(now - this.loadTick);
+        return policy.getCapacity(node.getGeohash(), node.getDepth(), getLoadShare(node.queryLoad, this.queryLoad * decay), getLoadShare(node.updateLoad, this.updateLoad * decay));
+    }
+    private int peekCapacity(QuadtreeNode node){
+        // Same as getCapacity but works out the faded load without writing it back, so that just looking at the tree doesn't change it
+        SplitPolicy policy = this.splitPolicy;
+        if(policy == null){return this.maxChilds;}
+        int now = this.loadClock;
+        float nodeDecay = getLoadDecay(now - node.loadTick), decay = getLoadDecay(now - this.loadTick);
+        return policy.getCapacity(node.getGeohash(), node.getDepth(), getLoadShare(node.queryLoad * nodeDecay, this.queryLoad * decay), getLoadShare(node.updateLoad * nodeDecay, this.updateLoad * decay));
+    }
+    private int getCollapseThreshold(QuadtreeNode targetNode){
+        // How many objects the targetNode's children can hold between them for them to be merged back into it
+        SplitPolicy policy = this.splitPolicy;
+        if(policy == null){return this.collapseThreshold;}
+        // The merged node would take on everything its children have seen
+        int now = this.loadClock;
+        targetNode.decayLoad(now); targetNode.NE.decayLoad(now); targetNode.NW.decayLoad(now); targetNode.SE.decayLoad(now); targetNode.SW.decayLoad(now);
+        float queryLoad = targetNode.queryLoad + targetNode.NE.queryLoad + targetNode.NW.queryLoad + targetNode.SE.queryLoad + targetNode.SW.queryLoad;
+        float updateLoad = targetNode.updateLoad + targetNode.NE.updateLoad + targetNode.NW.updateLoad + targetNode.SE.updateLoad + targetNode.SW.updateLoad;
+        float decay = getLoadDecay(now - this.loadTick);
+        return policy.getCollapseThreshold(targetNode.getGeohash(), targetNode.getDepth(), getLoadShare(queryLoad, this.queryLoad * decay), getLoadShare(updateLoad, this.updateLoad * decay));
+    }
+    private void recordLoad(QuadtreeNode node, float queries, float updates){
+        // Counts queries or updates against the node and the tree as a whole; only called while there's a split policy
+        //  Every record ticks the clock over, and everything recorded before then fades out with the number of ticks since
+        //  This writes to the node, so only the thread that owns the tree may come through here; the traversals handed to readers on other threads don't track load
+        int now = ++this.loadClock;
+        node.decayLoad(now);
+        node.queryLoad += queries; node.updateLoad += updates;
+        float decay = getLoadDecay(now - this.loadTick);
+        this.queryLoad = this.queryLoad * decay + queries; this.updateLoad = this.updateLoad * decay + updates;
+        this.loadTick = now;
+    }
+    private void recordUpdate(QuadtreeObjectContainer<Obj> container){
+        // An object that straddles leaves costs each of them when it changes, so each one gets the update
+        ArrayList<QuadtreeNode> containerNodes = container.getQuadtreeNodes();
+        for(int i = 0; i < containerNodes.size(); i++){recordLoad(containerNodes.get(i), 0, 1);}
+    }
+    private QuadtreeNode getLooseNode(QuadtreeNode startNode, float posX, float posY, float sizeX, float sizeY){
+        // Walks down from the startNode towards the object's centre for as long as the next node's loose bounds can still fit the object, see Quadtree(Vector2, Vector2, float)
+        QuadtreeNode currentNode = startNode;
+        while(!currentNode.isLeaf()){
+            Vector2 currentNodePos = currentNode.getPosition();
+            QuadtreeNode childNode = currentNode.getNodeFromEnum(getLeafQuadrant(currentNodePos.getX(), currentNodePos.getY(), posX, posY));
+            if(!childNode.fits(posX, posY, sizeX, sizeY)){break;}
+            currentNode = childNode;
+        }
+        return currentNode;
+    }
+    private QuadtreeNode getNodeAtPosition(Vector2 objectPosition){
+        return getNodeAtPosition(objectPosition.getX(), objectPosition.getY());
+    }
+    private QuadtreeNode getNodeAtPosition(float pointX, float pointY){
+        // We do the same thing as most implementations where we just grab the direction vector
+        //  There's only ever one child to descend into so we don't need a stack for this one
+        QuadtreeNode currentNode = this.root;
+        while(currentNode != null){
+            // If the currentNode is a leaf then return that since we've traversed the entire tree to the closest leaf to the point
+            if(currentNode.isLeaf()){return currentNode;}
+            Vector2 currentNodePos = currentNode.getPosition();
+            Leaf selectedQuadrant = getLeafQuadrant(currentNodePos.getX(), currentNodePos.getY(), pointX, pointY);
+            currentNode = currentNode.getNodeFromEnum(selectedQuadrant);
+        }
+        return null;
+    }
+    private void moveObjectsToLeaves(QuadtreeNode targetNode){
+        // Since we've specified that removing takes place at the top level since we have to remove objects from multiple nodes, this is where we shuffle objects down
+        // So for every object in the targetNode's objects list
+        ArrayList<QuadtreeObjectContainer<Obj>> nodeObjects = targetNode.getObjects();
+        for(int i =0; i<nodeObjects.size();i++){
+            QuadtreeObjectContainer<Obj> currentContainer = nodeObjects.get(i);
+            // Remove the reference to this node from the container's object 
+            ArrayList<QuadtreeNode> containerNodes = currentContainer.getQuadtreeNodes();
+            for(int l = 0; l < containerNodes.size(); l++){
+                if(containerNodes.get(l) == targetNode){
+                    containerNodes.remove(l);
+                    break;
+                }
+            }            
+            //Since this is mainly for nodes that have been split, we can assume that each subnode is a leaf
+		    //  So we start with the direction vector from the child to the Node.Position
+		    //  And check which quadrant its closer to
+            float posX = currentContainer.getPositionX(), posY = currentContainer.getPositionY(), sizeX = currentContainer.getSizeX(), sizeY = currentContainer.getSizeY();
+            QuadtreeNode NELeaf = targetNode.getNodeFromEnum(Leaf.NE); if(intersectsWith(posX, posY, sizeX, sizeY, NELeaf)){
+                NELeaf.addObject(currentContainer);
+            }
+            QuadtreeNode NWLeaf = targetNode.getNodeFromEnum(Leaf.NW); if(intersectsWith(posX, posY, sizeX, sizeY, NWLeaf)){
+                NWLeaf.addObject(currentContainer);
+            }
+            QuadtreeNode SELeaf = targetNode.getNodeFromEnum(Leaf.SE); if(intersectsWith(posX, posY, sizeX, sizeY, SELeaf)){
+                SELeaf.addObject(currentContainer);
+            }
+            QuadtreeNode SWLeaf = targetNode.getNodeFromEnum(Leaf.SW); if(intersectsWith(posX, posY, sizeX, sizeY, SWLeaf)){
+                SWLeaf.addObject(currentContainer);
+            }
+        
+        }
+        // Every container has been shuffled down so the node itself shouldn't hold onto them anymore
+        nodeObjects.clear();
+    }
+    private void moveObjectsToLooseChildren(QuadtreeNode targetNode){
+        // moveObjectsToLeaves for loose trees; each object moves into the child its centre is in if that child can fit it, and stays put otherwise
+        ArrayList<QuadtreeObjectContainer<Obj>> nodeObjects = targetNode.getObjects();
+        Vector2 targetNodePos = targetNode.getPosition();
+        int keptCount = 0;
+        for(int i = 0; i < nodeObjects.size(); i++){
+            QuadtreeObjectContainer<Obj> currentContainer = nodeObjects.get(i);
+            float posX = currentContainer.getPositionX(), posY = currentContainer.getPositionY(), sizeX = currentContainer.getSizeX(), sizeY = currentContainer.getSizeY();
+            QuadtreeNode childNode = targetNode.getNodeFromEnum(getLeafQuadrant(targetNodePos.getX(), targetNodePos.getY(), posX, posY));
+            if(!childNode.fits(posX, posY, sizeX, sizeY)){
+                // Shift the ones that stay towards the front so that we only have to trim the end off once we're done
+                nodeObjects.set(keptCount++, currentContainer);
+                continue;
+            }
+            // The container's only ever in one node so it's always the first one
+            currentContainer.getQuadtreeNodes().clear();
+            childNode.addObject(currentContainer);
+        }
+        nodeObjects.subList(keptCount, nodeObjects.size()).clear();
+    }
+    private int unlinkContainer(QuadtreeObjectContainer<Obj> object){
+        // Removes the container from every node it sits in, leaving the container itself untouched
+        //  The nodes it was removed from are kept in unlinkedNodes so that the caller can try collapsing them afterwards; returns how many there were
+        ArrayList<QuadtreeNode> objectNodes = object.getQuadtreeNodes();
+        int unlinkedCount = objectNodes.size();
+        if(unlinkedCount > this.unlinkedNodes.length){this.unlinkedNodes = newNodeArray(Math.max(unlinkedCount, this.unlinkedNodes.length << 1));}
+        for(int i = objectNodes.size() - 1; i >= 0; i--){
+            // Start from the other way around
+            QuadtreeNode currentNode = writable(objectNodes.get(i));
+            this.unlinkedNodes[i] = currentNode;
+            // Remove the reference in each node stored in the container's nodes array
+            ArrayList<QuadtreeObjectContainer<Obj>> objectsInNode = currentNode.getObjects();
+            for(int l = 0; l < objectsInNode.size(); l++){
+                if(objectsInNode.get(l) == object){
+                    objectsInNode.remove(l);
+                    break;
+                }
+            }
+            // Then remove it from the objectNodes array
+            objectNodes.remove(i);
+        }
+        // Containers outside of the tree get missed when nextQueryStamp wipes the stamps, so wipe this one now in case it's put back after the counter wraps
+        object.queryStamp = 0;
+        return unlinkedCount;
+    }
+    private void collapseUnlinkedNodes(int unlinkedCount){
+        // Tries to collapse the parent of every node that a container was just unlinked from
+        //  In loose trees the node can be one that's been divided, in which case it's the node itself that might be able to collapse
+        for(int i = 0; i < unlinkedCount; i++){
+            QuadtreeNode unlinkedNode = this.unlinkedNodes[i];
+            collapseNode(unlinkedNode.isLeaf() ? unlinkedNode.getParent() : unlinkedNode);
+            this.unlinkedNodes[i] = null;
+        }
+    }
+    private void collapseNode(QuadtreeNode targetNode){
+        // Merges the children of the targetNode back into it if they're all leaves and hold few enough objects between them, then does the same for its parent
+        //  The root always stays divided so that the first layer of geohashes sticks around
+        while(targetNode != null && targetNode != this.root){
+            if(targetNode.isLeaf()){return;}
+            QuadtreeNode NELeaf = targetNode.getNodeFromEnum(Leaf.NE), NWLeaf = targetNode.getNodeFromEnum(Leaf.NW), SELeaf = targetNode.getNodeFromEnum(Leaf.SE), SWLeaf = targetNode.getNodeFromEnum(Leaf.SW);
+            if(!(NELeaf.isLeaf() && NWLeaf.isLeaf() && SELeaf.isLeaf() && SWLeaf.isLeaf())){return;}
+            // Objects that straddle the children are in more than one of them so we count them with a stamp instead of just adding the list sizes up
+            //  Only loose trees keep objects in nodes that have children, but those end up in the merged leaf as well
+            int threshold = getCollapseThreshold(targetNode);
+            int stamp = nextQueryStamp();
+            int population = countUnstamped(NELeaf, stamp, targetNode.getObjects().size(), threshold);
+            population = countUnstamped(NWLeaf, stamp, population, threshold);
+            population = countUnstamped(SELeaf, stamp, population, threshold);
+            population = countUnstamped(SWLeaf, stamp, population, threshold);
+            if(population > threshold){return;}
+            // Pull the objects back up into the targetNode and drop the children
+            targetNode = writable(targetNode);
+            stamp = nextQueryStamp();
+            moveObjectsToParent(NELeaf, targetNode, stamp);
+            moveObjectsToParent(NWLeaf, targetNode, stamp);
+            moveObjectsToParent(SELeaf, targetNode, stamp);
+            moveObjectsToParent(SWLeaf, targetNode, stamp);
+            targetNode.collapseNode();
+            if(this.metrics != null){this.metrics.recordMerge();}
+            // The parent might now be sparse enough to collapse as well
+            targetNode = targetNode.getParent();
+        }
+    }
+    private int countUnstamped(QuadtreeNode node, int stamp, int population, int threshold){
+        ArrayList<QuadtreeObjectContainer<Obj>> objects = node.getObjects();
+        for(int i = 0; i < objects.size() && population <= threshold; i++){
+            QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+            if(currentContainer.queryStamp == stamp){continue;}
+            currentContainer.queryStamp = stamp;
+            population++;
+        }
+        return population;
+    }
+    private void moveObjectsToParent(QuadtreeNode childNode, QuadtreeNode parentNode, int stamp){
+        // The reverse of moveObjectsToLeaves; the stamp makes sure objects that were in several children only go into the parent once
+        ArrayList<QuadtreeObjectContainer<Obj>> childObjects = childNode.getObjects();
+        for(int i = 0; i < childObjects.size(); i++){
+            QuadtreeObjectContainer<Obj> currentContainer = childObjects.get(i);
+            ArrayList<QuadtreeNode> containerNodes = currentContainer.getQuadtreeNodes();
+            for(int l = 0; l < containerNodes.size(); l++){
+                if(containerNodes.get(l) == childNode){
+                    containerNodes.remove(l);
+                    break;
+                }
+            }
+            if(currentContainer.queryStamp == stamp){continue;}
+            currentContainer.queryStamp = stamp;
+            parentNode.addObject(currentContainer);
+        }
+        // A snapshot might still be looking at the child, in which case its list has to stay as it was
+        if(!isShared(childNode)){childObjects.clear();}
+    }
+    private QuadtreeNode getCommonAncestor(QuadtreeNode first, QuadtreeNode second){
+        // Bring both nodes up to the same depth then walk them up together until they meet
+        while(first.getDepth() > second.getDepth()){first = first.getParent();}
+        while(second.getDepth() > first.getDepth()){second = second.getParent();}
+        while(first != second){first = first.getParent(); second = second.getParent();}
+        return first;
+    }
+    private boolean isShared(QuadtreeNode node){
+        // True if a live snapshot might be reading the node, which is any node from before the latest snapshot
+        return this.oldestSnapshotEpoch >= 0 && node.epoch != this.epoch;
+    }
+    private QuadtreeNode writable(QuadtreeNode node){
+        // Hands back a version of the node that we're allowed to change, copying it and the path up to the root if a snapshot might still be reading it
+        //  The copy shares its children with the original and only gets its own object list, so a snapshot costs nothing until the nodes it holds are changed
+        //  Whoever pointed at the original has to point at the copy from now on, which is why the parent, children and containers get fixed up here; callers must carry on with the copy too
+        if(!isShared(node)){return node;}
+        QuadtreeNode parent = node.getParent() == null ? null : writable(node.getParent());
+        QuadtreeNode copy = new QuadtreeNode(node, parent);
+        this.nodeIndex.put(getNodeKey(copy.getGeohash(), copy.getDepth()), copy);
+        if(parent == null){this.root = copy;}
+        else if(parent.NE == node){parent.NE = copy;}
+        else if(parent.NW == node){parent.NW = copy;}
+        else if(parent.SE == node){parent.SE = copy;}
+        else {parent.SW = copy;}
+        // Snapshots never walk up the tree so the shared children can be pointed at the copy without them noticing
+        if(!copy.isLeaf()){copy.NE.parent = copy; copy.NW.parent = copy; copy.SE.parent = copy; copy.SW.parent = copy;}
+        ArrayList<QuadtreeObjectContainer<Obj>> objects = copy.getObjects();
+        for(int i = 0; i < objects.size(); i++){
+            ArrayList<QuadtreeNode> containerNodes = objects.get(i).getQuadtreeNodes();
+            for(int l = 0; l < containerNodes.size(); l++){
+                if(containerNodes.get(l) == node){
+                    containerNodes.set(l, copy);
+                    break;
+                }
+            }
+        }
+        return copy;
+    }
+    private void setContainerBounds(QuadtreeObjectContainer<Obj> container, float sizeX, float sizeY, float posX, float posY){
+        // Changes the bounds of a container that snapshots might be reading
+        //  If a live snapshot could have seen the current bounds they get saved off first, and the container's epoch is bumped before the fields change so that a snapshot halfway through reading them can tell
+        if(this.oldestSnapshotEpoch >= 0 && container.epoch != this.epoch){
+            BoundsRecord record = new BoundsRecord(container.epoch, container.positionX, container.positionY, container.sizeX, container.sizeY, container.previous);
+            // Only the newest bounds that the oldest snapshot can see are needed, anything from before that can go
+            for(BoundsRecord currentRecord = record; currentRecord != null; currentRecord = currentRecord.older){
+                if(currentRecord.epoch <= this.oldestSnapshotEpoch){
+                    currentRecord.older = null;
+                    break;
+                }
+            }
+            container.previous = record;
+            container.epoch = this.epoch;
+            VarHandle.storeStoreFence(); // Keep the field writes below from being moved up past the epoch
+        } else if(this.oldestSnapshotEpoch < 0 && container.previous != null){
+            container.previous = null;
+        }
+        container.setBounds(sizeX, sizeY, posX, posY);
+    }
+    private void refreshSnapshots(){
+        // Forgets the snapshots that have been closed or garbage collected, then works out how far back the oldest one left goes
+        if(this.snapshots.isEmpty()){return;}
+        long oldestEpoch = -1;
+        for(int i = this.snapshots.size() - 1; i >= 0; i--){
+            Snapshot snapshot = this.snapshots.get(i).get();
+            if(snapshot == null || snapshot.closed){
+                this.snapshots.remove(i);
+                continue;
+            }
+            if(oldestEpoch < 0 || snapshot.epoch < oldestEpoch){oldestEpoch = snapshot.epoch;}
+        }
+        this.oldestSnapshotEpoch = oldestEpoch;
+    }    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private QuadtreeNode[] newNodeArray(int length){
+        // Java won't let us do new QuadtreeNode[] since the node is an inner class of a generic, so we go through the raw type
+        return (QuadtreeNode[]) new Quadtree.QuadtreeNode[length];
+    }
+    private void pushTraversal(QuadtreeNode node){
+        // Grows the traversal stack if need be; the stack is kept between queries so once it's big enough for the tree we stop allocating
+        if(this.traversalTop == this.traversalStack.length){this.traversalStack = Arrays.copyOf(this.traversalStack, this.traversalStack.length << 1);}
+        this.traversalStack[this.traversalTop++] = node;
+    }
+    private static float distanceToBounds(float pointX, float pointY, float posX, float posY, float sizeX, float sizeY){
+        // The distance between the point and the closest point on the bounds, which is 0 if the point is inside them
+        float dirX = Math.max(Math.abs(pointX - posX) - sizeX/2, 0), dirY = Math.max(Math.abs(pointY - posY) - sizeY/2, 0);
+        return (float) Math.sqrt(dirX*dirX + dirY*dirY);
+    }
+    private static float intersectRay(float originX, float originY, float dirX, float dirY, float maxDistance, float minX, float minY, float maxX, float maxY){
+        // Slab test; how far along the ray (in multiples of the direction) it first touches the box, which is 0 if it starts inside, or -1 if it doesn't get there within maxDistance
+        //  The box's edges count, so a ray that only grazes it still hits
+        float near = 0, far = maxDistance;
+        if(dirX == 0){
+            if(originX < minX || originX > maxX){return -1;}
+        } else {
+            float first = (minX - originX)/dirX, second = (maxX - originX)/dirX;
+            near = Math.max(near, Math.min(first, second)); far = Math.min(far, Math.max(first, second));
+        }
+        if(dirY == 0){
+            if(originY < minY || originY > maxY){return -1;}
+        } else {
+            float first = (minY - originY)/dirY, second = (maxY - originY)/dirY;
+            near = Math.max(near, Math.min(first, second)); far = Math.min(far, Math.max(first, second));
+        }
+        return near <= far ? near : -1;
+    }
+    private float intersectRay(float originX, float originY, float dirX, float dirY, float maxDistance, QuadtreeNode node){
+        // Against the node's loose bounds if the tree is loose, since that's as far as its objects can reach
+        Vector2 nodePos = node.getPosition(), nodeSize = node.getSize();
+        float scale = this.looseness == 0 ? 1 : this.looseness;
+        float halfX = nodeSize.getX()*scale/2, halfY = nodeSize.getY()*scale/2;
+        return intersectRay(originX, originY, dirX, dirY, maxDistance, nodePos.getX() - halfX, nodePos.getY() - halfY, nodePos.getX() + halfX, nodePos.getY() + halfY);
+    }
+    private void enqueueNearestCandidate(PriorityQueue<NearestCandidate> candidates, QuadtreeNode node, float pointX, float pointY, float maxDistance){
+        // Loose nodes are measured by their loose bounds since that's as far as the objects in them can reach
+        Vector2 nodePos = node.getPosition(), nodeSize = node.getSize();
+        float scale = this.looseness == 0 ? 1 : this.looseness;
+        float distance = distanceToBounds(pointX, pointY, nodePos.getX(), nodePos.getY(), nodeSize.getX()*scale, nodeSize.getY()*scale);
+        // Nothing in a node that's further away than the maxDistance can be closer than it
+        if(distance <= maxDistance){candidates.add(new NearestCandidate(distance, node, null));}
+    }
+    int visitNearestObjects(float pointX, float pointY, int k, float maxDistance, boolean shared, Collection<? super Obj> sink){
+        return visitNearestObjects(this.root, -1, pointX, pointY, k, maxDistance, shared, sink);
+    }
+    int visitNearestObjects(QuadtreeNode root, long epoch, float pointX, float pointY, int k, float maxDistance, boolean shared, Collection<? super Obj> sink){
+        // Best first search; nodes and objects share one queue ordered by their distance to the point
+        //  Since a node is never further away than anything inside of it, by the time an object comes off the queue nothing left can be closer to the point
+        //  so the first k objects we pop are the k nearest and we can stop there without ever looking at the rest of the tree
+        //  If the tree is shared between threads we can't stamp the containers, so straddling objects get queued once per leaf and the duplicates are skipped as they come off the queue instead
+        //  and nothing gets counted towards the split policy's load either, since that's a write to the nodes
+        if(k < 1){throw new IllegalArgumentException("Can't look for " + String.valueOf(k) + " nearest objects");}
+        QuadtreeMetrics metrics = this.metrics;
+        long startTime = metrics != null ? System.nanoTime() : 0;
+        PriorityQueue<NearestCandidate> candidates = new PriorityQueue<NearestCandidate>();
+        int stamp = shared ? 0 : nextQueryStamp(); // Objects that straddle leaves only get queued once
+        ArrayList<QuadtreeObjectContainer<Obj>> foundContainers = shared ? new ArrayList<QuadtreeObjectContainer<Obj>>(Math.min(k, 16)) : null;
+        float[] bounds = new float[4]; // Snapshots read the objects' bounds as of their epoch, see QuadtreeObjectContainer.readBounds
+        int found = 0, nodesVisited = 0;
+        enqueueNearestCandidate(candidates, root, pointX, pointY, maxDistance);
+        while(!candidates.isEmpty() && found < k){
+            NearestCandidate currentCandidate = candidates.poll();
+            if(currentCandidate.container != null){
+                if(shared){
+                    // There's at most k of these so a linear scan is cheaper than anything fancier
+                    if(foundContainers.contains(currentCandidate.container)){continue;}
+                    foundContainers.add(currentCandidate.container);
+                }
+                sink.add(currentCandidate.container.getInstance());
+                found++;
+                continue;
+            }
+            QuadtreeNode currentNode = currentCandidate.node;
+            nodesVisited++;
+            if(currentNode.isLeaf() || this.looseness != 0){
+                if(this.splitPolicy != null && epoch < 0 && !shared){recordLoad(currentNode, 1, 0);}
+                ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+                for(int i = 0; i < objects.size(); i++){
+                    QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+                    if(!shared){
+                        if(currentContainer.queryStamp == stamp){continue;}
+                        currentContainer.queryStamp = stamp;
+                    }
+                    currentContainer.readBounds(epoch, bounds);
+                    float distance = distanceToBounds(pointX, pointY, bounds[0], bounds[1], bounds[2], bounds[3]);
+                    if(distance <= maxDistance){candidates.add(new NearestCandidate(distance, null, currentContainer));}
+                }
+                if(currentNode.isLeaf()){continue;}
+            }
+            enqueueNearestCandidate(candidates, currentNode.getNodeFromEnum(Leaf.NE), pointX, pointY, maxDistance);
+            enqueueNearestCandidate(candidates, currentNode.getNodeFromEnum(Leaf.NW), pointX, pointY, maxDistance);
+            enqueueNearestCandidate(candidates, currentNode.getNodeFromEnum(Leaf.SE), pointX, pointY, maxDistance);
+            enqueueNearestCandidate(candidates, currentNode.getNodeFromEnum(Leaf.SW), pointX, pointY, maxDistance);
+        }
+        if(metrics != null){metrics.recordQuery(nodesVisited, System.nanoTime() - startTime);}
+        return found;
+    }
+    int readObjectsInArea(Traversal traversal, float posX, float posY, float sizeX, float sizeY, boolean exact, Collection<? super Obj> sink){
+        return readObjectsInArea(traversal, this.root, -1, posX, posY, sizeX, sizeY, exact, sink);
+    }
+    int readObjectsInArea(Traversal traversal, QuadtreeNode root, long epoch, float posX, float posY, float sizeX, float sizeY, boolean exact, Collection<? super Obj> sink){
+        // The same search as visitObjectsInArea but safe to run on several threads at once, since the only state it touches is the traversal it's given
+        //  Without stamps, exact queries deduplicate by only taking an object from the one leaf ownsOverlap picks out of those it shares with the area, unless it's only in the one leaf anyway
+        //  Snapshots can't tell how many leaves an object was in back then so they always check. Loose trees don't need any of that since each object is only in one node
+        QuadtreeMetrics metrics = this.metrics;
+        long startTime = metrics != null ? System.nanoTime() : 0;
+        boolean loose = this.looseness != 0, tracksLoad = this.splitPolicy != null && epoch < 0 && traversal.tracksLoad; // Snapshots are of an older tree so their queries don't say anything about this one
+        float[] bounds = traversal.bounds;
+        int visited = 0, nodesVisited = 0;
+        traversal.top = 0;
+        traversal.push(root, 0, 0, 0, 0); // The cells aren't needed so they're left at 0
+        while(traversal.top > 0){
+            int index = --traversal.top;
+            QuadtreeNode currentNode = traversal.nodes[index];
+            traversal.nodes[index] = null;
+            nodesVisited++;
+            if(currentNode.isLeaf() || loose){
+                if(tracksLoad){recordLoad(currentNode, 1, 0);}
+                ArrayList<QuadtreeObjectContainer<Obj>> objectList = currentNode.getObjects();
+                for(int i = 0; i < objectList.size(); i++){
+                    QuadtreeObjectContainer<Obj> currentContainer = objectList.get(i);
+                    if(exact){
+                        currentContainer.readBounds(epoch, bounds);
+                        if((Math.abs(bounds[0] - posX) >= (bounds[2] + sizeX)/2) || (Math.abs(bounds[1] - posY) >= (bounds[3] + sizeY)/2)){continue;}
+                        if(loose){
+                            sink.add(currentContainer.getInstance());
+                            visited++;
+                            continue;
+                        }
+                        if((epoch >= 0 || currentContainer.getQuadtreeNodes().size() != 1) && !ownsOverlap(root, currentNode, bounds[0], bounds[1], bounds[2], bounds[3], posX, posY, sizeX, sizeY)){continue;}
+                    }
+                    sink.add(currentContainer.getInstance());
+                    visited++;
+                }
+                if(currentNode.isLeaf()){continue;}
+            }
+            QuadtreeNode NELeaf = currentNode.getNodeFromEnum(Leaf.NE);
+            if(overlapsNode(posX, posY, sizeX, sizeY, NELeaf)){traversal.push(NELeaf, 0, 0, 0, 0);}
+
+            QuadtreeNode NWLeaf = currentNode.getNodeFromEnum(Leaf.NW);
+            if(overlapsNode(posX, posY, sizeX, sizeY, NWLeaf)){traversal.push(NWLeaf, 0, 0, 0, 0);}
+
+            QuadtreeNode SELeaf = currentNode.getNodeFromEnum(Leaf.SE);
+            if(overlapsNode(posX, posY, sizeX, sizeY, SELeaf)){traversal.push(SELeaf, 0, 0, 0, 0);}
+
+            QuadtreeNode SWLeaf = currentNode.getNodeFromEnum(Leaf.SW);
+            if(overlapsNode(posX, posY, sizeX, sizeY, SWLeaf)){traversal.push(SWLeaf, 0, 0, 0, 0);}
+        }
+        if(metrics != null){metrics.recordQuery(nodesVisited, System.nanoTime() - startTime);}
+        return visited;
+    }
+    int readObjectsAtPoint(Traversal traversal, float pointX, float pointY, boolean exact, Collection<? super Obj> sink){
+        return readObjectsAtPoint(traversal, this.root, -1, pointX, pointY, exact, sink);
+    }
+    int readObjectsAtPoint(Traversal traversal, QuadtreeNode root, long epoch, float pointX, float pointY, boolean exact, Collection<? super Obj> sink){
+        // Same as visitObjectsAtPoint but safe to run on several threads at once, and from a snapshot's root reading the bounds as of its epoch
+        QuadtreeMetrics metrics = this.metrics;
+        long startTime = metrics != null ? System.nanoTime() : 0;
+        float[] bounds = traversal.bounds;
+        int visited = 0;
+        boolean tracksLoad = this.splitPolicy != null && epoch < 0 && traversal.tracksLoad;
+        if(this.looseness != 0){
+            // Same as visitLooseObjectsAtPoint; the cells aren't needed so they're left at 0
+            int nodesVisited = 0;
+            traversal.top = 0;
+            traversal.push(root, 0, 0, 0, 0);
+            while(traversal.top > 0){
+                int index = --traversal.top;
+                QuadtreeNode currentNode = traversal.nodes[index];
+                traversal.nodes[index] = null;
+                nodesVisited++;
+                if(tracksLoad){recordLoad(currentNode, 1, 0);}
+                ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+                for(int i = 0; i < objects.size(); i++){
+                    QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+                    if(exact){
+                        currentContainer.readBounds(epoch, bounds);
+                        if((Math.abs(bounds[0] - pointX) > bounds[2]/2) || (Math.abs(bounds[1] - pointY) > bounds[3]/2)){continue;}
+                    }
+                    sink.add(currentContainer.getInstance());
+                    visited++;
+                }
+                if(currentNode.isLeaf()){continue;}
+                if(overlapsNode(pointX, pointY, 0, 0, currentNode.NE)){traversal.push(currentNode.NE, 0, 0, 0, 0);}
+                if(overlapsNode(pointX, pointY, 0, 0, currentNode.NW)){traversal.push(currentNode.NW, 0, 0, 0, 0);}
+                if(overlapsNode(pointX, pointY, 0, 0, currentNode.SE)){traversal.push(currentNode.SE, 0, 0, 0, 0);}
+                if(overlapsNode(pointX, pointY, 0, 0, currentNode.SW)){traversal.push(currentNode.SW, 0, 0, 0, 0);}
+            }
+            if(metrics != null){metrics.recordQuery(nodesVisited, System.nanoTime() - startTime);}
+            return visited;
+        }
+        // Every leaf that holds the point, the same as visitObjectsAtPoint. Snapshots can't tell how many leaves an object was in back then, so once the walk branches they always check the owner
+        int nodesVisited = 0;
+        boolean shared = false;
+        traversal.top = 0;
+        traversal.push(root, 0, 0, 0, 0);
+        while(traversal.top > 0){
+            QuadtreeNode currentNode = traversal.nodes[--traversal.top];
+            traversal.nodes[traversal.top] = null;
+            nodesVisited++;
+            if(!currentNode.isLeaf()){
+                int childBase = traversal.top;
+                if(holdsPoint(pointX, pointY, currentNode.NE)){traversal.push(currentNode.NE, 0, 0, 0, 0);}
+                if(holdsPoint(pointX, pointY, currentNode.NW)){traversal.push(currentNode.NW, 0, 0, 0, 0);}
+                if(holdsPoint(pointX, pointY, currentNode.SE)){traversal.push(currentNode.SE, 0, 0, 0, 0);}
+                if(holdsPoint(pointX, pointY, currentNode.SW)){traversal.push(currentNode.SW, 0, 0, 0, 0);}
+                if(traversal.top - childBase > 1){shared = true;}
+                continue;
+            }
+            if(tracksLoad){recordLoad(currentNode, 1, 0);}
+            ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+            for(int i = 0; i < objects.size(); i++){
+                QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+                if(exact || shared){currentContainer.readBounds(epoch, bounds);}
+                if(exact && ((Math.abs(bounds[0] - pointX) > bounds[2]/2) || (Math.abs(bounds[1] - pointY) > bounds[3]/2))){continue;}
+                if(shared && (epoch >= 0 || currentContainer.getQuadtreeNodes().size() != 1) && !ownsPoint(root, currentNode, pointX, pointY, bounds[0], bounds[1], bounds[2], bounds[3])){continue;}
+                sink.add(currentContainer.getInstance());
+                visited++;
+            }
+        }
+        if(metrics != null){metrics.recordQuery(nodesVisited, System.nanoTime() - startTime);}
+        return visited;
+    }
+    int readRayHits(Traversal traversal, float originX, float originY, float dirX, float dirY, float maxDistance, boolean firstOnly, Collection<? super Obj> sink){
+        return readRayHits(traversal, this.root, -1, originX, originY, dirX, dirY, maxDistance, firstOnly, sink);
+    }
+    int readRayHits(Traversal traversal, QuadtreeNode root, long epoch, float originX, float originY, float dirX, float dirY, float maxDistance, boolean firstOnly, Collection<? super Obj> sink){
+        // Walks the nodes along the ray front to back; each node's children get pushed furthest first so that the one the ray reaches first is looked at next
+        //  For the first hit, any node that the ray reaches after the closest hit so far can't hold anything closer so it gets skipped, which usually leaves only the few leaves around the hit
+        //  For every hit, the hits are sorted by how far along the ray they are. An object in several leaves gets hit at the same distance in each, so the duplicates end up next to each other in the sort and get dropped there instead of needing stamps
+        //  The distance of each node sits in the first of its cell slots
+        QuadtreeMetrics metrics = this.metrics;
+        long startTime = metrics != null ? System.nanoTime() : 0;
+        boolean loose = this.looseness != 0, tracksLoad = this.splitPolicy != null && epoch < 0 && traversal.tracksLoad;
+        float[] bounds = traversal.bounds;
+        ArrayList<QuadtreeObjectContainer<Obj>> hits = traversal.hits;
+        QuadtreeObjectContainer<Obj> closestContainer = null;
+        float closestDistance = maxDistance;
+        int nodesVisited = 0, hitCount = 0;
+        traversal.top = 0;
+        float rootDistance = intersectRay(originX, originY, dirX, dirY, maxDistance, root);
+        if(rootDistance >= 0){traversal.push(root, rootDistance, 0, 0, 0);}
+        try{
+            while(traversal.top > 0){
+                int index = --traversal.top;
+                QuadtreeNode currentNode = traversal.nodes[index];
+                traversal.nodes[index] = null;
+                if(firstOnly && traversal.cells[index << 2] > closestDistance){continue;}
+                nodesVisited++;
+                if(currentNode.isLeaf() || loose){
+                    if(tracksLoad){recordLoad(currentNode, 1, 0);}
+                    ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+                    for(int i = 0; i < objects.size(); i++){
+                        QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+                        currentContainer.readBounds(epoch, bounds);
+                        float distance = intersectRay(originX, originY, dirX, dirY, firstOnly ? closestDistance : maxDistance, bounds[0] - bounds[2]/2, bounds[1] - bounds[3]/2, bounds[0] + bounds[2]/2, bounds[1] + bounds[3]/2);
+                        if(distance < 0){continue;}
+                        if(firstOnly){
+                            // Ties go to whichever was found first
+                            if(closestContainer == null || distance < closestDistance){closestContainer = currentContainer; closestDistance = distance;}
+                            continue;
+                        }
+                        // Distances are never negative so their bits sort the same way the floats do, which leaves the bottom half of the key for the hit's index
+                        if(hitCount == traversal.hitKeys.length){traversal.hitKeys = Arrays.copyOf(traversal.hitKeys, hitCount << 1);}
+                        traversal.hitKeys[hitCount] = ((long) Float.floatToIntBits(distance) << 32) | hitCount;
+                        hits.add(currentContainer);
+                        hitCount++;
+                    }
+                    if(currentNode.isLeaf()){continue;}
+                }
+                float reach = firstOnly ? closestDistance : maxDistance;
+                int pushed = 0;
+                float distance = intersectRay(originX, originY, dirX, dirY, reach, currentNode.NE);
+                if(distance >= 0){traversal.push(currentNode.NE, distance, 0, 0, 0); pushed++;}
+                distance = intersectRay(originX, originY, dirX, dirY, reach, currentNode.NW);
+                if(distance >= 0){traversal.push(currentNode.NW, distance, 0, 0, 0); pushed++;}
+                distance = intersectRay(originX, originY, dirX, dirY, reach, currentNode.SE);
+                if(distance >= 0){traversal.push(currentNode.SE, distance, 0, 0, 0); pushed++;}
+                distance = intersectRay(originX, originY, dirX, dirY, reach, currentNode.SW);
+                if(distance >= 0){traversal.push(currentNode.SW, distance, 0, 0, 0); pushed++;}
+                traversal.sortTop(pushed);
+            }
+            int found = 0;
+            if(firstOnly){
+                if(closestContainer != null){
+                    sink.add(closestContainer.getInstance());
+                    found = 1;
+                }
+            } else {
+                Arrays.sort(traversal.hitKeys, 0, hitCount);
+                int runStart = 0; // Where the hits at the current distance start
+                for(int i = 0; i < hitCount; i++){
+                    long key = traversal.hitKeys[i];
+                    if((key >>> 32) != (traversal.hitKeys[runStart] >>> 32)){runStart = i;}
+                    QuadtreeObjectContainer<Obj> currentContainer = hits.get((int) key);
+                    boolean duplicate = false;
+                    for(int l = runStart; l < i && !duplicate; l++){duplicate = hits.get((int) traversal.hitKeys[l]) == currentContainer;}
+                    if(duplicate){continue;}
+                    sink.add(currentContainer.getInstance());
+                    found++;
+                }
+            }
+            if(metrics != null){metrics.recordQuery(nodesVisited, System.nanoTime() - startTime);}
+            return found;
+        } finally {
+            hits.clear(); // Don't keep the objects alive through the traversal
+        }
+    }
+    long[] readLeafIntervalsInArea(Traversal traversal, float posX, float posY, float sizeX, float sizeY){
+        // getLeafIntervalsInArea with the traversal it's given, so that it can run on several threads at once
+        long[] returnValue = new long[16];
+        int length = 0;
+        traversal.top = 0;
+        traversal.push(this.root, 0, 0, 0, 0);
+        while(traversal.top > 0){
+            QuadtreeNode currentNode = traversal.nodes[--traversal.top];
+            traversal.nodes[traversal.top] = null;
+            if(currentNode.isLeaf()){
+                long start = computeMortonCode(currentNode.getGeohash(), currentNode.getDepth());
+                long end = start + (1L << ((mortonLevels - currentNode.getDepth()) << 1));
+                // The leaves come off the stack in Morton order so each one either carries on from the last range or starts a new one
+                if(length > 0 && returnValue[length - 1] == start){
+                    returnValue[length - 1] = end;
+                    continue;
+                }
+                if(length == returnValue.length){returnValue = Arrays.copyOf(returnValue, length << 1);}
+                returnValue[length++] = start; returnValue[length++] = end;
+                continue;
+            }
+            // Push the children in reverse order of their digits so that SE (00) comes off first and NW (11) last
+            QuadtreeNode NWLeaf = currentNode.getNodeFromEnum(Leaf.NW);
+            if(intersectsWith(posX, posY, sizeX, sizeY, NWLeaf)){traversal.push(NWLeaf, 0, 0, 0, 0);}
+
+            QuadtreeNode NELeaf = currentNode.getNodeFromEnum(Leaf.NE);
+            if(intersectsWith(posX, posY, sizeX, sizeY, NELeaf)){traversal.push(NELeaf, 0, 0, 0, 0);}
+
+            QuadtreeNode SWLeaf = currentNode.getNodeFromEnum(Leaf.SW);
+            if(intersectsWith(posX, posY, sizeX, sizeY, SWLeaf)){traversal.push(SWLeaf, 0, 0, 0, 0);}
+
+            QuadtreeNode SELeaf = currentNode.getNodeFromEnum(Leaf.SE);
+            if(intersectsWith(posX, posY, sizeX, sizeY, SELeaf)){traversal.push(SELeaf, 0, 0, 0, 0);}
+        }
+        return Arrays.copyOf(returnValue, length);
+    }
+    private void collectContainersInArea(float minX, float minY, float maxX, float maxY, int stamp, ArrayList<QuadtreeObjectContainer<Obj>> into){
+        // Adds every container in the nodes that overlap with the area that doesn't have the stamp yet, without looking at their bounds, so that several areas can share the one stamp
+        float posX = (minX + maxX)/2, posY = (minY + maxY)/2, sizeX = maxX - minX, sizeY = maxY - minY;
+        boolean loose = this.looseness != 0;
+        int stackBase = this.traversalTop;
+        pushTraversal(this.root);
+        try{
+            while(this.traversalTop > stackBase){
+                QuadtreeNode currentNode = this.traversalStack[--this.traversalTop];
+                this.traversalStack[this.traversalTop] = null;
+                if(currentNode.isLeaf() || loose){
+                    ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+                    for(int i = 0; i < objects.size(); i++){
+                        QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+                        if(currentContainer.queryStamp == stamp){continue;}
+                        currentContainer.queryStamp = stamp;
+                        into.add(currentContainer);
+                    }
+                    if(currentNode.isLeaf()){continue;}
+                }
+                if(overlapsNode(posX, posY, sizeX, sizeY, currentNode.NE)){pushTraversal(currentNode.NE);}
+                if(overlapsNode(posX, posY, sizeX, sizeY, currentNode.NW)){pushTraversal(currentNode.NW);}
+                if(overlapsNode(posX, posY, sizeX, sizeY, currentNode.SE)){pushTraversal(currentNode.SE);}
+                if(overlapsNode(posX, posY, sizeX, sizeY, currentNode.SW)){pushTraversal(currentNode.SW);}
+            }
+        } finally {
+            while(this.traversalTop > stackBase){this.traversalStack[--this.traversalTop] = null;}
+        }
+    }
+    private void collectContainersOutside(float minX, float minY, float maxX, float maxY, float otherMinX, float otherMinY, float otherMaxX, float otherMaxY, int stamp, ArrayList<QuadtreeObjectContainer<Obj>> into){
+        // collectContainersInArea over the part of the first area that the second one doesn't cover
+        //  That's the whole area if they don't overlap, otherwise up to 4 strips around the overlap: the full height on the left and right and whatever's left above and below
+        if(otherMinX >= maxX || otherMaxX <= minX || otherMinY >= maxY || otherMaxY <= minY){
+            collectContainersInArea(minX, minY, maxX, maxY, stamp, into);
+            return;
+        }
+        if(otherMinX > minX){collectContainersInArea(minX, minY, otherMinX, maxY, stamp, into);}
+        if(otherMaxX < maxX){collectContainersInArea(otherMaxX, minY, maxX, maxY, stamp, into);}
+        float middleMinX = Math.max(minX, otherMinX), middleMaxX = Math.min(maxX, otherMaxX);
+        if(otherMinY > minY){collectContainersInArea(middleMinX, minY, middleMaxX, otherMinY, stamp, into);}
+        if(otherMaxY < maxY){collectContainersInArea(middleMinX, otherMaxY, middleMaxX, maxY, stamp, into);}
+    }
+    private void notifySubscriptions(QuadtreeObjectContainer<Obj> container, boolean wasInTree, float oldPosX, float oldPosY, float oldSizeX, float oldSizeY, boolean isInTree){
+        // Tells every subscription whose region the container has entered, moved in or left, going by where it was before the change and where it is now
+        //  Only the subscriptions whose regions overlap with one or the other can care, so those are the only ones we look at
+        if(!wasInTree && !isInTree){return;}
+        float posX = container.getPositionX(), posY = container.getPositionY(), sizeX = container.getSizeX(), sizeY = container.getSizeY();
+        float minX = isInTree ? posX - sizeX/2 : oldPosX - oldSizeX/2, maxX = isInTree ? posX + sizeX/2 : oldPosX + oldSizeX/2;
+        float minY = isInTree ? posY - sizeY/2 : oldPosY - oldSizeY/2, maxY = isInTree ? posY + sizeY/2 : oldPosY + oldSizeY/2;
+        if(wasInTree && isInTree){
+            minX = Math.min(minX, oldPosX - oldSizeX/2); maxX = Math.max(maxX, oldPosX + oldSizeX/2);
+            minY = Math.min(minY, oldPosY - oldSizeY/2); maxY = Math.max(maxY, oldPosY + oldSizeY/2);
+        }
+        // Go from wherever the list is up to so that it's still in one piece if a listener does end up changing the tree
+        int listBase = this.notifiedSubscriptions.size();
+        this.subscriptions.getObjectsIntersectingArea((minX + maxX)/2, (minY + maxY)/2, maxX - minX, maxY - minY, this.notifiedSubscriptions);
+        int listEnd = this.notifiedSubscriptions.size();
+        try{
+            for(int i = listBase; i < listEnd; i++){
+                Subscription currentSubscription = this.notifiedSubscriptions.get(i);
+                if(currentSubscription.isClosed()){continue;}
+                Quadtree<Subscription>.QuadtreeObjectContainer<Subscription> region = currentSubscription.region;
+                boolean wasIn = wasInTree && region.intersects(oldPosX, oldPosY, oldSizeX, oldSizeY);
+                boolean isIn = isInTree && region.intersects(posX, posY, sizeX, sizeY);
+                if(wasIn && isIn){currentSubscription.listener.onMove(container.getInstance());}
+                else if(isIn){currentSubscription.listener.onEnter(container.getInstance());}
+                else if(wasIn){currentSubscription.listener.onLeave(container.getInstance());}
+            }
+        } finally {
+            while(this.notifiedSubscriptions.size() > listBase){this.notifiedSubscriptions.remove(this.notifiedSubscriptions.size() - 1);}
+        }
+    }
+    private void notifySubscriptionsOfEverything(boolean entering){
+        // Tells the subscriptions that every object in the tree has either just entered or is about to leave, for when the whole tree gets swapped out
+        LinkedList<QuadtreeNode> processStack = new LinkedList<QuadtreeNode>();
+        processStack.push(this.root);
+        while(!processStack.isEmpty()){
+            QuadtreeNode currentNode = processStack.pop();
+            ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+            for(int i = 0; i < objects.size(); i++){
+                // Only at the first node each object is in, so that straddling objects only get told about once
+                QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+                if(currentContainer.getQuadtreeNodes().get(0) != currentNode){continue;}
+                notifySubscriptions(currentContainer, !entering, currentContainer.getPositionX(), currentContainer.getPositionY(), currentContainer.getSizeX(), currentContainer.getSizeY(), entering);
+            }
+            if(!currentNode.isLeaf()){
+                processStack.push(currentNode.getNodeFromEnum(Leaf.NE)); processStack.push(currentNode.getNodeFromEnum(Leaf.NW));
+                processStack.push(currentNode.getNodeFromEnum(Leaf.SE)); processStack.push(currentNode.getNodeFromEnum(Leaf.SW));
+            }
+        }
+    }
+    private void moveSubscription(Subscription subscription, float posX, float posY, float sizeX, float sizeY, boolean isNew){
+        // Moves the subscription's region and tells its listener about every object that's come into or gone out of it
+        //  Only the parts of the new region that the old one didn't cover can have objects coming in, and the other way around for objects going out, so those are the only parts we look at
+        Quadtree<Subscription>.QuadtreeObjectContainer<Subscription> region = subscription.region;
+        float oldPosX = region.getPositionX(), oldPosY = region.getPositionY(), oldSizeX = region.getSizeX(), oldSizeY = region.getSizeY();
+        float minX = posX - sizeX/2, minY = posY - sizeY/2, maxX = posX + sizeX/2, maxY = posY + sizeY/2;
+        float oldMinX = oldPosX - oldSizeX/2, oldMinY = oldPosY - oldSizeY/2, oldMaxX = oldPosX + oldSizeX/2, oldMaxY = oldPosY + oldSizeY/2;
+        int listBase = this.changedContainers.size();
+        try{
+            int stamp = nextQueryStamp();
+            if(isNew){
+                collectContainersInArea(minX, minY, maxX, maxY, stamp, this.changedContainers);
+            } else {
+                collectContainersOutside(minX, minY, maxX, maxY, oldMinX, oldMinY, oldMaxX, oldMaxY, stamp, this.changedContainers);
+                collectContainersOutside(oldMinX, oldMinY, oldMaxX, oldMaxY, minX, minY, maxX, maxY, stamp, this.changedContainers);
+                this.subscriptions.update(region, posX, posY, sizeX, sizeY);
+            }
+            int listEnd = this.changedContainers.size();
+            // The strips only narrow it down to the nodes they overlap with, so check each object against both regions properly
+            for(int i = listBase; i < listEnd && !subscription.isClosed(); i++){
+                QuadtreeObjectContainer<Obj> currentContainer = this.changedContainers.get(i);
+                boolean wasIn = !isNew && currentContainer.intersects(oldPosX, oldPosY, oldSizeX, oldSizeY);
+                boolean isIn = currentContainer.intersects(posX, posY, sizeX, sizeY);
+                if(isIn && !wasIn){subscription.listener.onEnter(currentContainer.getInstance());}
+                else if(wasIn && !isIn){subscription.listener.onLeave(currentContainer.getInstance());}
+            }
+        } finally {
+            while(this.changedContainers.size() > listBase){this.changedContainers.remove(this.changedContainers.size() - 1);}
+        }
+    }
+    private void rebuildSubscriptions(){
+        // Puts every subscription into a fresh index the same size as the tree, for when loading has changed the tree's bounds
+        Quadtree<Subscription> subscriptions = new Quadtree<Subscription>(getSize(), getPosition());
+        for(int i = 0; i < this.subscriptionList.size(); i++){
+            Subscription currentSubscription = this.subscriptionList.get(i);
+            Quadtree<Subscription>.QuadtreeObjectContainer<Subscription> region = currentSubscription.region;
+            currentSubscription.region = subscriptions.add(currentSubscription, region.getPositionX(), region.getPositionY(), region.getSizeX(), region.getSizeY());
+        }
+        this.subscriptions = subscriptions;
+    }
+    private void runBatch(float[] areas, List<? extends Collection<? super Obj>> sinks, boolean exact, ForkJoinPool pool){
+        if(areas.length % 4 != 0){throw new IllegalArgumentException("Areas need 4 floats each but got " + String.valueOf(areas.length));}
+        if(sinks.size() != areas.length >> 2){throw new IllegalArgumentException("Got " + String.valueOf(sinks.size()) + " sinks for " + String.valueOf(areas.length >> 2) + " areas");}
+        BatchQuery batch = new BatchQuery(areas, sinks, exact, 0, areas.length >> 2);
+        if(areas.length >> 2 <= this.batchGranularity){
+            // Not worth waking up the pool for
+            batch.compute();
+            return;
+        }
+        pool.invoke(batch);
+    }
+    private long computeMortonKey(float pointX, float pointY){
+        // Walks the point down maximumDepth layers of (imaginary) quadrants using the same digits as the geohash, most significant digit first
+        //  Sorting by this keeps points that would end up in the same node next to each other
+        Vector2 rootPos = this.root.getPosition(), rootSize = this.root.getSize();
+        float centreX = rootPos.getX(), centreY = rootPos.getY(), halfX = rootSize.getX()/2, halfY = rootSize.getY()/2;
+        long returnValue = 0;
+        for(int level = 0; level < this.maximumDepth; level++){
+            Leaf quadrant = getLeafQuadrant(centreX, centreY, pointX, pointY);
+            returnValue = (returnValue << 2) | getGeohashDigit(quadrant);
+            halfX /= 2; halfY /= 2;
+            centreX += (quadrant == Leaf.NE || quadrant == Leaf.SE) ? halfX : -halfX;
+            centreY += (quadrant == Leaf.NE || quadrant == Leaf.NW) ? halfY : -halfY;
+        }
+        return returnValue;
+    }
+    @SuppressWarnings("unchecked")
+    private ArrayList<QuadtreeObjectContainer<Obj>> wrapObjectsByMortonKey(Collection<? extends Obj> items, Function<? super Obj, Vector2> positionOf, Function<? super Obj, Vector2> sizeOf, ArrayList<QuadtreeObjectContainer<Obj>> inputOrder){
+        // Wraps every item in a container and returns the containers sorted by the Morton key of their position, while inputOrder gets them in the same order as the items
+        //  The containers are created in sorted order so that neighbouring objects also sit next to each other in memory, which is what makes building the tree from them quick
+        int itemCount = items.size();
+        Object[] instances = new Object[itemCount];
+        float[] bounds = new float[itemCount << 2];
+        long[] order = new long[itemCount];
+        // Each key gets packed together with the item's index into one long so that we can use the primitive sort, which means only the top 32 bits of the key are used
+        //  That's 16 layers worth of digits so it only loses precision in trees deeper than that, where the ordering is still close enough to keep neighbours together
+        int keyShift = Math.max(0, (this.maximumDepth << 1) - 32);
+        int index = 0;
+        for(Obj item : items){
+            Vector2 position = positionOf.apply(item), size = sizeOf.apply(item);
+            instances[index] = item;
+            bounds[index << 2] = position.getX(); bounds[(index << 2) + 1] = position.getY();
+            bounds[(index << 2) + 2] = size.getX(); bounds[(index << 2) + 3] = size.getY();
+            long key = computeMortonKey(position.getX(), position.getY()) >>> keyShift;
+            order[index] = (key << 32) | index;
+            index++;
+        }
+        Arrays.sort(order);
+        ArrayList<QuadtreeObjectContainer<Obj>> returnValue = new ArrayList<QuadtreeObjectContainer<Obj>>(itemCount);
+        Object[] containersByIndex = new Object[itemCount];
+        for(int i = 0; i < itemCount; i++){
+            int itemIndex = (int) order[i];
+            QuadtreeObjectContainer<Obj> container = new QuadtreeObjectContainer<Obj>(bounds[(itemIndex << 2) + 2], bounds[(itemIndex << 2) + 3], bounds[itemIndex << 2], bounds[(itemIndex << 2) + 1], (Obj) instances[itemIndex]);
+            containersByIndex[itemIndex] = container;
+            returnValue.add(container);
+        }
+        inputOrder.ensureCapacity(itemCount);
+        for(int i = 0; i < itemCount; i++){inputOrder.add((QuadtreeObjectContainer<Obj>) containersByIndex[i]);}
+        return returnValue;
+    }
+    private void detachContainers(){
+        // Detach whatever was in the tree so that its containers don't keep pointing into nodes we're about to throw away
+        LinkedList<QuadtreeNode> processStack = new LinkedList<QuadtreeNode>();
+        processStack.push(this.root);
+        while(!processStack.isEmpty()){
+            QuadtreeNode currentNode = processStack.pop();
+            ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+            for(int i = 0; i < objects.size(); i++){objects.get(i).getQuadtreeNodes().clear();}
+            if(!currentNode.isLeaf()){
+                processStack.push(currentNode.getNodeFromEnum(Leaf.NE)); processStack.push(currentNode.getNodeFromEnum(Leaf.NW));
+                processStack.push(currentNode.getNodeFromEnum(Leaf.SE)); processStack.push(currentNode.getNodeFromEnum(Leaf.SW));
+            }
+        }
+        this.nodeIndex.clear();
+    }
+    private void writeTree(QuadtreeNode root, long epoch, WritableByteChannel channel, ToLongFunction<? super Obj> idOf) throws IOException{
+        // Lays the tree out in the format described next to fileMagic, as seen from the given root and epoch so that snapshots can be saved too
+        //  The nodes are numbered breadth first, and every object is numbered the first time a leaf turns up with it so that the leaves can refer to it by that number
+        ArrayList<QuadtreeNode> nodes = new ArrayList<QuadtreeNode>();
+        ArrayList<QuadtreeObjectContainer<Obj>> objects = new ArrayList<QuadtreeObjectContainer<Obj>>();
+        HashMap<QuadtreeObjectContainer<Obj>, Integer> objectIndices = new HashMap<QuadtreeObjectContainer<Obj>, Integer>(); // Not the stamps since a snapshot can be saved from any thread
+        int referenceCount = 0, treeDepth = 0;
+        nodes.add(root);
+        for(int i = 0; i < nodes.size(); i++){
+            QuadtreeNode currentNode = nodes.get(i);
+            treeDepth = Math.max(treeDepth, currentNode.getDepth());
+            if(!currentNode.isLeaf()){
+                nodes.add(currentNode.getNodeFromEnum(Leaf.NE)); nodes.add(currentNode.getNodeFromEnum(Leaf.NW));
+                nodes.add(currentNode.getNodeFromEnum(Leaf.SE)); nodes.add(currentNode.getNodeFromEnum(Leaf.SW));
+            }
+            // Only loose trees have objects in nodes that aren't leaves, everywhere else the list is just empty
+            ArrayList<QuadtreeObjectContainer<Obj>> leafObjects = currentNode.getObjects();
+            for(int l = 0; l < leafObjects.size(); l++){
+                if(objectIndices.putIfAbsent(leafObjects.get(l), objects.size()) == null){objects.add(leafObjects.get(l));}
+            }
+            referenceCount += leafObjects.size();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(fileBufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(fileMagic).putInt(fileVersion);
+        buffer.putFloat(root.getPosition().getX()).putFloat(root.getPosition().getY()).putFloat(root.getSize().getX()).putFloat(root.getSize().getY());
+        buffer.putInt(this.maximumDepth).putInt(this.maxChilds).putInt(this.collapseThreshold);
+        buffer.putFloat(this.minimumLeafSize.getX()).putFloat(this.minimumLeafSize.getY());
+        buffer.putInt(treeDepth).putInt(nodes.size()).putInt(objects.size()).putInt(referenceCount).putFloat(this.looseness);
+        // The children of the nth node that has any come straight after those of the node before it, which is the order they were added to the list in
+        int nextChild = 1, nextReference = 0;
+        for(int i = 0; i < nodes.size(); i++){
+            QuadtreeNode currentNode = nodes.get(i);
+            drainBuffer(channel, buffer, fileNodeSize);
+            buffer.putFloat(currentNode.getPosition().getX()).putFloat(currentNode.getPosition().getY()).putFloat(currentNode.getSize().getX()).putFloat(currentNode.getSize().getY());
+            buffer.putLong(currentNode.getGeohash()).putInt(currentNode.getDepth());
+            if(currentNode.isLeaf()){
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(nextChild);
+                nextChild += 4;
+            }
+            buffer.putInt(nextReference).putInt(currentNode.getObjects().size());
+            nextReference += currentNode.getObjects().size();
+        }
+        float[] bounds = new float[4];
+        for(int i = 0; i < objects.size(); i++){
+            QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+            currentContainer.readBounds(epoch, bounds);
+            drainBuffer(channel, buffer, fileObjectSize);
+            buffer.putLong(idOf.applyAsLong(currentContainer.getInstance())).putFloat(bounds[0]).putFloat(bounds[1]).putFloat(bounds[2]).putFloat(bounds[3]);
+        }
+        for(int i = 0; i < nodes.size(); i++){
+            ArrayList<QuadtreeObjectContainer<Obj>> leafObjects = nodes.get(i).getObjects();
+            for(int l = 0; l < leafObjects.size(); l++){
+                drainBuffer(channel, buffer, 4);
+                buffer.putInt(objectIndices.get(leafObjects.get(l)));
+            }
+        }
+        drainBuffer(channel, buffer, fileBufferSize);
+    }
+    private void buildNode(QuadtreeNode targetNode, ArrayList<QuadtreeObjectContainer<Obj>> objects){
+        // Top down construction for bulkLoad; every object in the list overlaps with the targetNode and the targetNode is either a fresh leaf or the root
+        //  A leaf is only divided if add would have divided it, which is when it'd hold more than its capacity
+        if(targetNode.isLeaf()){
+            if(!canDivide(targetNode) || objects.size() <= getCapacity(targetNode)){
+                for(int i = 0; i < objects.size(); i++){targetNode.addObject(objects.get(i));}
+                return;
+            }
+            targetNode.divideNode();
+            if(targetNode.getDepth() + 1 > this.depth){this.depth = (byte) (targetNode.getDepth() + 1);}
+        }
+        // Hand each object to every child it overlaps with; the lists keep the Morton ordering so each one stays sorted
+        //  Loose trees hand it to the child its centre is in instead, or keep it here if that child can't fit it, the same as insertLooseContainer
+        QuadtreeNode NELeaf = targetNode.getNodeFromEnum(Leaf.NE), NWLeaf = targetNode.getNodeFromEnum(Leaf.NW), SELeaf = targetNode.getNodeFromEnum(Leaf.SE), SWLeaf = targetNode.getNodeFromEnum(Leaf.SW);
+        ArrayList<QuadtreeObjectContainer<Obj>> NEObjects = new ArrayList<QuadtreeObjectContainer<Obj>>(), NWObjects = new ArrayList<QuadtreeObjectContainer<Obj>>();
+        ArrayList<QuadtreeObjectContainer<Obj>> SEObjects = new ArrayList<QuadtreeObjectContainer<Obj>>(), SWObjects = new ArrayList<QuadtreeObjectContainer<Obj>>();
+        Vector2 targetNodePos = targetNode.getPosition();
+        for(int i = 0; i < objects.size(); i++){
+            QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+            float posX = currentContainer.getPositionX(), posY = currentContainer.getPositionY(), sizeX = currentContainer.getSizeX(), sizeY = currentContainer.getSizeY();
+            if(this.looseness != 0){
+                Leaf quadrant = getLeafQuadrant(targetNodePos.getX(), targetNodePos.getY(), posX, posY);
+                if(!targetNode.getNodeFromEnum(quadrant).fits(posX, posY, sizeX, sizeY)){targetNode.addObject(currentContainer);}
+                else if(quadrant == Leaf.NE){NEObjects.add(currentContainer);}
+                else if(quadrant == Leaf.NW){NWObjects.add(currentContainer);}
+                else if(quadrant == Leaf.SE){SEObjects.add(currentContainer);}
+                else {SWObjects.add(currentContainer);}
+                continue;
+            }
+            if(intersectsWith(posX, posY, sizeX, sizeY, NELeaf)){NEObjects.add(currentContainer);}
+            if(intersectsWith(posX, posY, sizeX, sizeY, NWLeaf)){NWObjects.add(currentContainer);}
+            if(intersectsWith(posX, posY, sizeX, sizeY, SELeaf)){SEObjects.add(currentContainer);}
+            if(intersectsWith(posX, posY, sizeX, sizeY, SWLeaf)){SWObjects.add(currentContainer);}
+        }
+        objects.clear(); // The caller doesn't need this list anymore so let it go before we recurse
+        buildNode(NELeaf, NEObjects); buildNode(NWLeaf, NWObjects); buildNode(SELeaf, SEObjects); buildNode(SWLeaf, SWObjects);
+    }
+    private int nextQueryStamp(){
+        // Hands out a stamp that no container currently has so that exact queries can tell which containers they've already seen
+        if(++this.queryStamp == 0){
+            // Once every four billion or so queries the counter wraps around, at which point old stamps could collide with new ones so we wipe them all
+            LinkedList<QuadtreeNode> processStack = new LinkedList<QuadtreeNode>();
+            processStack.push(this.root);
+            while(!processStack.isEmpty()){
+                QuadtreeNode currentNode = processStack.pop();
+                ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+                for(int i = 0; i < objects.size(); i++){objects.get(i).queryStamp = 0;}
+                if(!currentNode.isLeaf()){
+                    processStack.push(currentNode.getNodeFromEnum(Leaf.NE)); processStack.push(currentNode.getNodeFromEnum(Leaf.NW));
+                    processStack.push(currentNode.getNodeFromEnum(Leaf.SE)); processStack.push(currentNode.getNodeFromEnum(Leaf.SW));
+                }
+            }
+            this.queryStamp = 1;
+        }
+        return this.queryStamp;
+    }
+    private int visitObjectsInArea(float posX, float posY, float sizeX, float sizeY, boolean exact, Collection<? super Obj> sink, Consumer<? super Obj> visitor){
+        // Depth first search over every leaf that overlaps with the area, handing each object to either the sink or the visitor
+        //  We start from wherever the stack currently is rather than 0 so that a visitor can run another query on this tree without trampling ours
+        //  If exact is set then each object is only handed over once and only if its own bounds overlap with the area
+        //  Loose trees keep objects in nodes that have children too, but each object is only ever in one node so there's nothing to stamp
+        //  A visitor running its own exact query would stamp containers over with its stamp, so exact visits gather everything first and only hand it over once the stamping's done
+        QuadtreeMetrics metrics = this.metrics;
+        long startTime = metrics != null ? System.nanoTime() : 0;
+        int stackBase = this.traversalTop, bufferBase = this.visitBuffer.size();
+        int visited = 0, nodesVisited = 0;
+        boolean loose = this.looseness != 0, tracksLoad = this.splitPolicy != null;
+        boolean buffered = exact && !loose && visitor != null;
+        int stamp = exact && !loose ? nextQueryStamp() : 0;
+        pushTraversal(this.root);
+        try{
+            while(this.traversalTop > stackBase){
+                QuadtreeNode currentNode = this.traversalStack[--this.traversalTop];
+                this.traversalStack[this.traversalTop] = null; // Don't hang onto nodes that might get removed later
+                nodesVisited++;
+                if(currentNode.isLeaf() || loose){
+                    if(tracksLoad){recordLoad(currentNode, 1, 0);}
+                    ArrayList<QuadtreeObjectContainer<Obj>> objectList = currentNode.getObjects();
+                    for(int i = 0; i < objectList.size(); i++){
+                        QuadtreeObjectContainer<Obj> currentContainer = objectList.get(i);
+                        if(exact){
+                            // Objects that straddle leaves show up once per leaf so skip the ones we've already stamped
+                            if(!loose){
+                                if(currentContainer.queryStamp == stamp){continue;}
+                                currentContainer.queryStamp = stamp;
+                            }
+                            if(!currentContainer.intersects(posX, posY, sizeX, sizeY)){continue;}
+                        }
+                        Obj instance = currentContainer.getInstance();
+                        if(sink != null){sink.add(instance);} else if(buffered){this.visitBuffer.add(instance);} else {visitor.accept(instance);}
+                        visited++;
+                    }
+                    if(currentNode.isLeaf()){continue;}
+                }
+                // Otherwise push each child that overlaps with the area
+                QuadtreeNode NELeaf = currentNode.getNodeFromEnum(Leaf.NE);
+                if(overlapsNode(posX, posY, sizeX, sizeY, NELeaf)){pushTraversal(NELeaf);}
+
+                QuadtreeNode NWLeaf = currentNode.getNodeFromEnum(Leaf.NW);
+                if(overlapsNode(posX, posY, sizeX, sizeY, NWLeaf)){pushTraversal(NWLeaf);}
+
+                QuadtreeNode SELeaf = currentNode.getNodeFromEnum(Leaf.SE);
+                if(overlapsNode(posX, posY, sizeX, sizeY, SELeaf)){pushTraversal(SELeaf);}
+
+                QuadtreeNode SWLeaf = currentNode.getNodeFromEnum(Leaf.SW);
+                if(overlapsNode(posX, posY, sizeX, sizeY, SWLeaf)){pushTraversal(SWLeaf);}
+            }
+            // Queries the visitor runs put their own objects after ours, so only go up to where ours end
+            int bufferEnd = this.visitBuffer.size();
+            for(int i = bufferBase; i < bufferEnd; i++){visitor.accept(this.visitBuffer.get(i));}
+            if(metrics != null){metrics.recordQuery(nodesVisited, System.nanoTime() - startTime);}
+        } finally {
+            // If the sink or visitor threw then we still want the stack to be usable for the next query
+            while(this.traversalTop > stackBase){this.traversalStack[--this.traversalTop] = null;}
+            while(this.visitBuffer.size() > bufferBase){this.visitBuffer.remove(this.visitBuffer.size() - 1);}
+        }
+        return visited;
+    }
+    private int visitObjectsAtPoint(float pointX, float pointY, boolean exact, Collection<? super Obj> sink, Consumer<? super Obj> visitor){
+        // Usually there's only one leaf at a point, but a point right on a split line is on the edge of the leaves on both sides and objects can reach it from either of them
+        //  So we look in every leaf that holds the point, edges included. Once the walk has branched, an object in several of those leaves is only handed over from the one ownsPoint picks
+        //  exact just filters out the objects that don't contain the point. Same stack handling as visitObjectsInArea
+        if(this.looseness != 0){return visitLooseObjectsAtPoint(pointX, pointY, exact, sink, visitor);}
+        QuadtreeMetrics metrics = this.metrics;
+        long startTime = metrics != null ? System.nanoTime() : 0;
+        int stackBase = this.traversalTop;
+        int visited = 0, nodesVisited = 0;
+        boolean shared = false; // Whether the point is on the edge of more than one leaf. Every leaf is below the node where the walk first branches, so this is set before any of them are reached
+        pushTraversal(this.root);
+        try{
+            while(this.traversalTop > stackBase){
+                QuadtreeNode currentNode = this.traversalStack[--this.traversalTop];
+                this.traversalStack[this.traversalTop] = null;
+                nodesVisited++;
+                if(!currentNode.isLeaf()){
+                    int childBase = this.traversalTop;
+                    if(holdsPoint(pointX, pointY, currentNode.NE)){pushTraversal(currentNode.NE);}
+                    if(holdsPoint(pointX, pointY, currentNode.NW)){pushTraversal(currentNode.NW);}
+                    if(holdsPoint(pointX, pointY, currentNode.SE)){pushTraversal(currentNode.SE);}
+                    if(holdsPoint(pointX, pointY, currentNode.SW)){pushTraversal(currentNode.SW);}
+                    if(this.traversalTop - childBase > 1){shared = true;}
+                    continue;
+                }
+                if(this.splitPolicy != null){recordLoad(currentNode, 1, 0);}
+                ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+                for(int i = 0; i < objects.size(); i++){
+                    QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+                    if(exact && !currentContainer.contains(pointX, pointY)){continue;}
+                    if(shared && currentContainer.getQuadtreeNodes().size() != 1
+                            && !ownsPoint(this.root, currentNode, pointX, pointY, currentContainer.positionX, currentContainer.positionY, currentContainer.sizeX, currentContainer.sizeY)){continue;}
+                    Obj instance = currentContainer.getInstance();
+                    if(sink != null){sink.add(instance);} else {visitor.accept(instance);}
+                    visited++;
+                }
+            }
+            if(metrics != null){metrics.recordQuery(nodesVisited, System.nanoTime() - startTime);}
+        } finally {
+            while(this.traversalTop > stackBase){this.traversalStack[--this.traversalTop] = null;}
+        }
+        return visited;
+    }
+    private int visitLooseObjectsAtPoint(float pointX, float pointY, boolean exact, Collection<? super Obj> sink, Consumer<? super Obj> visitor){
+        // Loose nodes overlap, so rather than one leaf it's every node whose loose bounds hold the point that could have objects there
+        //  Same stack handling as visitObjectsInArea
+        QuadtreeMetrics metrics = this.metrics;
+        long startTime = metrics != null ? System.nanoTime() : 0;
+        int stackBase = this.traversalTop;
+        int visited = 0, nodesVisited = 0;
+        boolean tracksLoad = this.splitPolicy != null;
+        pushTraversal(this.root);
+        try{
+            while(this.traversalTop > stackBase){
+                QuadtreeNode currentNode = this.traversalStack[--this.traversalTop];
+                this.traversalStack[this.traversalTop] = null;
+                nodesVisited++;
+                if(tracksLoad){recordLoad(currentNode, 1, 0);}
+                ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+                for(int i = 0; i < objects.size(); i++){
+                    QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+                    if(exact && !currentContainer.contains(pointX, pointY)){continue;}
+                    Obj instance = currentContainer.getInstance();
+                    if(sink != null){sink.add(instance);} else {visitor.accept(instance);}
+                    visited++;
+                }
+                if(currentNode.isLeaf()){continue;}
+                if(overlapsNode(pointX, pointY, 0, 0, currentNode.NE)){pushTraversal(currentNode.NE);}
+                if(overlapsNode(pointX, pointY, 0, 0, currentNode.NW)){pushTraversal(currentNode.NW);}
+                if(overlapsNode(pointX, pointY, 0, 0, currentNode.SE)){pushTraversal(currentNode.SE);}
+                if(overlapsNode(pointX, pointY, 0, 0, currentNode.SW)){pushTraversal(currentNode.SW);}
+            }
+            if(metrics != null){metrics.recordQuery(nodesVisited, System.nanoTime() - startTime);}
+        } finally {
+            while(this.traversalTop > stackBase){this.traversalStack[--this.traversalTop] = null;}
+        }
+        return visited;
+    }
+    // Instance vars
+    QuadtreeNode root; // The root has no geohash so only the first division will have the geohash
+    private int maximumDepth, maxChilds;  // How high the depth can be, takes priority over maxChilds but below MinimumLeafSize. MaxChilds indicates how many objects can be in a node before we divide it
+    private int collapseThreshold; // Sibling leaves holding this many objects or fewer between them get merged back into their parent
+    private float looseness; // 0 for a regular tree where objects go in every leaf they overlap. Otherwise each object goes in one node, and a node can hold objects that stick out of it as long as they fit in its bounds scaled up by this much
+    private Vector2 minimumLeafSize = new Vector2(20,20);
+    private int nodesCreated; // Alright this purely serves as a way to assign each node a unique ID, since geohashes can change, its not a good way of uniquely identifying each quadtree
+    private byte depth; // SInce our geohash can only support aboouut 32 layers, we don't need too many bits allocated to the depth here
+    private QuadtreeNode[] traversalStack; // Reused by every query so that the query path doesn't allocate a work queue each call
+    private int traversalTop;
+    private Traversal pairTraversal; // The stack for forEachOverlappingPair, taken out while a walk is running
+    private QuadtreeNode[] unlinkedNodes; // Scratch space for the nodes a container was just removed from, see unlinkContainer
+    private int queryStamp; // Bumped by every exact query, see QuadtreeObjectContainer.queryStamp
+    private final ThreadLocal<Traversal> readerTraversals = ThreadLocal.withInitial(() -> new Traversal()); // Each thread reading through a snapshot keeps its own stack between queries
+    private final ThreadLocal<Traversal> batchTraversals = ThreadLocal.withInitial(() -> new Traversal(false)); // Same for the workers of a batch, which can't record load since that writes to the nodes from several threads at once
+    private long epoch; // Bumped by every snapshot; nodes and bounds from an older epoch might be seen by a snapshot and get copied before they change
+    private long oldestSnapshotEpoch = -1; // The epoch of the oldest snapshot still in use, or -1 if there's none and nothing needs copying
+    private final NodeIndex nodeIndex = new NodeIndex(); // Every node in the tree by its geohash and depth, kept up to date as nodes are divided, collapsed and copied
+    private final ArrayList<WeakReference<Snapshot>> snapshots = new ArrayList<WeakReference<Snapshot>>(); // Held weakly so that just dropping a snapshot is enough to stop paying for it
+    private QuadtreeMetrics metrics; // Null unless enableMetrics has been called, so that having them off only costs a null check per query
+    private SplitPolicy splitPolicy; // Null to use maxChilds and collapseThreshold everywhere, in which case none of the load below is tracked
+    private int loadClock; // Ticks over with every query or update recorded against a node, see recordLoad
+    private float queryLoad, updateLoad; // Everything recorded against every node, faded out as of loadTick, so that each node's load can be handed to the policy as a share of it
+    private int loadTick;
+    private Quadtree<Subscription> subscriptions; // Every subscription by its region, so that a change only has to look at the subscriptions around it. Null while there aren't any so that they only cost a null check per change
+    private final ArrayList<Subscription> subscriptionList = new ArrayList<Subscription>(); // The same subscriptions in no particular order, see Subscription.index
+    private final ArrayList<Subscription> notifiedSubscriptions = new ArrayList<Subscription>(); // Scratch space for notifySubscriptions
+    private final ArrayList<Obj> visitBuffer = new ArrayList<Obj>(); // Objects an exact forEach query has found but not handed to its visitor yet, see visitObjectsInArea
+    private final ArrayList<QuadtreeObjectContainer<Obj>> changedContainers = new ArrayList<QuadtreeObjectContainer<Obj>>(); // Scratch space for moveSubscription
+    // Accessors
+    public Vector2 getSize(){return this.root.getSize();}
+    public Vector2 getPosition(){return this.root.getPosition();}
+    public int getMaximumDepth(){return this.maximumDepth;}
+    public int getCollapseThreshold(){return this.collapseThreshold;}
+    public int getMaxChilds(){return this.maxChilds;}
+    public Vector2 getMinimumLeafSize(){return this.minimumLeafSize;}
+    /**
+     * Returns the metrics this tree is recording into, or null if they're turned off
+     * @return
+     */
+    public QuadtreeMetrics getMetrics(){return this.metrics;}
+    /**
+     * Returns the policy deciding when leaves are divided and merged, or null if it's down to maxChilds and the collapse threshold
+     * @return
+     */
+    public SplitPolicy getSplitPolicy(){return this.splitPolicy;}
+    /**
+     * Returns how much each node's bounds are scaled up by to get its loose bounds, or 0 if the tree isn't loose
+     * @return
+     */
+    public float getLooseness(){return this.looseness;}
+    /**
+     * Returns the deepest layer the tree has reached so far
+     * <p> This is a high water mark, so it doesn't go back down when nodes are collapsed
+     * @return
+     */
+    public int getDepth(){return this.depth;}
+    // Mutators
+    void setQueryStamp(int queryStamp){this.queryStamp = queryStamp;} // Lets tests get the counter close to wrapping around without running four billion queries
+    /**
+     * Sets how deep nodes can be divided; nodes already past the new limit are left alone until they collapse
+     * @param maximumDepth between 1 and 31 since each layer takes up 2 bits of the geohash
+     */
+    public void setMaximumDepth(int maximumDepth){
+        if(maximumDepth < 1 || maximumDepth > 31){throw new IllegalArgumentException("Maximum depth of " + String.valueOf(maximumDepth) + " is outside of [1, 31]");}
+        this.maximumDepth = maximumDepth;
+    }
+    /**
+     * Sets how many objects sibling leaves can hold between them before they stop being merged back into their parent
+     * @param collapseThreshold has to be below maxChilds, otherwise a merged leaf would split again on the next insert
+     */
+    public void setCollapseThreshold(int collapseThreshold){
+        if(collapseThreshold < 0 || collapseThreshold >= this.maxChilds){throw new IllegalArgumentException("Collapse threshold of " + String.valueOf(collapseThreshold) + " is outside of [0, " + String.valueOf(this.maxChilds) + ")");}
+        this.collapseThreshold = collapseThreshold;
+    }
+    /**
+     * Sets how many objects a leaf can hold before it gets divided; leaves that are already fuller than that are divided the next time something is added to them
+     * @param maxChilds has to be above the collapse threshold
+     */
+    public void setMaxChilds(int maxChilds){
+        if(maxChilds < 1 || maxChilds <= this.collapseThreshold){throw new IllegalArgumentException("Max childs of " + String.valueOf(maxChilds) + " has to be at least 1 and above the collapse threshold of " + String.valueOf(this.collapseThreshold));}
+        this.maxChilds = maxChilds;
+    }
+    /**
+     * Sets how small a leaf can get; a node is only divided if its children would be bigger than this on both axes
+     * <p> Leaves that are already smaller are left alone until they collapse
+     * @param minimumLeafSize
+     */
+    public void setMinimumLeafSize(Vector2 minimumLeafSize){
+        if(!(minimumLeafSize.getX() >= 0) || !(minimumLeafSize.getY() >= 0)){throw new IllegalArgumentException("Minimum leaf size of " + String.valueOf(minimumLeafSize) + " can't be negative");}
+        this.minimumLeafSize = minimumLeafSize;
+    }
+    /**
+     * Hands the decision of when to divide and merge leaves over to the policy, or back to maxChilds and the collapse threshold if it's null
+     * <p> The tree isn't reshaped straight away; leaves are divided and merged by the policy as objects are added and removed from then on.
+     * While a policy is set, every query and update also gets counted against the leaves it goes through so that the policy can see which regions are busy, see {@link SplitPolicy}
+     * @param splitPolicy
+     */
+    public void setSplitPolicy(SplitPolicy splitPolicy){this.splitPolicy = splitPolicy;}
+    // Instance methods
+    /**
+     * Turns on recording of how many nodes each query goes through, how long it takes and how often nodes get split and merged
+     * <p> With the metrics off nothing gets recorded at all, so they're safe to leave out of release builds and switch on when something looks slow
+     * @return the metrics, which carry on from where they were if they were already on
+     */
+    public QuadtreeMetrics enableMetrics(){
+        if(this.metrics == null){this.metrics = new QuadtreeMetrics();}
+        return this.metrics;
+    }
+    /**
+     * Stops recording metrics; the metrics that were being recorded into keep whatever they had
+     */
+    public void disableMetrics(){this.metrics = null;}
+    /**
+     * Walks the whole tree to work out its shape, which is O(nodes + references) so it's meant for polling every so often rather than every frame
+     * <p> This works whether or not the metrics are on. If they are, the stats are also kept in the metrics so that they can be read from other threads and over JMX
+     * <p> Nothing in the tree is changed, not even the load a {@link SplitPolicy} sees
+     * @return
+     */
+    public QuadtreeStats getStats(){
+        // Each object is counted at the first node in its list so that straddling objects only count once, without having to stamp them
+        int nodeCount = 0, leafCount = 0, objectCount = 0, referenceCount = 0, branchObjectCount = 0, deepestLeaf = 0, overfullLeafCount = 0;
+        long leafDepthTotal = 0;
+        long[] objectsPerLeaf = new long[32];
+        int bucketCount = 1;
+        LinkedList<QuadtreeNode> processStack = new LinkedList<QuadtreeNode>();
+        processStack.push(this.root);
+        while(!processStack.isEmpty()){
+            QuadtreeNode currentNode = processStack.pop();
+            nodeCount++;
+            ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+            referenceCount += objects.size();
+            for(int i = 0; i < objects.size(); i++){
+                if(objects.get(i).getQuadtreeNodes().get(0) == currentNode){objectCount++;}
+            }
+            if(!currentNode.isLeaf()){
+                branchObjectCount += objects.size();
+                processStack.push(currentNode.getNodeFromEnum(Leaf.NE)); processStack.push(currentNode.getNodeFromEnum(Leaf.NW));
+                processStack.push(currentNode.getNodeFromEnum(Leaf.SE)); processStack.push(currentNode.getNodeFromEnum(Leaf.SW));
+                continue;
+            }
+            leafCount++;
+            leafDepthTotal += currentNode.getDepth();
+            deepestLeaf = Math.max(deepestLeaf, currentNode.getDepth());
+            if(objects.size() > peekCapacity(currentNode)){overfullLeafCount++;}
+            int bucket = 32 - Integer.numberOfLeadingZeros(objects.size()); // 0 for empty leaves, otherwise 1 more than the highest bit
+            objectsPerLeaf[bucket]++;
+            bucketCount = Math.max(bucketCount, bucket + 1);
+        }
+        QuadtreeStats returnValue = new QuadtreeStats(nodeCount, leafCount, objectCount, referenceCount, branchObjectCount, deepestLeaf, leafCount == 0 ? 0 : (double) leafDepthTotal / leafCount, overfullLeafCount,
+            Arrays.copyOf(objectsPerLeaf, bucketCount), this.maxChilds, this.maximumDepth, this.minimumLeafSize);
+        QuadtreeMetrics metrics = this.metrics;
+        if(metrics != null){metrics.setTreeStats(returnValue);}
+        return returnValue;
+    }
+    /**
+     * Adds the given object to the quadtree at the position and the size
+     * @param item the object to add
+     * @param position the position to add the object to
+     * @param size the size of the object for the purposes of spatial querying
+     * @return the container wrapping the object, which can be handed back to {@link #update} and {@link #remove(QuadtreeObjectContainer)}
+     */
+    public QuadtreeObjectContainer<Obj> add(Obj item, Vector2 position, Vector2 size){
+        return add(item, position.getX(), position.getY(), size.getX(), size.getY());
+    }
+    /**
+     * Same as {@link #add(Object, Vector2, Vector2)} but with raw numbers
+     * @param item
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @return the container wrapping the object
+     */
+    public QuadtreeObjectContainer<Obj> add(Obj item, float posX, float posY, float sizeX, float sizeY){
+        refreshSnapshots();
+        // Like in our lua code, we want to do a couple of steps
+        //  Depth first search to find the first node that can't fit the item with the size and position specified
+        QuadtreeNode firstNode = getFirstNode(posX, posY, sizeX, sizeY);
+        // Create a container for the item
+        QuadtreeObjectContainer<Obj> container = new QuadtreeObjectContainer<Obj>(sizeX, sizeY, posX, posY, item);
+        insertContainer(firstNode, container);
+        if(this.splitPolicy != null){recordUpdate(container);}
+        if(this.subscriptions != null){notifySubscriptions(container, false, 0, 0, 0, 0, !container.getQuadtreeNodes().isEmpty());}
+        return container;
+    }
+    private void insertContainer(QuadtreeNode firstNode, QuadtreeObjectContainer<Obj> container){
+        // Pushes the container down from firstNode into every leaf it overlaps with, splitting leaves along the way
+        //  yknow what I can probably do it in one pass but im porting my algorithm over
+        //  The order we visit the nodes in doesn't matter so we borrow the traversal stack instead of allocating a queue
+        float posX = container.getPositionX(), posY = container.getPositionY(), sizeX = container.getSizeX(), sizeY = container.getSizeY();
+        if(this.looseness != 0){
+            insertLooseContainer(firstNode, container);
+            return;
+        }
+        int stackBase = this.traversalTop;
+        pushTraversal(firstNode);
+        while(this.traversalTop > stackBase){
+            QuadtreeNode currentNode = this.traversalStack[this.traversalTop - 1]; // We don't pop at first since there's a condition where we need to re-check the same node
+            // if the currentNode is a leaf then check to see if it can be divided
+            if(currentNode.isLeaf()){
+                // If dividing the currentNode means its leaves become smaller than the minimumSize or go past the maximum depth, we don't carry on
+                if(canDivide(currentNode)){
+                    // If the node's objects size is equal to its capacity (maxChilds unless there's a split policy) then split the node
+                    if(currentNode.getObjects().size() >= getCapacity(currentNode)){
+                        // Divide the node, swapping it out for a copy first if a snapshot is holding onto it
+                        currentNode = writable(currentNode);
+                        this.traversalStack[this.traversalTop - 1] = currentNode;
+                        currentNode.divideNode();
+                        if(this.metrics != null){this.metrics.recordSplit();}
+                        // If the depth of the current node  + 1 is greater than the depth set in this instance, set the depth to current node.depth + 1
+                        if(currentNode.getDepth() + 1 > this.depth){this.depth = (byte) (currentNode.getDepth() + 1);}
+                        // And shuffle the children down
+                        moveObjectsToLeaves(currentNode);
+                        continue; // Re-do the check with the new split node
+                    }
+                }
+                // Otherwise, if the leaf can't divide we just insert it to that
+                this.traversalStack[--this.traversalTop] = null;
+                writable(currentNode).addObject(container);
+                continue;
+            }
+            // Pop the node because we're done with it
+            this.traversalStack[--this.traversalTop] = null;
+            //Otherwise, go through each leaf and any nodes that the item with the size at that position overlaps with, push that node to check
+            QuadtreeNode NELeaf = currentNode.getNodeFromEnum(Leaf.NE); 
+            if(intersectsWith(posX, posY, sizeX, sizeY, NELeaf)){pushTraversal(NELeaf);}
+
+            QuadtreeNode NWLeaf = currentNode.getNodeFromEnum(Leaf.NW); 
+            if(intersectsWith(posX, posY, sizeX, sizeY, NWLeaf)){pushTraversal(NWLeaf);}
+
+            QuadtreeNode SELeaf = currentNode.getNodeFromEnum(Leaf.SE); 
+            if(intersectsWith(posX, posY, sizeX, sizeY, SELeaf)){pushTraversal(SELeaf);}
+
+            QuadtreeNode SWLeaf = currentNode.getNodeFromEnum(Leaf.SW); 
+            if(intersectsWith(posX, posY, sizeX, sizeY, SWLeaf)){pushTraversal(SWLeaf);}
+        }
+    }
+    private void insertLooseContainer(QuadtreeNode startNode, QuadtreeObjectContainer<Obj> container){
+        // insertContainer for loose trees; the container goes in the one node that getLooseNode picks, dividing it first if it's a full leaf
+        //  The startNode's loose bounds have to fit the container unless it's the root, which takes whatever doesn't fit anywhere else
+        float posX = container.getPositionX(), posY = container.getPositionY(), sizeX = container.getSizeX(), sizeY = container.getSizeY();
+        QuadtreeNode currentNode = getLooseNode(startNode, posX, posY, sizeX, sizeY);
+        while(currentNode.isLeaf() && canDivide(currentNode) && currentNode.getObjects().size() >= getCapacity(currentNode)){
+            currentNode = writable(currentNode);
+            currentNode.divideNode();
+            if(this.metrics != null){this.metrics.recordSplit();}
+            if(currentNode.getDepth() + 1 > this.depth){this.depth = (byte) (currentNode.getDepth() + 1);}
+            moveObjectsToLooseChildren(currentNode);
+            // The container might fit in one of the new children as well
+            currentNode = getLooseNode(currentNode, posX, posY, sizeX, sizeY);
+        }
+        writable(currentNode).addObject(container);
+    }
+    /**
+     * Replaces everything in the quadtree with the given objects, building the nodes top down in one go instead of adding them one at a time
+     * <p> The objects are sorted by their Morton key first, then each node's objects are split between its children until they'd fit in a leaf. The result follows the same rules for when leaves divide as adding the objects one by one, without any of the re-shuffling, but it won't necessarily be the exact same shape since that depends on the order they're added in
+     * <p> Containers from before the load are left with no nodes, so passing them to {@link #update} re-inserts them
+     * @param items the objects to load
+     * @param positionOf gives the position of each object
+     * @param sizeOf gives the size of each object
+     * @return the containers wrapping the objects, in the same order as the items
+     */
+    public ArrayList<QuadtreeObjectContainer<Obj>> bulkLoad(Collection<? extends Obj> items, Function<? super Obj, Vector2> positionOf, Function<? super Obj, Vector2> sizeOf){
+        refreshSnapshots();
+        ArrayList<QuadtreeObjectContainer<Obj>> containers = new ArrayList<QuadtreeObjectContainer<Obj>>();
+        if(this.subscriptions != null){notifySubscriptionsOfEverything(false);}
+        detachContainers();
+        this.root = new QuadtreeNode(this.root.getSize(), this.root.getPosition(), 0);
+        this.nodeIndex.put(getNodeKey(0, 0), this.root);
+        this.root.divideNode(); this.depth = 1;
+        buildNode(this.root, wrapObjectsByMortonKey(items, positionOf, sizeOf, containers));
+        if(this.subscriptions != null){notifySubscriptionsOfEverything(true);}
+        return containers;
+    }
+    /**
+     * Adds a batch of objects to the quadtree
+     * <p> The objects are sorted by their Morton key so that each one is inserted close to the previous one; rather than starting from the root, each insert walks up from the last object's leaf to the first node that fits it
+     * @param items the objects to add
+     * @param positionOf gives the position of each object
+     * @param sizeOf gives the size of each object
+     * @return the containers wrapping the objects, in the same order as the items
+     */
+    public ArrayList<QuadtreeObjectContainer<Obj>> addAll(Collection<? extends Obj> items, Function<? super Obj, Vector2> positionOf, Function<? super Obj, Vector2> sizeOf){
+        refreshSnapshots();
+        ArrayList<QuadtreeObjectContainer<Obj>> containers = new ArrayList<QuadtreeObjectContainer<Obj>>();
+        ArrayList<QuadtreeObjectContainer<Obj>> sortedContainers = wrapObjectsByMortonKey(items, positionOf, sizeOf, containers);
+        QuadtreeNode previousNode = null;
+        for(int i = 0; i < sortedContainers.size(); i++){
+            QuadtreeObjectContainer<Obj> currentContainer = sortedContainers.get(i);
+            float posX = currentContainer.getPositionX(), posY = currentContainer.getPositionY(), sizeX = currentContainer.getSizeX(), sizeY = currentContainer.getSizeY();
+            QuadtreeNode firstNode;
+            if(previousNode == null){
+                firstNode = getFirstNode(posX, posY, sizeX, sizeY);
+            } else {
+                // Nodes only ever get divided during an insert so the previous object's node is still in the tree
+                firstNode = previousNode;
+                while(firstNode.getParent() != null && !firstNode.fits(posX, posY, sizeX, sizeY)){firstNode = firstNode.getParent();}
+            }
+            insertContainer(firstNode, currentContainer);
+            ArrayList<QuadtreeNode> containerNodes = currentContainer.getQuadtreeNodes();
+            previousNode = containerNodes.isEmpty() ? null : containerNodes.get(0);
+            if(this.subscriptions != null){notifySubscriptions(currentContainer, false, 0, 0, 0, 0, !containerNodes.isEmpty());}
+        }
+        return containers;
+    }
+    /**
+     * Moves and/or resizes an object that's already in the quadtree
+     * <p> If the object still fits inside the one leaf it was in, only the stored bounds change. Otherwise the object is pulled out of its leaves and pushed back down from the lowest node that holds both its old leaves and its new bounds, rather than from the root
+     * @param object the container returned by {@link #add}
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     */
+    public void update(QuadtreeObjectContainer<Obj> object, float posX, float posY, float sizeX, float sizeY){
+        refreshSnapshots();
+        ArrayList<QuadtreeNode> objectNodes = object.getQuadtreeNodes();
+        float oldPosX = object.getPositionX(), oldPosY = object.getPositionY(), oldSizeX = object.getSizeX(), oldSizeY = object.getSizeY(); // For the subscriptions
+        // If the object has been removed (or never found a leaf) then this is just an insert
+        if(objectNodes.isEmpty()){
+            setContainerBounds(object, sizeX, sizeY, posX, posY);
+            insertContainer(getFirstNode(posX, posY, sizeX, sizeY), object);
+            if(this.splitPolicy != null){recordUpdate(object);}
+            if(this.subscriptions != null){notifySubscriptions(object, false, 0, 0, 0, 0, !objectNodes.isEmpty());}
+            return;
+        }
+        // Most moves are small so the object usually stays within the same leaf, in which case nothing in the tree has to change
+        //  In a loose tree it can stay in any node that still fits it, unless it's shrunk enough that it would now go further down
+        QuadtreeNode currentNode = objectNodes.get(0);
+        if(objectNodes.size() == 1 && currentNode.fits(posX, posY, sizeX, sizeY)){
+            Vector2 currentNodePos = currentNode.getPosition();
+            if(currentNode.isLeaf() || !currentNode.getNodeFromEnum(getLeafQuadrant(currentNodePos.getX(), currentNodePos.getY(), posX, posY)).fits(posX, posY, sizeX, sizeY)){
+                setContainerBounds(object, sizeX, sizeY, posX, posY);
+                if(this.splitPolicy != null){recordLoad(currentNode, 0, 1);}
+                if(this.subscriptions != null){notifySubscriptions(object, true, oldPosX, oldPosY, oldSizeX, oldSizeY, true);}
+                return;
+            }
+        }
+        // Otherwise pull the object out first, since that swaps any nodes a snapshot is holding onto for copies and leaves us with the ones that are actually in the tree
+        int unlinkedCount = unlinkContainer(object);
+        // Then find the lowest node that has every leaf the object was in
+        QuadtreeNode ancestor = this.unlinkedNodes[0];
+        for(int i = 1; i < unlinkedCount; i++){ancestor = getCommonAncestor(ancestor, this.unlinkedNodes[i]);}
+        // And walk up from there until we hit a node that can also fit the new bounds (or the root if nothing can)
+        while(ancestor.getParent() != null && !ancestor.fits(posX, posY, sizeX, sizeY)){ancestor = ancestor.getParent();}
+        setContainerBounds(object, sizeX, sizeY, posX, posY);
+        insertContainer(ancestor, object);
+        if(this.splitPolicy != null){recordUpdate(object);}
+        // Only collapse once the object is back in, otherwise the ancestor could get merged away from under us
+        collapseUnlinkedNodes(unlinkedCount);
+        if(this.subscriptions != null){notifySubscriptions(object, true, oldPosX, oldPosY, oldSizeX, oldSizeY, !objectNodes.isEmpty());}
+    }
+    /**
+     * Same as {@link #update(QuadtreeObjectContainer, float, float, float, float)} but with vectors
+     * @param object the container returned by {@link #add}
+     * @param position the new position of the object
+     * @param size the new size of the object
+     */
+    public void update(QuadtreeObjectContainer<Obj> object, Vector2 position, Vector2 size){
+        update(object, position.getX(), position.getY(), size.getX(), size.getY());
+    }
+    /**
+     * Removes the given object from the quadtree given a quadtree container
+     * <p> The container is the one returned by {@link #add}, which is the cheapest way to remove an object since it already knows every node it's in
+     * @param object
+     */
+    public void remove(QuadtreeObjectContainer<Obj> object){
+        refreshSnapshots();
+        if(this.splitPolicy != null){recordUpdate(object);}
+        boolean wasInTree = !object.getQuadtreeNodes().isEmpty();
+        // Since every instance is a reference, we can probably just get away with going through every node in the object's container
+        int unlinkedCount = unlinkContainer(object);
+        // Then merge any leaves that have become too sparse
+        collapseUnlinkedNodes(unlinkedCount);
+        if(this.subscriptions != null){notifySubscriptions(object, wasInTree, object.getPositionX(), object.getPositionY(), object.getSizeX(), object.getSizeY(), false);}
+    }
+    /**
+     * Removes the given object using the position placed at to fnd the object in question
+     * <p> This only looks in the leaf at the position (or in a loose tree, the nodes whose loose bounds hold it), so objects that have moved since being added should be removed through their container instead
+     * @param object
+     * @param position
+     */
+    public void remove(Obj object, Vector2 position){
+        // Navigates to the first node that fits that position to grab the object that matches the memory address of the given object
+        if(this.looseness != 0){
+            removeLooseObject(object, position.getX(), position.getY());
+            return;
+        }
+        QuadtreeNode firstNode = this.getNodeAtPosition(position);
+        ArrayList<QuadtreeObjectContainer<Obj>> objects = firstNode.getObjects();
+        for(int i = 0; i < objects.size(); i++){
+            QuadtreeObjectContainer<Obj> currentContainer = objects.get(i);
+            if(currentContainer.getInstance() == object){
+                this.remove(currentContainer);
+                break;
+            }
+        }
+    }
+    private void removeLooseObject(Obj object, float pointX, float pointY){
+        // An object's centre is always inside the loose bounds of the node it's in, but that isn't necessarily a node on the way down to the centre
+        //  so we look through every node whose loose bounds hold the point, the same ones visitLooseObjectsAtPoint goes through
+        int stackBase = this.traversalTop;
+        QuadtreeObjectContainer<Obj> foundContainer = null;
+        pushTraversal(this.root);
+        while(this.traversalTop > stackBase && foundContainer == null){
+            QuadtreeNode currentNode = this.traversalStack[--this.traversalTop];
+            this.traversalStack[this.traversalTop] = null;
+            ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+            for(int i = 0; i < objects.size(); i++){
+                if(objects.get(i).getInstance() == object){
+                    foundContainer = objects.get(i);
+                    break;
+                }
+            }
+            if(currentNode.isLeaf()){continue;}
+            if(overlapsNode(pointX, pointY, 0, 0, currentNode.NE)){pushTraversal(currentNode.NE);}
+            if(overlapsNode(pointX, pointY, 0, 0, currentNode.NW)){pushTraversal(currentNode.NW);}
+            if(overlapsNode(pointX, pointY, 0, 0, currentNode.SE)){pushTraversal(currentNode.SE);}
+            if(overlapsNode(pointX, pointY, 0, 0, currentNode.SW)){pushTraversal(currentNode.SW);}
+        }
+        while(this.traversalTop > stackBase){this.traversalStack[--this.traversalTop] = null;}
+        if(foundContainer != null){this.remove(foundContainer);}
+    }
+    /**
+     * Decodes the given geohash to locate the leaf that the geohash corresponds to
+     * <p> A geohash on its own doesn't say how deep its node is, so this follows the digits down until it reaches a leaf. Use {@link #hasNode(long, int)}, {@link #getNodePosition(long, int)} and {@link #getNodeSize(long, int)} to look up nodes that aren't leaves
+     */
+    public QuadtreeNode getNodeFromGeohash(long geohash){
+        // Follow the digits down from the root, the first layer's digit being the lowest 2 bits, until there's nowhere further to go
+        //  There's only ever one child to descend into so this doesn't need a stack
+        QuadtreeNode currentNode = this.root;
+        while(!currentNode.isLeaf()){
+            // Shift the digits of the layer below this node down to the bottom so that our range is back in [0, 3]
+            long maskedBits = (geohash >>> (currentNode.getDepth() << 1)) & 3;
+            if(maskedBits == 0){ // SE
+                currentNode = currentNode.getNodeFromEnum(Leaf.SE);
+            }else if(maskedBits == 1){ // SW
+                currentNode = currentNode.getNodeFromEnum(Leaf.SW);
+            }else if(maskedBits == 2){ // NE
+                currentNode = currentNode.getNodeFromEnum(Leaf.NE);
+            }else { // NW
+                currentNode = currentNode.getNodeFromEnum(Leaf.NW);
+            }
+        }
+        // Since 00 is a perfectly valid geohash digit, we check the leaf's geohash against the one we were given to make sure it doesn't have digits past the leaf
+        if(currentNode.getGeohash() != geohash){throw new IllegalArgumentException("Given geohash of "+ String.valueOf(geohash) + " does not match node");}
+        return currentNode;
+    }
+    /**
+     * Computes the geohash of the node at the given depth that the point falls in, whether or not the tree is divided that far there
+     * <p> The point picks the same quadrant at each layer as it would when looking for the leaf at that point, so these are the same digits as {@link #getMortonCode(float, float)} but with the first layer's digit at the bottom
+     * @param pointX
+     * @param pointY
+     * @param depth how many digits the geohash has, 0 being the root
+     * @return
+     */
+    public long getGeohash(float pointX, float pointY, int depth){
+        checkGeohashDepth(depth);
+        Vector2 rootPos = this.root.getPosition(), rootSize = this.root.getSize();
+        float centreX = rootPos.getX(), centreY = rootPos.getY(), halfX = rootSize.getX()/2, halfY = rootSize.getY()/2;
+        long returnValue = 0;
+        for(int level = 1; level <= depth; level++){
+            Leaf quadrant = getLeafQuadrant(centreX, centreY, pointX, pointY);
+            returnValue = computeGeohash(returnValue, quadrant, level);
+            halfX /= 2; halfY /= 2;
+            centreX += (quadrant == Leaf.NE || quadrant == Leaf.SE) ? halfX : -halfX;
+            centreY += (quadrant == Leaf.NE || quadrant == Leaf.NW) ? halfY : -halfY;
+        }
+        return returnValue;
+    }
+    /**
+     * Checks the index for a node with the given geohash and depth, without walking down the tree
+     * @param geohash
+     * @param depth how many digits the geohash has, 0 being the root
+     * @return false if the tree isn't divided that far there
+     */
+    public boolean hasNode(long geohash, int depth){return getNodeFromGeohash(geohash, depth) != null;}
+    /**
+     * Looks up the centre of the node with the given geohash and depth, see {@link #hasNode(long, int)}
+     * @param geohash
+     * @param depth
+     * @return the node's position, or null if the tree isn't divided that far there
+     */
+    public Vector2 getNodePosition(long geohash, int depth){
+        QuadtreeNode node = getNodeFromGeohash(geohash, depth);
+        return node != null ? node.getPosition() : null;
+    }
+    /**
+     * Looks up the size of the node with the given geohash and depth, see {@link #hasNode(long, int)}
+     * @param geohash
+     * @param depth
+     * @return the node's size, or null if the tree isn't divided that far there
+     */
+    public Vector2 getNodeSize(long geohash, int depth){
+        QuadtreeNode node = getNodeFromGeohash(geohash, depth);
+        return node != null ? node.getSize() : null;
+    }
+    /**
+     * Computes the Morton code of the point, see {@link #computeMortonCode(long, int)}
+     * <p> The point lands in the same cell as it would when looking for the leaf at that point, so it falls in that leaf's Morton interval
+     * @param pointX
+     * @param pointY
+     * @return
+     */
+    public long getMortonCode(float pointX, float pointY){
+        // Walks the point down every layer of (imaginary) quadrants, halving the same way divideNode does so that the split lines match up exactly
+        Vector2 rootPos = this.root.getPosition(), rootSize = this.root.getSize();
+        float centreX = rootPos.getX(), centreY = rootPos.getY(), halfX = rootSize.getX()/2, halfY = rootSize.getY()/2;
+        long returnValue = 0;
+        for(int level = 0; level < mortonLevels; level++){
+            Leaf quadrant = getLeafQuadrant(centreX, centreY, pointX, pointY);
+            returnValue = (returnValue << 2) | getGeohashDigit(quadrant);
+            halfX /= 2; halfY /= 2;
+            centreX += (quadrant == Leaf.NE || quadrant == Leaf.SE) ? halfX : -halfX;
+            centreY += (quadrant == Leaf.NE || quadrant == Leaf.NW) ? halfY : -halfY;
+        }
+        return returnValue;
+    }
+    /**
+     * Finds every leaf that overlaps with the area and hands them back as ranges of Morton codes, see {@link #computeMortonCode(long, int)}
+     * <p> The codes follow the mirrored Z-order, so a range runs from the bottom right of its first leaf, and leaves next to each other on the map can still land in ranges far apart.
+     * Each pair of numbers is the first code of a range and the code just after its end. The ranges come sorted and ranges that touch are merged, so the result is as short as it can be
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @return the start and end of each range, one after the other
+     */
+    public long[] getLeafIntervalsInArea(float posX, float posY, float sizeX, float sizeY){
+        Traversal traversal = this.readerTraversals.get();
+        try{return readLeafIntervalsInArea(traversal, posX, posY, sizeX, sizeY);} finally {traversal.clear();}
+    }
+    /**
+     * Fetches all objects that are within the node closest to the point
+     * <p> this doesn't filter any farther by checking for overlaps between the objects and point notably
+     * @param point
+     * @return
+     */
+    public ArrayList<Obj> getObjectsAtPoint(Vector2 point){
+        // So the issue is that we can't have an array of generic types without doing something stupid
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        visitObjectsAtPoint(point.getX(), point.getY(), false, returnValue, null);
+        return returnValue;
+    }
+    /**
+     * Fetches all the objects that fall within the nodes that overlap with the size at the position
+     * <p> Notably, this also doesn't do any further filtering to exclude objectst that aren't explicitly overlapping with the rectange defined by the size and position
+     * @param position
+     * @param size
+     * @return
+     */
+    public ArrayList<Obj> getObjectsInArea(Vector2 position, Vector2 size){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        visitObjectsInArea(position.getX(), position.getY(), size.getX(), size.getY(), false, returnValue, null);
+        return returnValue;
+    }
+    // And yknow the overloads to those
+    /**
+     * Same as {@link #getObjectsAtPoint(Vector2)} but appends the objects to a collection owned by the caller so that nothing gets allocated per call
+     * @param pointX
+     * @param pointY
+     * @param sink the collection to add the objects to; it isn't cleared beforehand
+     * @return the number of objects added to the sink
+     */
+    public int getObjectsAtPoint(float pointX, float pointY, Collection<? super Obj> sink){
+        return visitObjectsAtPoint(pointX, pointY, false, sink, null);
+    }
+    /**
+     * Same as {@link #getObjectsInArea(Vector2, Vector2)} but appends the objects to a collection owned by the caller so that nothing gets allocated per call
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @param sink the collection to add the objects to; it isn't cleared beforehand
+     * @return the number of objects added to the sink
+     */
+    public int getObjectsInArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink){
+        return visitObjectsInArea(posX, posY, sizeX, sizeY, false, sink, null);
+    }
+    /**
+     * Hands every object in the node closest to the point to the visitor instead of collecting them
+     * @param pointX
+     * @param pointY
+     * @param visitor
+     * @return the number of objects visited
+     */
+    public int forEachObjectAtPoint(float pointX, float pointY, Consumer<? super Obj> visitor){
+        return visitObjectsAtPoint(pointX, pointY, false, null, visitor);
+    }
+    /**
+     * Hands every object in the nodes that overlap with the area to the visitor instead of collecting them
+     * <p> The visitor is free to run other queries on this tree while it's being called
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @param visitor
+     * @return the number of objects visited
+     */
+    public int forEachObjectInArea(float posX, float posY, float sizeX, float sizeY, Consumer<? super Obj> visitor){
+        return visitObjectsInArea(posX, posY, sizeX, sizeY, false, null, visitor);
+    }
+    /**
+     * Fetches every object whose own bounds overlap with the rectangle defined by the size and position
+     * <p> Unlike {@link #getObjectsInArea(Vector2, Vector2)} each object only shows up once, even if it sits in more than one node, and objects that only share a node with the area are left out
+     * <p> Objects that merely touch the edge of the area don't count as overlapping, the same as when they're inserted into nodes
+     * @param position
+     * @param size
+     * @return
+     */
+    public ArrayList<Obj> getObjectsIntersectingArea(Vector2 position, Vector2 size){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        visitObjectsInArea(position.getX(), position.getY(), size.getX(), size.getY(), true, returnValue, null);
+        return returnValue;
+    }
+    /**
+     * Fetches every object whose own bounds contain the point, edges included
+     * @param point
+     * @return
+     */
+    public ArrayList<Obj> getObjectsContainingPoint(Vector2 point){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        visitObjectsAtPoint(point.getX(), point.getY(), true, returnValue, null);
+        return returnValue;
+    }
+    /**
+     * Same as {@link #getObjectsIntersectingArea(Vector2, Vector2)} but appends the objects to a collection owned by the caller
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @param sink the collection to add the objects to; it isn't cleared beforehand
+     * @return the number of objects added to the sink
+     */
+    public int getObjectsIntersectingArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink){
+        return visitObjectsInArea(posX, posY, sizeX, sizeY, true, sink, null);
+    }
+    /**
+     * Same as {@link #getObjectsContainingPoint(Vector2)} but appends the objects to a collection owned by the caller
+     * @param pointX
+     * @param pointY
+     * @param sink the collection to add the objects to; it isn't cleared beforehand
+     * @return the number of objects added to the sink
+     */
+    public int getObjectsContainingPoint(float pointX, float pointY, Collection<? super Obj> sink){
+        return visitObjectsAtPoint(pointX, pointY, true, sink, null);
+    }
+    /**
+     * Hands every object whose bounds overlap with the area to the visitor exactly once
+     * <p> The objects are all found before the first one is handed over, so the visitor is free to run other queries on this tree, exact ones included
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @param visitor
+     * @return the number of objects visited
+     */
+    public int forEachObjectIntersectingArea(float posX, float posY, float sizeX, float sizeY, Consumer<? super Obj> visitor){
+        return visitObjectsInArea(posX, posY, sizeX, sizeY, true, null, visitor);
+    }
+    /**
+     * Hands every object whose bounds contain the point to the visitor
+     * @param pointX
+     * @param pointY
+     * @param visitor
+     * @return the number of objects visited
+     */
+    public int forEachObjectContainingPoint(float pointX, float pointY, Consumer<? super Obj> visitor){
+        return visitObjectsAtPoint(pointX, pointY, true, null, visitor);
+    }
+    /**
+     * Fetches the object whose bounds are closest to the point
+     * @param point
+     * @return the closest object, or null if the tree is empty
+     */
+    public Obj nearest(Vector2 point){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(1);
+        visitNearestObjects(point.getX(), point.getY(), 1, Float.POSITIVE_INFINITY, false, returnValue);
+        return returnValue.isEmpty() ? null : returnValue.get(0);
+    }
+    /**
+     * Fetches up to k objects whose bounds are within maxDistance of the point, closest first
+     * <p> The distance to an object is measured to the closest point on its bounds, so it's 0 for any object the point is inside of
+     * @param point
+     * @param k how many objects to return at most
+     * @param maxDistance how far away from the point an object can be, inclusive
+     * @return
+     */
+    public ArrayList<Obj> kNearest(Vector2 point, int k, float maxDistance){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(Math.min(k, 16));
+        visitNearestObjects(point.getX(), point.getY(), k, maxDistance, false, returnValue);
+        return returnValue;
+    }
+    /**
+     * Same as {@link #kNearest(Vector2, int, float)} but appends the objects to a collection owned by the caller, closest first
+     * @param pointX
+     * @param pointY
+     * @param k how many objects to return at most
+     * @param maxDistance how far away from the point an object can be, inclusive
+     * @param sink the collection to add the objects to; it isn't cleared beforehand
+     * @return the number of objects added to the sink
+     */
+    public int kNearest(float pointX, float pointY, int k, float maxDistance, Collection<? super Obj> sink){
+        return visitNearestObjects(pointX, pointY, k, maxDistance, false, sink);
+    }
+    /**
+     * Fetches the first object whose bounds the ray hits, e.g. for line of sight or what a projectile hits
+     * <p> Only the nodes the ray passes through are looked at, nearest first, and it stops as soon as nothing further along can be any closer. An object's edges count, and one the ray starts inside of is hit straight away.
+     * Like the area queries, hits outside of the tree aren't found
+     * @param origin where the ray starts
+     * @param direction which way the ray goes; it doesn't need to be normalised but can't be 0
+     * @param maxDistance how far the ray goes, inclusive
+     * @return the object hit first, or null if the ray doesn't hit anything
+     */
+    public Obj raycast(Vector2 origin, Vector2 direction, float maxDistance){
+        return raycast(origin.getX(), origin.getY(), direction.getX(), direction.getY(), maxDistance);
+    }
+    /**
+     * Same as {@link #raycast(Vector2, Vector2, float)} but with raw numbers
+     * @param originX
+     * @param originY
+     * @param directionX
+     * @param directionY
+     * @param maxDistance
+     * @return the object hit first, or null if the ray doesn't hit anything
+     */
+    public Obj raycast(float originX, float originY, float directionX, float directionY, float maxDistance){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(1);
+        float magnitude = getRayMagnitude(directionX, directionY, maxDistance);
+        Traversal traversal = this.readerTraversals.get();
+        try{readRayHits(traversal, originX, originY, directionX / magnitude, directionY / magnitude, maxDistance, true, returnValue);} finally {traversal.clear();}
+        return returnValue.isEmpty() ? null : returnValue.get(0);
+    }
+    /**
+     * Fetches every object whose bounds the line segment between the two points hits, in the order the segment reaches them going from start to end
+     * <p> Objects the segment reaches at exactly the same point come in no particular order. Otherwise this works like {@link #raycast(Vector2, Vector2, float)}, except it has to go all the way to the end
+     * @param start
+     * @param end
+     * @return
+     */
+    public ArrayList<Obj> segmentQuery(Vector2 start, Vector2 end){
+        ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+        segmentQuery(start.getX(), start.getY(), end.getX(), end.getY(), returnValue);
+        return returnValue;
+    }
+    /**
+     * Same as {@link #segmentQuery(Vector2, Vector2)} but appends the objects to a collection owned by the caller
+     * @param startX
+     * @param startY
+     * @param endX
+     * @param endY
+     * @param sink the collection to add the objects to; it isn't cleared beforehand
+     * @return the number of objects added to the sink
+     */
+    public int segmentQuery(float startX, float startY, float endX, float endY, Collection<? super Obj> sink){
+        // Measured in lengths of the segment, so it runs from 0 to 1
+        Traversal traversal = this.readerTraversals.get();
+        try{return readRayHits(traversal, startX, startY, endX - startX, endY - startY, 1, false, sink);} finally {traversal.clear();}
+    }
+    /**
+     * Hands every pair of objects whose bounds overlap to the visitor, each pair exactly once
+     * <p> This walks the tree once and only tests objects against the others in the same leaf, which is a lot cheaper than an area query per object.
+     * Objects sitting in several leaves get tested in each of them, so a pair is only handed over from the one leaf out of those they share that ownsOverlap picks
+     * <p> Like the area queries, touching edges don't count and overlaps that lie entirely outside of the tree aren't found. The visitor can query the tree but mustn't change it
+     * <p> Loose trees can't get away with only looking inside each node since their nodes overlap, so there the tree is walked in pairs of nodes instead.
+     * Each node's objects are tested against each other and against the nodes below it, and two unrelated nodes are only opened up if their loose bounds overlap
+     * @param visitor
+     * @return the number of pairs handed over
+     */
+    public int forEachOverlappingPair(BiConsumer<? super Obj, ? super Obj> visitor){
+        if(this.looseness != 0){return forEachOverlappingLoosePair(visitor);}
+        Traversal traversal = takePairTraversal();
+        int visited = 0;
+        try{
+            traversal.push(this.root, 0, 0, 0, 0);
+            while(traversal.top > 0){
+                int index = --traversal.top;
+                QuadtreeNode currentNode = traversal.nodes[index];
+                traversal.nodes[index] = null;
+                if(!currentNode.isLeaf()){
+                    traversal.push(currentNode.getNodeFromEnum(Leaf.NE), 0, 0, 0, 0);
+                    traversal.push(currentNode.getNodeFromEnum(Leaf.NW), 0, 0, 0, 0);
+                    traversal.push(currentNode.getNodeFromEnum(Leaf.SE), 0, 0, 0, 0);
+                    traversal.push(currentNode.getNodeFromEnum(Leaf.SW), 0, 0, 0, 0);
+                    continue;
+                }
+                ArrayList<QuadtreeObjectContainer<Obj>> objects = currentNode.getObjects();
+                for(int i = 0; i < objects.size(); i++){
+                    QuadtreeObjectContainer<Obj> firstContainer = objects.get(i);
+                    // If either object is only in this leaf then this is the only place the pair can come up, so we can skip looking for the leaf that owns it
+                    boolean firstOnlyHere = firstContainer.getQuadtreeNodes().size() == 1;
+                    for(int l = i + 1; l < objects.size(); l++){
+                        QuadtreeObjectContainer<Obj> secondContainer = objects.get(l);
+                        if(!firstContainer.intersects(secondContainer.positionX, secondContainer.positionY, secondContainer.sizeX, secondContainer.sizeY)){continue;}
+                        if(!firstOnlyHere && secondContainer.getQuadtreeNodes().size() != 1
+                                && !ownsOverlap(this.root, currentNode, firstContainer.positionX, firstContainer.positionY, firstContainer.sizeX, firstContainer.sizeY, secondContainer.positionX, secondContainer.positionY, secondContainer.sizeX, secondContainer.sizeY)){continue;}
+                        visitor.accept(firstContainer.getInstance(), secondContainer.getInstance());
+                        visited++;
+                    }
+                }
+            }
+        } finally {
+            traversal.clear();
+            this.pairTraversal = traversal;
+        }
+        return visited;
+    }
+    private int forEachOverlappingLoosePair(BiConsumer<? super Obj, ? super Obj> visitor){
+        // Walks the tree in pairs of nodes rather than running a query per object. The stack holds two nodes per entry, where a node paired with itself stands for every pair inside its subtree
+        //  Inside a node's subtree that's the pairs within the node, the node's objects against everything below it, then each child with itself and each two children whose loose bounds overlap
+        //  Two different nodes stand for every pair with one object from each subtree, which splits up the same way; child loose bounds sit inside their parent's so nothing gets pruned that could overlap
+        //  Each pair of objects has exactly one pair of nodes where one of them is first reached, so each is handed over once
+        Traversal traversal = takePairTraversal();
+        int visited = 0;
+        try{
+            traversal.push(this.root, 0, 0, 0, 0); traversal.push(this.root, 0, 0, 0, 0);
+            while(traversal.top > 0){
+                QuadtreeNode secondNode = traversal.nodes[--traversal.top];
+                QuadtreeNode firstNode = traversal.nodes[--traversal.top];
+                traversal.nodes[traversal.top] = null; traversal.nodes[traversal.top + 1] = null;
+                ArrayList<QuadtreeObjectContainer<Obj>> firstObjects = firstNode.getObjects();
+                if(firstNode == secondNode){
+                    for(int i = 0; i < firstObjects.size(); i++){
+                        QuadtreeObjectContainer<Obj> firstContainer = firstObjects.get(i);
+                        for(int l = i + 1; l < firstObjects.size(); l++){
+                            QuadtreeObjectContainer<Obj> secondContainer = firstObjects.get(l);
+                            if(!firstContainer.intersects(secondContainer.positionX, secondContainer.positionY, secondContainer.sizeX, secondContainer.sizeY)){continue;}
+                            visitor.accept(firstContainer.getInstance(), secondContainer.getInstance());
+                            visited++;
+                        }
+                    }
+                    if(firstNode.isLeaf()){continue;}
+                    for(Leaf first : leaves){
+                        QuadtreeNode firstChild = firstNode.getNodeFromEnum(first);
+                        visited += visitObjectsAgainstSubtree(firstObjects, firstChild, traversal, visitor);
+                        traversal.push(firstChild, 0, 0, 0, 0); traversal.push(firstChild, 0, 0, 0, 0);
+                        for(int l = first.ordinal() + 1; l < 4; l++){
+                            QuadtreeNode secondChild = firstNode.getNodeFromEnum(leaves[l]);
+                            if(looseBoundsOverlap(firstChild, secondChild)){traversal.push(firstChild, 0, 0, 0, 0); traversal.push(secondChild, 0, 0, 0, 0);}
+                        }
+                    }
+                    continue;
+                }
+                // Objects in firstNode against all of secondNode's subtree, then secondNode's objects against what's below firstNode, leaving the children of both
+                visited += visitObjectsAgainstSubtree(firstObjects, secondNode, traversal, visitor);
+                if(firstNode.isLeaf()){continue;}
+                for(Leaf first : leaves){
+                    QuadtreeNode firstChild = firstNode.getNodeFromEnum(first);
+                    if(!looseBoundsOverlap(firstChild, secondNode)){continue;}
+                    visited += visitObjectsAgainstSubtree(secondNode.getObjects(), firstChild, traversal, visitor);
+                    if(secondNode.isLeaf()){continue;}
+                    for(Leaf second : leaves){
+                        QuadtreeNode secondChild = secondNode.getNodeFromEnum(second);
+                        if(looseBoundsOverlap(firstChild, secondChild)){traversal.push(firstChild, 0, 0, 0, 0); traversal.push(secondChild, 0, 0, 0, 0);}
+                    }
+                }
+            }
+        } finally {
+            traversal.clear();
+            this.pairTraversal = traversal;
+        }
+        return visited;
+    }
+    private int visitObjectsAgainstSubtree(ArrayList<QuadtreeObjectContainer<Obj>> objects, QuadtreeNode node, Traversal traversal, BiConsumer<? super Obj, ? super Obj> visitor){
+        // Hands over every overlapping pair between the objects and the objects anywhere in the node's subtree, using the top of the traversal and leaving it as it was
+        //  Each object only goes down into the nodes its own bounds reach, the same as an area query but starting from the node
+        int visited = 0, base = traversal.top;
+        for(int i = 0; i < objects.size(); i++){
+            QuadtreeObjectContainer<Obj> firstContainer = objects.get(i);
+            float posX = firstContainer.positionX, posY = firstContainer.positionY, sizeX = firstContainer.sizeX, sizeY = firstContainer.sizeY;
+            if(overlapsNode(posX, posY, sizeX, sizeY, node)){traversal.push(node, 0, 0, 0, 0);}
+            while(traversal.top > base){
+                QuadtreeNode currentNode = traversal.nodes[--traversal.top];
+                traversal.nodes[traversal.top] = null;
+                if(!currentNode.isLeaf()){
+                    if(overlapsNode(posX, posY, sizeX, sizeY, currentNode.NE)){traversal.push(currentNode.NE, 0, 0, 0, 0);}
+                    if(overlapsNode(posX, posY, sizeX, sizeY, currentNode.NW)){traversal.push(currentNode.NW, 0, 0, 0, 0);}
+                    if(overlapsNode(posX, posY, sizeX, sizeY, currentNode.SE)){traversal.push(currentNode.SE, 0, 0, 0, 0);}
+                    if(overlapsNode(posX, posY, sizeX, sizeY, currentNode.SW)){traversal.push(currentNode.SW, 0, 0, 0, 0);}
+                }
+                ArrayList<QuadtreeObjectContainer<Obj>> nodeObjects = currentNode.getObjects();
+                for(int l = 0; l < nodeObjects.size(); l++){
+                    QuadtreeObjectContainer<Obj> secondContainer = nodeObjects.get(l);
+                    if(!firstContainer.intersects(secondContainer.positionX, secondContainer.positionY, secondContainer.sizeX, secondContainer.sizeY)){continue;}
+                    visitor.accept(firstContainer.getInstance(), secondContainer.getInstance());
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+    private Traversal takePairTraversal(){
+        // The pair walks keep their own stack so the visitor is free to run queries. It's handed back once the walk is over, so a visitor that starts a walk of its own gets a new one
+        Traversal returnValue = this.pairTraversal;
+        this.pairTraversal = null;
+        return returnValue == null ? new Traversal() : returnValue;
+    }
+    /**
+     * Writes the quadtree out in a compact binary format, which {@link #load} can read back without re-inserting anything and {@link MappedQuadtree} can query in place
+     * <p> The nodes are written exactly as they are along with the bounds of every object, but the objects themselves are stood in for by an id
+     * @param channel where to write to; it isn't closed afterwards
+     * @param idOf gives the id to save each object as
+     * @throws IOException
+     */
+    public void save(WritableByteChannel channel, ToLongFunction<? super Obj> idOf) throws IOException{
+        writeTree(this.root, -1, channel, idOf);
+    }
+    /**
+     * Same as {@link #save(WritableByteChannel, ToLongFunction)} but to a file, which gets replaced if it's already there
+     * @param file
+     * @param idOf
+     * @throws IOException
+     */
+    public void save(Path file, ToLongFunction<? super Obj> idOf) throws IOException{
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+            save(channel, idOf);
+        }
+    }
+    /**
+     * Replaces everything in the quadtree with what was saved by {@link #save}, rebuilding the nodes as they were instead of adding the objects one at a time
+     * <p> The tree takes on the bounds, maximum depth and other settings that were saved with it, except for the looseness which has to match. Containers from before the load are left with no nodes, the same as with {@link #bulkLoad}
+     * @param channel where to read from; it isn't closed afterwards
+     * @param objectOf gives the object for each saved id
+     * @return the containers wrapping the objects, in the order they were saved in
+     * @throws IOException if the channel doesn't hold a quadtree that this version can read, or it was saved from a tree with a different looseness
+     */
+    public ArrayList<QuadtreeObjectContainer<Obj>> load(ReadableByteChannel channel, LongFunction<? extends Obj> objectOf) throws IOException{
+        refreshSnapshots();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(fileBufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip(); // Start off with nothing to read
+        fillBuffer(channel, buffer, fileHeaderSize);
+        if(buffer.getInt() != fileMagic){throw new IOException("Not a quadtree file");}
+        int version = buffer.getInt();
+        if(version != fileVersion){throw new IOException("Can't read version " + String.valueOf(version) + " quadtree files");}
+        Vector2 rootPosition = new Vector2(buffer.getFloat(), buffer.getFloat()), rootSize = new Vector2(buffer.getFloat(), buffer.getFloat());
+        int maximumDepth = buffer.getInt(), maxChilds = buffer.getInt(), collapseThreshold = buffer.getInt();
+        Vector2 minimumLeafSize = new Vector2(buffer.getFloat(), buffer.getFloat());
+        int treeDepth = buffer.getInt(), nodeCount = buffer.getInt(), objectCount = buffer.getInt(), referenceCount = buffer.getInt();
+        float looseness = buffer.getFloat();
+        // Snapshots query with the tree's looseness, so it can't change out from under them
+        if(looseness != this.looseness){throw new IOException("Quadtree file has a looseness of " + String.valueOf(looseness) + " but the tree has " + String.valueOf(this.looseness));}
+        if(maximumDepth < 1 || maximumDepth > 31 || collapseThreshold < 0 || collapseThreshold >= maxChilds || treeDepth < 0 || treeDepth > 31){throw new IOException("Quadtree file has invalid settings");}
+        if(nodeCount < 1 || (nodeCount - 1) % 4 != 0 || objectCount < 0 || referenceCount < 0){throw new IOException("Quadtree file has invalid counts");}
+        QuadtreeNode[] nodes = newNodeArray(nodeCount);
+        int[] firstChilds = new int[nodeCount], objectCounts = new int[nodeCount];
+        long nodeObjectCount = 0;
+        for(int i = 0; i < nodeCount; i++){
+            fillBuffer(channel, buffer, fileNodeSize);
+            Vector2 position = new Vector2(buffer.getFloat(), buffer.getFloat()), size = new Vector2(buffer.getFloat(), buffer.getFloat());
+            long geohash = buffer.getLong();
+            nodes[i] = new QuadtreeNode(size, position, buffer.getInt());
+            nodes[i].geohash = geohash;
+            firstChilds[i] = buffer.getInt();
+            buffer.getInt(); // The first object index is only there for MappedQuadtree, here they're just read in order
+            objectCounts[i] = buffer.getInt();
+            if(objectCounts[i] < 0 || (firstChilds[i] != -1 && (firstChilds[i] <= i || firstChilds[i] > nodeCount - 4))){throw new IOException("Quadtree file has an invalid node");}
+            if(firstChilds[i] != -1 && objectCounts[i] != 0 && looseness == 0){throw new IOException("Quadtree file has objects outside of its leaves");}
+            nodeObjectCount += objectCounts[i];
+        }
+        if(nodeObjectCount != referenceCount){throw new IOException("Quadtree file's nodes don't add up to its object lists");}
+        ArrayList<QuadtreeObjectContainer<Obj>> containers = new ArrayList<QuadtreeObjectContainer<Obj>>(objectCount);
+        for(int i = 0; i < objectCount; i++){
+            fillBuffer(channel, buffer, fileObjectSize);
+            Obj instance = objectOf.apply(buffer.getLong());
+            float posX = buffer.getFloat(), posY = buffer.getFloat(), sizeX = buffer.getFloat(), sizeY = buffer.getFloat();
+            containers.add(new QuadtreeObjectContainer<Obj>(sizeX, sizeY, posX, posY, instance));
+        }
+        int[] objectIndices = new int[referenceCount];
+        for(int i = 0; i < referenceCount; i++){
+            fillBuffer(channel, buffer, 4);
+            objectIndices[i] = buffer.getInt();
+            if(objectIndices[i] < 0 || objectIndices[i] >= objectCount){throw new IOException("Quadtree file refers to object " + String.valueOf(objectIndices[i]) + " out of " + String.valueOf(objectCount));}
+        }
+        // Only swap the tree over once the whole file has checked out
+        if(this.subscriptions != null){notifySubscriptionsOfEverything(false);}
+        detachContainers();
+        for(int i = 0; i < nodeCount; i++){
+            QuadtreeNode currentNode = nodes[i];
+            this.nodeIndex.put(getNodeKey(currentNode.getGeohash(), currentNode.getDepth()), currentNode);
+            if(firstChilds[i] == -1){continue;}
+            currentNode.NE = nodes[firstChilds[i]]; currentNode.NW = nodes[firstChilds[i] + 1];
+            currentNode.SE = nodes[firstChilds[i] + 2]; currentNode.SW = nodes[firstChilds[i] + 3];
+            currentNode.NE.parent = currentNode; currentNode.NW.parent = currentNode; currentNode.SE.parent = currentNode; currentNode.SW.parent = currentNode;
+        }
+        this.root = nodes[0];
+        this.maximumDepth = maximumDepth; this.maxChilds = maxChilds; this.collapseThreshold = collapseThreshold;
+        this.minimumLeafSize = minimumLeafSize; this.depth = (byte) treeDepth;
+        int nextReference = 0;
+        for(int i = 0; i < nodeCount; i++){
+            for(int l = 0; l < objectCounts[i]; l++){nodes[i].addObject(containers.get(objectIndices[nextReference++]));}
+        }
+        if(this.subscriptions != null){
+            // The file might have had different bounds to what the tree had before
+            rebuildSubscriptions();
+            notifySubscriptionsOfEverything(true);
+        }
+        return containers;
+    }
+    /**
+     * Same as {@link #load(ReadableByteChannel, LongFunction)} but from a file
+     * @param file
+     * @param objectOf
+     * @return
+     * @throws IOException
+     */
+    public ArrayList<QuadtreeObjectContainer<Obj>> load(Path file, LongFunction<? extends Obj> objectOf) throws IOException{
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            return load(channel, objectOf);
+        }
+    }
+    /**
+     * Takes a snapshot of the quadtree as it is right now, which other threads can query while this tree carries on changing
+     * <p> Taking one is O(1) since nothing gets copied up front. Instead, while the snapshot is alive, the first change to a node it can see copies that node and its path to the root, and moving an object saves its old bounds, so a snapshot only costs as much as what changed after it was taken
+     * <p> This has to be called from the thread that changes the tree. Once a snapshot isn't needed anymore {@link Snapshot#close()} it, or at least drop it, so that changes stop being copied on its behalf
+     * @return
+     */
+    public Snapshot snapshot(){
+        refreshSnapshots();
+        Snapshot returnValue = new Snapshot(this.root, this.epoch);
+        this.snapshots.add(new WeakReference<Snapshot>(returnValue));
+        if(this.oldestSnapshotEpoch < 0){this.oldestSnapshotEpoch = this.epoch;}
+        // Everything from here on is newer than the snapshot
+        this.epoch++;
+        return returnValue;
+    }
+    /**
+     * Starts watching a region, so that the listener gets told whenever an object comes into, moves in or leaves it, instead of having to query the region over and over and work out what's different
+     * <p> Straight away the listener is told about every object that's already in the region. After that a change only looks at the subscriptions whose regions overlap with where the object was and where it is now, so the cost is down to what changed rather than how many regions are being watched.
+     * See {@link RegionListener} for what counts as being in the region and what the listener can and can't do
+     * <p> Loading or bulk loading the tree counts as every object leaving and every new one entering
+     * @param position the centre of the region
+     * @param size
+     * @param listener
+     * @return the subscription, which can be moved with {@link Subscription#setRegion} and stopped with {@link Subscription#close()}
+     */
+    public Subscription subscribe(Vector2 position, Vector2 size, RegionListener<? super Obj> listener){
+        return subscribe(position.getX(), position.getY(), size.getX(), size.getY(), listener);
+    }
+    /**
+     * Same as {@link #subscribe(Vector2, Vector2, RegionListener)} but with raw numbers
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @param listener
+     * @return
+     */
+    public Subscription subscribe(float posX, float posY, float sizeX, float sizeY, RegionListener<? super Obj> listener){
+        if(listener == null){throw new IllegalArgumentException("Can't subscribe without a listener");}
+        if(this.subscriptions == null){this.subscriptions = new Quadtree<Subscription>(getSize(), getPosition());}
+        Subscription returnValue = new Subscription(listener);
+        returnValue.region = this.subscriptions.add(returnValue, posX, posY, sizeX, sizeY);
+        returnValue.index = this.subscriptionList.size();
+        this.subscriptionList.add(returnValue);
+        moveSubscription(returnValue, posX, posY, sizeX, sizeY, true);
+        return returnValue;
+    }
+    /**
+     * Runs a whole batch of {@link #getObjectsInArea(float, float, float, float, Collection)} queries at once, spread over the common fork join pool
+     * <p> The tree must not be changed until this returns. Each sink is only written to by one thread, so plain lists are fine as long as no two queries share one
+     * <p> Nothing in the tree is written to while the batch runs, so the queries don't count towards a {@link SplitPolicy}'s load
+     * @param areas the position X, position Y, size X and size Y of each query, one after the other
+     * @param sinks where to put the objects of each query, in the same order as the areas; they aren't cleared beforehand
+     */
+    public void getObjectsInAreas(float[] areas, List<? extends Collection<? super Obj>> sinks){
+        runBatch(areas, sinks, false, ForkJoinPool.commonPool());
+    }
+    /**
+     * Same as {@link #getObjectsInAreas(float[], List)} but runs on the given pool
+     * @param areas
+     * @param sinks
+     * @param pool
+     */
+    public void getObjectsInAreas(float[] areas, List<? extends Collection<? super Obj>> sinks, ForkJoinPool pool){
+        runBatch(areas, sinks, false, pool);
+    }
+    /**
+     * Runs a whole batch of {@link #getObjectsIntersectingArea(float, float, float, float, Collection)} queries at once, spread over the common fork join pool
+     * <p> The tree must not be changed until this returns. Each sink is only written to by one thread, so plain lists are fine as long as no two queries share one
+     * @param areas the position X, position Y, size X and size Y of each query, one after the other
+     * @param sinks where to put the objects of each query, in the same order as the areas; they aren't cleared beforehand
+     */
+    public void getObjectsIntersectingAreas(float[] areas, List<? extends Collection<? super Obj>> sinks){
+        runBatch(areas, sinks, true, ForkJoinPool.commonPool());
+    }
+    /**
+     * Same as {@link #getObjectsIntersectingAreas(float[], List)} but runs on the given pool
+     * @param areas
+     * @param sinks
+     * @param pool
+     */
+    public void getObjectsIntersectingAreas(float[] areas, List<? extends Collection<? super Obj>> sinks, ForkJoinPool pool){
+        runBatch(areas, sinks, true, pool);
+    }
+
+    // Constructors
+    public Quadtree(Vector2 treeSize, Vector2 treePosition){
+        super();
+        // Create a quadtree node at the root and split it so that we have a geohash assigned
+        this.root = new QuadtreeNode(treeSize, treePosition, 0);
+        this.nodeIndex.put(getNodeKey(0, 0), this.root);
+        this.root.divideNode(); this.depth = 1;  this.maxChilds = defaultMaxChilds;
+        this.maximumDepth = defaultMaximumDepth; this.collapseThreshold = defaultCollapseThreshold;
+        this.traversalStack = newNodeArray(32); this.unlinkedNodes = newNodeArray(4);
+    }
+    /**
+     * Creates a loose quadtree, where each object sits in exactly one node instead of every leaf it overlaps with
+     * <p> Each node can hold objects that poke out of it as long as they stay inside its bounds scaled up by the looseness, so an object goes in the deepest node along the path to its centre whose loose bounds fit it.
+     * Adding, moving and removing an object then only ever touches one node's list, at the cost of queries having to look at the objects in every node they pass through and not just the leaves
+     * @param treeSize
+     * @param treePosition
+     * @param looseness at least 1; 2 is the usual choice, since then any object no bigger than a node fits in the node its centre is in
+     */
+    public Quadtree(Vector2 treeSize, Vector2 treePosition, float looseness){
+        this(treeSize, treePosition);
+        if(!(looseness >= 1) || Float.isInfinite(looseness)){throw new IllegalArgumentException("Looseness of " + String.valueOf(looseness) + " has to be at least 1");}
+        this.looseness = looseness;
+    }
+    /**
+     * Creates a quadtree with its own maxChilds and minimum leaf size instead of the defaults
+     * @param treeSize
+     * @param treePosition
+     * @param maxChilds how many objects a leaf can hold before it's divided
+     * @param minimumLeafSize how small a leaf can get
+     */
+    public Quadtree(Vector2 treeSize, Vector2 treePosition, int maxChilds, Vector2 minimumLeafSize){
+        this(treeSize, treePosition);
+        setMaxChilds(maxChilds);
+        setMinimumLeafSize(minimumLeafSize);
+    }
+    /**
+     * Creates a quadtree where the policy decides when leaves are divided and merged, see {@link #setSplitPolicy}
+     * @param treeSize
+     * @param treePosition
+     * @param splitPolicy e.g. an {@link AdaptiveSplitPolicy}
+     */
+    public Quadtree(Vector2 treeSize, Vector2 treePosition, SplitPolicy splitPolicy){
+        this(treeSize, treePosition);
+        this.splitPolicy = splitPolicy;
+    }
+    // Inner class
+    /**
+     * Wraps an object that's been added to the quadtree along with its bounds
+     * <p> Returned by {@link Quadtree#add} so that the object can later be moved or removed without having to search the tree for it
+     */
+    public class QuadtreeObjectContainer<T>{ // To be honest I'm not too happy using another generic here instead of using the object that's already a generic in the quadtree declaration
+        // The objectContainer just stores the position and size info so that we can easily access those when fetching items in addition to making it easier to remove the nodes this object is in
+        private float positionX, positionY, sizeX, sizeY; // The size of the object at the given position, kept as raw numbers so that moving the object doesn't allocate
+        private T instance; // The object stored at that location
+        private ArrayList<QuadtreeNode> quadtreeNodes; // Contains a list of quadtreeNodes so that we know which objects overlap with which node
+        private int queryStamp; // The stamp of the last exact query that saw this container, so that containers in multiple nodes are only returned once
+        private volatile long epoch; // The epoch the current bounds were set in, see Quadtree.setContainerBounds
+        private volatile BoundsRecord previous; // Bounds from before that live snapshots might still need, newest first
+        // Methods
+        ArrayList<QuadtreeNode> getQuadtreeNodes(){return this.quadtreeNodes;}
+        int getPreviousBoundsCount(){
+            // How many old bounds are still being kept around for snapshots, so that it can be checked they get let go of
+            int returnValue = 0;
+            for(BoundsRecord record = this.previous; record != null; record = record.older){returnValue++;}
+            return returnValue;
+        }
+        public Vector2 getPosition(){return new Vector2(this.positionX, this.positionY);} public Vector2 getSize(){return new Vector2(this.sizeX, this.sizeY);}
+        public float getPositionX(){return this.positionX;} public float getPositionY(){return this.positionY;}
+        public float getSizeX(){return this.sizeX;} public float getSizeY(){return this.sizeY;}
+        public T getInstance(){return this.instance;}
+        public boolean intersects(float posX, float posY, float sizeX, float sizeY){
+            // Same overlap test as the nodes use; touching edges don't count
+            return (Math.abs(this.positionX - posX) < ((this.sizeX + sizeX)/2)) && (Math.abs(this.positionY - posY) < ((this.sizeY + sizeY)/2));
+        }
+        public boolean contains(float pointX, float pointY){
+            return (Math.abs(this.positionX - pointX) <= this.sizeX/2) && (Math.abs(this.positionY - pointY) <= this.sizeY/2);
+        }
+        private void setBounds(float sizeX, float sizeY, float positionX, float positionY){
+            this.sizeX = sizeX; this.sizeY = sizeY;
+            this.positionX = positionX; this.positionY = positionY;
+        }
+        void readBounds(long epoch, float[] into){
+            // Fills in the position X, position Y, size X and size Y that the container had as of the epoch, or has right now if the epoch is negative
+            //  The writer bumps the container's epoch before it touches the fields, so if the epoch is the same after we've read them then nothing changed in between
+            while(epoch >= 0){
+                long seenEpoch = this.epoch;
+                if(seenEpoch > epoch){
+                    // The bounds have moved on since then so the ones we want were saved off
+                    BoundsRecord record = this.previous;
+                    while(record.epoch > epoch){record = record.older;}
+                    into[0] = record.positionX; into[1] = record.positionY; into[2] = record.sizeX; into[3] = record.sizeY;
+                    return;
+                }
+                into[0] = this.positionX; into[1] = this.positionY; into[2] = this.sizeX; into[3] = this.sizeY;
+                VarHandle.loadLoadFence(); // Keep the field reads above from being moved down past the epoch check
+                if(this.epoch == seenEpoch){return;}
+            }
+            into[0] = this.positionX; into[1] = this.positionY; into[2] = this.sizeX; into[3] = this.sizeY;
+        }
+        public QuadtreeObjectContainer(float sizeX, float sizeY, float positionX, float positionY, T instance){
+            super(); 
+            this.epoch = Quadtree.this.epoch;
+            this.setBounds(sizeX, sizeY, positionX, positionY);
+            this.instance = instance; 
+            this.quadtreeNodes = new ArrayList<QuadtreeNode>(4);}
+    }
+
+    /**
+     * Traversal stack for queries that might run on several threads at once, so that each thread can bring its own instead of sharing the tree's
+     */
+    class Traversal{
+        private final boolean tracksLoad; // Whether queries through this count towards the split policy's load, which writes to the nodes so only the thread that owns the tree can do it
+        private QuadtreeNode[] nodes = newNodeArray(32);
+        private float[] cells = new float[32 << 2]; // The min X, min Y, max X and max Y of each node's cell
+        private final float[] bounds = new float[4]; // Scratch space for QuadtreeObjectContainer.readBounds
+        private final ArrayList<QuadtreeObjectContainer<Obj>> hits = new ArrayList<QuadtreeObjectContainer<Obj>>(); // Everything a ray has hit so far, see readRayHits
+        private long[] hitKeys = new long[16];
+        private int top;
+        private void push(QuadtreeNode node, float minX, float minY, float maxX, float maxY){
+            if(this.top == this.nodes.length){
+                this.nodes = Arrays.copyOf(this.nodes, this.nodes.length << 1);
+                this.cells = Arrays.copyOf(this.cells, this.cells.length << 1);
+            }
+            this.nodes[this.top] = node;
+            this.cells[this.top << 2] = minX; this.cells[(this.top << 2) + 1] = minY; this.cells[(this.top << 2) + 2] = maxX; this.cells[(this.top << 2) + 3] = maxY;
+            this.top++;
+        }
+        private void sortTop(int count){
+            // Insertion sort of the last few entries so that the one with the smallest first cell slot ends up on top; only ever used on the 4 children of a node
+            for(int i = this.top - count + 1; i < this.top; i++){
+                QuadtreeNode node = this.nodes[i];
+                float first = this.cells[i << 2], second = this.cells[(i << 2) + 1], third = this.cells[(i << 2) + 2], fourth = this.cells[(i << 2) + 3];
+                int l = i - 1;
+                for(; l >= this.top - count && this.cells[l << 2] < first; l--){
+                    this.nodes[l + 1] = this.nodes[l];
+                    System.arraycopy(this.cells, l << 2, this.cells, (l + 1) << 2, 4);
+                }
+                this.nodes[l + 1] = node;
+                this.cells[(l + 1) << 2] = first; this.cells[((l + 1) << 2) + 1] = second; this.cells[((l + 1) << 2) + 2] = third; this.cells[((l + 1) << 2) + 3] = fourth;
+            }
+        }
+        void clear(){
+            // Drops any nodes left behind by a traversal that didn't finish
+            while(this.top > 0){this.nodes[--this.top] = null;}
+            this.hits.clear();
+        }
+        Traversal(){
+            this(true);
+        }
+        Traversal(boolean tracksLoad){
+            super();
+            this.tracksLoad = tracksLoad;
+        }
+    }
+
+    private class NodeIndex{
+        // Open addressing map from a node's key (see getNodeKey) to the node, so that a boxed HashMap doesn't have to allocate on every divide
+        //  Linear probing, and removing an entry shifts the ones after it back so that there's never any tombstones to clean up. 0 is never a key so it marks an empty slot
+        private long[] keys = new long[64];
+        private QuadtreeNode[] nodes = newNodeArray(64);
+        private int size;
+        private int getSlot(long key){
+            // Neighbouring cells only differ in a couple of bits so mix them up before masking
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (this.keys.length - 1);
+        }
+        QuadtreeNode get(long key){
+            int mask = this.keys.length - 1;
+            for(int slot = getSlot(key); this.keys[slot] != 0; slot = (slot + 1) & mask){
+                if(this.keys[slot] == key){return this.nodes[slot];}
+            }
+            return null;
+        }
+        void put(long key, QuadtreeNode node){
+            if((this.size + 1) << 1 > this.keys.length){resize(this.keys.length << 1);}
+            int mask = this.keys.length - 1;
+            int slot = getSlot(key);
+            while(this.keys[slot] != 0 && this.keys[slot] != key){slot = (slot + 1) & mask;}
+            if(this.keys[slot] == 0){this.size++;}
+            this.keys[slot] = key;
+            this.nodes[slot] = node;
+        }
+        void remove(long key){
+            int mask = this.keys.length - 1;
+            int hole = getSlot(key);
+            while(this.keys[hole] != key){
+                if(this.keys[hole] == 0){return;}
+                hole = (hole + 1) & mask;
+            }
+            // Pull back every entry after the hole that would have been placed at or before it
+            for(int slot = (hole + 1) & mask; this.keys[slot] != 0; slot = (slot + 1) & mask){
+                int home = getSlot(this.keys[slot]);
+                if(((slot - home) & mask) >= ((slot - hole) & mask)){
+                    this.keys[hole] = this.keys[slot]; this.nodes[hole] = this.nodes[slot];
+                    hole = slot;
+                }
+            }
+            this.keys[hole] = 0; this.nodes[hole] = null;
+            this.size--;
+        }
+        void clear(){
+            Arrays.fill(this.keys, 0); Arrays.fill(this.nodes, null);
+            this.size = 0;
+        }
+        private void resize(int capacity){
+            long[] oldKeys = this.keys; QuadtreeNode[] oldNodes = this.nodes;
+            this.keys = new long[capacity]; this.nodes = newNodeArray(capacity);
+            this.size = 0;
+            for(int i = 0; i < oldKeys.length; i++){
+                if(oldKeys[i] != 0){put(oldKeys[i], oldNodes[i]);}
+            }
+        }
+    }
+
+    private static class BoundsRecord{
+        // The bounds a container had before it was moved, kept for the snapshots that were taken before the move
+        private final long epoch;
+        private final float positionX, positionY, sizeX, sizeY;
+        private BoundsRecord older; // Cut off once no live snapshot reaches back that far
+        public BoundsRecord(long epoch, float positionX, float positionY, float sizeX, float sizeY, BoundsRecord older){
+            this.epoch = epoch;
+            this.positionX = positionX; this.positionY = positionY; this.sizeX = sizeX; this.sizeY = sizeY;
+            this.older = older;
+        }
+    }
+
+    /**
+     * A read only view of the quadtree as it was when {@link Quadtree#snapshot()} was called
+     * <p> Any number of threads can query a snapshot at the same time, and while the tree itself is being changed, since the writer copies whatever the snapshot can see before changing it
+     * <p> The results are only handed to sinks, which mustn't query the snapshot themselves. A closed snapshot can't be queried anymore
+     */
+    public class Snapshot implements AutoCloseable{
+        private final QuadtreeNode root;
+        private final long epoch;
+        private volatile boolean closed;
+        // Helper methods
+        private Traversal beginRead(){
+            if(this.closed){throw new IllegalStateException("Can't query a snapshot that has been closed");}
+            return readerTraversals.get();
+        }
+        // Accessors
+        public Vector2 getSize(){return this.root.getSize();}
+        public Vector2 getPosition(){return this.root.getPosition();}
+        // Instance methods
+        /**
+         * See {@link Quadtree#getObjectsAtPoint(Vector2)}
+         * @param point
+         * @return
+         */
+        public ArrayList<Obj> getObjectsAtPoint(Vector2 point){
+            ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+            getObjectsAtPoint(point.getX(), point.getY(), returnValue);
+            return returnValue;
+        }
+        /**
+         * See {@link Quadtree#getObjectsInArea(Vector2, Vector2)}
+         * @param position
+         * @param size
+         * @return
+         */
+        public ArrayList<Obj> getObjectsInArea(Vector2 position, Vector2 size){
+            ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+            getObjectsInArea(position.getX(), position.getY(), size.getX(), size.getY(), returnValue);
+            return returnValue;
+        }
+        /**
+         * See {@link Quadtree#getObjectsIntersectingArea(Vector2, Vector2)}
+         * @param position
+         * @param size
+         * @return
+         */
+        public ArrayList<Obj> getObjectsIntersectingArea(Vector2 position, Vector2 size){
+            ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+            getObjectsIntersectingArea(position.getX(), position.getY(), size.getX(), size.getY(), returnValue);
+            return returnValue;
+        }
+        /**
+         * See {@link Quadtree#getObjectsContainingPoint(Vector2)}
+         * @param point
+         * @return
+         */
+        public ArrayList<Obj> getObjectsContainingPoint(Vector2 point){
+            ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+            getObjectsContainingPoint(point.getX(), point.getY(), returnValue);
+            return returnValue;
+        }
+        // And yknow the overloads to those
+        //  The fences keep the snapshot from being collected mid query, which would let the writer think nobody's looking at the nodes anymore
+        public int getObjectsAtPoint(float pointX, float pointY, Collection<? super Obj> sink){
+            Traversal traversal = beginRead();
+            try{return readObjectsAtPoint(traversal, this.root, this.epoch, pointX, pointY, false, sink);} finally {Reference.reachabilityFence(this);}
+        }
+        public int getObjectsInArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink){
+            Traversal traversal = beginRead();
+            try{return readObjectsInArea(traversal, this.root, this.epoch, posX, posY, sizeX, sizeY, false, sink);} finally {traversal.clear(); Reference.reachabilityFence(this);}
+        }
+        public int getObjectsIntersectingArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink){
+            Traversal traversal = beginRead();
+            try{return readObjectsInArea(traversal, this.root, this.epoch, posX, posY, sizeX, sizeY, true, sink);} finally {traversal.clear(); Reference.reachabilityFence(this);}
+        }
+        public int getObjectsContainingPoint(float pointX, float pointY, Collection<? super Obj> sink){
+            Traversal traversal = beginRead();
+            try{return readObjectsAtPoint(traversal, this.root, this.epoch, pointX, pointY, true, sink);} finally {Reference.reachabilityFence(this);}
+        }
+        /**
+         * See {@link Quadtree#nearest(Vector2)}
+         * @param point
+         * @return the closest object, or null if the snapshot is empty
+         */
+        public Obj nearest(Vector2 point){
+            ArrayList<Obj> returnValue = new ArrayList<Obj>(1);
+            kNearest(point.getX(), point.getY(), 1, Float.POSITIVE_INFINITY, returnValue);
+            return returnValue.isEmpty() ? null : returnValue.get(0);
+        }
+        /**
+         * See {@link Quadtree#kNearest(Vector2, int, float)}
+         * @param point
+         * @param k
+         * @param maxDistance
+         * @return
+         */
+        public ArrayList<Obj> kNearest(Vector2 point, int k, float maxDistance){
+            ArrayList<Obj> returnValue = new ArrayList<Obj>(Math.min(k, 16));
+            kNearest(point.getX(), point.getY(), k, maxDistance, returnValue);
+            return returnValue;
+        }
+        public int kNearest(float pointX, float pointY, int k, float maxDistance, Collection<? super Obj> sink){
+            beginRead();
+            try{return visitNearestObjects(this.root, this.epoch, pointX, pointY, k, maxDistance, true, sink);} finally {Reference.reachabilityFence(this);}
+        }
+        /**
+         * See {@link Quadtree#raycast(Vector2, Vector2, float)}
+         * @param origin
+         * @param direction
+         * @param maxDistance
+         * @return the object hit first, or null if the ray doesn't hit anything
+         */
+        public Obj raycast(Vector2 origin, Vector2 direction, float maxDistance){
+            return raycast(origin.getX(), origin.getY(), direction.getX(), direction.getY(), maxDistance);
+        }
+        public Obj raycast(float originX, float originY, float directionX, float directionY, float maxDistance){
+            ArrayList<Obj> returnValue = new ArrayList<Obj>(1);
+            float magnitude = getRayMagnitude(directionX, directionY, maxDistance);
+            Traversal traversal = beginRead();
+            try{readRayHits(traversal, this.root, this.epoch, originX, originY, directionX / magnitude, directionY / magnitude, maxDistance, true, returnValue);} finally {traversal.clear(); Reference.reachabilityFence(this);}
+            return returnValue.isEmpty() ? null : returnValue.get(0);
+        }
+        /**
+         * See {@link Quadtree#segmentQuery(Vector2, Vector2)}
+         * @param start
+         * @param end
+         * @return
+         */
+        public ArrayList<Obj> segmentQuery(Vector2 start, Vector2 end){
+            ArrayList<Obj> returnValue = new ArrayList<Obj>(10);
+            segmentQuery(start.getX(), start.getY(), end.getX(), end.getY(), returnValue);
+            return returnValue;
+        }
+        public int segmentQuery(float startX, float startY, float endX, float endY, Collection<? super Obj> sink){
+            Traversal traversal = beginRead();
+            try{return readRayHits(traversal, this.root, this.epoch, startX, startY, endX - startX, endY - startY, 1, false, sink);} finally {traversal.clear(); Reference.reachabilityFence(this);}
+        }
+        /**
+         * Writes the snapshot out the same way as {@link Quadtree#save(WritableByteChannel, ToLongFunction)}, which lets another thread save the tree while it keeps changing
+         * @param channel
+         * @param idOf
+         * @throws IOException
+         */
+        public void save(WritableByteChannel channel, ToLongFunction<? super Obj> idOf) throws IOException{
+            beginRead();
+            try{writeTree(this.root, this.epoch, channel, idOf);} finally {Reference.reachabilityFence(this);}
+        }
+        /**
+         * Lets the tree know this snapshot won't be queried anymore so that it can stop copying things for it
+         */
+        public void close(){this.closed = true;}
+        // Constructors
+        Snapshot(QuadtreeNode root, long epoch){
+            super();
+            this.root = root;
+            this.epoch = epoch;
+        }
+    }
+
+    /**
+     * A region of the tree being watched by a {@link RegionListener}, returned by {@link Quadtree#subscribe}
+     * <p> Like the tree itself, a subscription should only be used from the thread that changes the tree
+     */
+    public class Subscription implements AutoCloseable{
+        private final RegionListener<? super Obj> listener;
+        private Quadtree<Subscription>.QuadtreeObjectContainer<Subscription> region; // Where it is in the tree's index of subscriptions, which also holds the region's bounds
+        private int index; // Where it is in the tree's subscriptionList, or -1 once it's closed
+        // Accessors
+        public Vector2 getPosition(){return this.region.getPosition();}
+        public Vector2 getSize(){return this.region.getSize();}
+        public RegionListener<? super Obj> getListener(){return this.listener;}
+        public boolean isClosed(){return this.index < 0;}
+        // Mutators
+        /**
+         * Moves and/or resizes the region, e.g. when the view it follows scrolls
+         * <p> The listener is told about every object that's in the new region but wasn't in the old one, and the other way around. Only the strips that the two regions don't share are looked through, so a small move costs a lot less than querying the whole region again
+         * @param position
+         * @param size
+         */
+        public void setRegion(Vector2 position, Vector2 size){
+            setRegion(position.getX(), position.getY(), size.getX(), size.getY());
+        }
+        public void setRegion(float posX, float posY, float sizeX, float sizeY){
+            if(isClosed()){throw new IllegalStateException("Can't move a subscription that has been closed");}
+            moveSubscription(this, posX, posY, sizeX, sizeY, false);
+        }
+        // Instance methods
+        /**
+         * Stops watching the region; the listener isn't told about anything from here on, not even the objects that are still in the region
+         */
+        public void close(){
+            if(isClosed()){return;}
+            subscriptions.remove(this.region);
+            // Swap the last subscription into our spot so that closing doesn't have to shift the whole list down
+            Subscription lastSubscription = subscriptionList.remove(subscriptionList.size() - 1);
+            if(lastSubscription != this){
+                subscriptionList.set(this.index, lastSubscription);
+                lastSubscription.index = this.index;
+            }
+            this.index = -1;
+            if(subscriptionList.isEmpty()){subscriptions = null;}
+        }
+        // Constructors
+        Subscription(RegionListener<? super Obj> listener){
+            super();
+            this.listener = listener;
+        }
+    }
+
+    private class BatchQuery extends RecursiveAction{
+        // A slice of a batch of area queries, which keeps halving itself until the slices are small enough to run straight through
+        private static final long serialVersionUID = 1L;
+        private final float[] areas;
+        private final List<? extends Collection<? super Obj>> sinks;
+        private final boolean exact;
+        private final int from, to;
+        protected void compute(){
+            if(this.to - this.from > batchGranularity){
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new BatchQuery(this.areas, this.sinks, this.exact, this.from, middle), new BatchQuery(this.areas, this.sinks, this.exact, middle, this.to));
+                return;
+            }
+            // The exact queries use readObjectsInArea rather than the stamps since other workers are going over the same containers
+            Traversal traversal = batchTraversals.get();
+            try{
+                for(int i = this.from; i < this.to; i++){
+                    int offset = i << 2;
+                    readObjectsInArea(traversal, this.areas[offset], this.areas[offset + 1], this.areas[offset + 2], this.areas[offset + 3], this.exact, this.sinks.get(i));
+                }
+            } finally {
+                traversal.clear();
+            }
+        }
+        public BatchQuery(float[] areas, List<? extends Collection<? super Obj>> sinks, boolean exact, int from, int to){
+            this.areas = areas;
+            this.sinks = sinks;
+            this.exact = exact;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private class NearestCandidate implements Comparable<NearestCandidate>{
+        // An entry in the nearest neighbour queue, which is either a node still to be opened up or an object ready to be returned
+        private final float distance;
+        private final QuadtreeNode node;
+        private final QuadtreeObjectContainer<Obj> container;
+        public int compareTo(NearestCandidate other){return Float.compare(this.distance, other.distance);}
+        public NearestCandidate(float distance, QuadtreeNode node, QuadtreeObjectContainer<Obj> container){
+            this.distance = distance; this.node = node; this.container = container;
+        }
+    }
+
+    private class QuadtreeNode{
+        private QuadtreeNode NE, NW, SE, SW;
+        private QuadtreeNode parent; // Null for the root, lets us walk back up the tree when moving objects around
+        private long geohash; // Now I think we'll never reach 32 layers of quadtrees so we'll use a long to assign geohashes 
+        private Vector2 size, position; // The size of the node
+        private int depth; // The root's depth is 0 so our first 4 child nodes are a depth of 1
+        private long epoch; // The epoch the node was made in; nodes from before the latest snapshot have to be copied before they're changed, see writable
+        private ArrayList<QuadtreeObjectContainer<Obj>> objects;
+        private float queryLoad, updateLoad; // What's been recorded against this node while there's a split policy, faded out as of loadTick
+        private int loadTick;
+        // Mutators
+        //  NO MUTATORS
+        // Accessor
+        public int getDepth(){return this.depth;}
+        public long getGeohash(){return this.geohash;}
+        public Vector2 getSize(){return this.size;}
+        public Vector2 getPosition(){return this.position;}
+        public QuadtreeNode getParent(){return this.parent;}
+        public QuadtreeNode getNodeFromEnum(Leaf inputEnum){
+            QuadtreeNode returnValue = this.SW; 
+            switch(inputEnum){
+                case NE:returnValue=this.NE; break;
+                case NW:returnValue=this.NW; break;
+                case SE:returnValue=this.SE;break;
+                case SW:break;
+            }
+            return returnValue;}
+        public ArrayList<QuadtreeObjectContainer<Obj>> getObjects(){return this.objects;}
+        // Instance methods
+        public boolean isLeaf(){return ((this.NE == null) && (this.NW == null) && (this.SE == null )&& (this.SW == null));}
+        public void decayLoad(int now){
+            // Fades the load out to where it should be as of now so that it can be added to or compared with other loads
+            if(this.queryLoad != 0 || this.updateLoad != 0){
+                float decay = getLoadDecay(now - this.loadTick);
+                this.queryLoad *= decay; this.updateLoad *= decay;
+            }
+            this.loadTick = now;
+        }
+        private void inheritLoad(QuadtreeNode parent){
+            this.queryLoad = parent.queryLoad/4; this.updateLoad = parent.updateLoad/4; this.loadTick = parent.loadTick;
+        }
+        private void takeLoad(QuadtreeNode child){
+            child.decayLoad(this.loadTick);
+            this.queryLoad += child.queryLoad; this.updateLoad += child.updateLoad;
+        }
+        public boolean containsBounds(float posX, float posY, float sizeX, float sizeY){
+            // True if the object with the given size at the given position sits entirely inside this node
+            //  Something with no width on the node's upper edge goes in the node on the other side of it instead, see overlapsAlong
+            if((sizeX == 0 && posX - this.position.getX() == this.size.getX()/2) || (sizeY == 0 && posY - this.position.getY() == this.size.getY()/2)){return false;}
+            return (Math.abs(this.position.getX() - posX) + sizeX/2 <= this.size.getX()/2) && (Math.abs(this.position.getY() - posY) + sizeY/2 <= this.size.getY()/2);
+        }
+        public boolean fits(float posX, float posY, float sizeX, float sizeY){
+            // Same as containsBounds, but against the loose bounds if the tree is loose
+            if(looseness == 0){return containsBounds(posX, posY, sizeX, sizeY);}
+            return (Math.abs(this.position.getX() - posX) + sizeX/2 <= this.size.getX()*looseness/2) && (Math.abs(this.position.getY() - posY) + sizeY/2 <= this.size.getY()*looseness/2);
+        }
+        public QuadtreeObjectContainer<Obj> addObject(Obj object, Vector2 position, Vector2 size){ // While adding takes place in the node level, removing is done at the Quadtree level since we have to remove objects from multiple nodes if need be
+            // Since we do our object checks in the insertion code, we just insert this into the linked list with no hassle
+            // Wrap the object with a QuadtreeObjectContainer
+            QuadtreeObjectContainer<Obj> wrapper = new QuadtreeObjectContainer<Obj>(size.getX(), size.getY(), position.getX(), position.getY(), object);
+            // Insert that into the objects list
+            this.objects.add(wrapper);
+            // Insert a reference to this node to the Object's collection of nodes
+            wrapper.getQuadtreeNodes().add(this);
+            // Return the container so that we can remove the object from each node its been inserted to
+            return wrapper;
+        }
+        public QuadtreeObjectContainer<Obj> addObject(QuadtreeObjectContainer<Obj> container){
+            // This overload lets us just re-insert an object container to the node's list
+            this.objects.add(container);
+            container.getQuadtreeNodes().add(this);
+            return container;
+        }
+        public void divideNode(){
+            // Divides the node by adding leaf nodes to this quadtree's NE, SW, SE and SW
+            if(!this.isLeaf()){return;} // Don't do anything for nodes that aren't already leaves
+            Vector2 divisionSize = Vector2.divide(this.size, 2);
+            // Construct new nodes for each quadrant
+            this.NE = new QuadtreeNode(divisionSize, new Vector2(this.position.getX() + divisionSize.getX()/2, this.position.getY() + divisionSize.getY()/2), this.depth + 1, this.geohash, Leaf.NE); // NE is X+, Y+
+            this.NW = new QuadtreeNode(divisionSize, new Vector2(this.position.getX() - divisionSize.getX()/2, this.position.getY() + divisionSize.getY()/2), this.depth + 1,  this.geohash, Leaf.NW); // NW is X-, Y+
+            this.SE = new QuadtreeNode(divisionSize, new Vector2(this.position.getX() + divisionSize.getX()/2, this.position.getY() - divisionSize.getY()/2), this.depth + 1,  this.geohash, Leaf.SE); // SE is X+, Y-            
+            this.SW = new QuadtreeNode(divisionSize, new Vector2(this.position.getX() - divisionSize.getX()/2, this.position.getY() - divisionSize.getY()/2), this.depth + 1,  this.geohash, Leaf.SW); // SW is X-, Y-
+            this.NE.parent = this; this.NW.parent = this; this.SE.parent = this; this.SW.parent = this;
+            // Split whatever load this node has seen evenly between the children, since that's where it'll be recorded from now on
+            this.NE.inheritLoad(this); this.NW.inheritLoad(this); this.SE.inheritLoad(this); this.SW.inheritLoad(this);
+            this.queryLoad = 0; this.updateLoad = 0;
+            nodeIndex.put(getNodeKey(this.NE.geohash, this.depth + 1), this.NE); nodeIndex.put(getNodeKey(this.NW.geohash, this.depth + 1), this.NW);
+            nodeIndex.put(getNodeKey(this.SE.geohash, this.depth + 1), this.SE); nodeIndex.put(getNodeKey(this.SW.geohash, this.depth + 1), this.SW);
+        }
+        public void collapseNode(){
+            // The reverse of divideNode; the Quadtree takes care of moving the objects up before calling this
+            nodeIndex.remove(getNodeKey(this.NE.geohash, this.depth + 1)); nodeIndex.remove(getNodeKey(this.NW.geohash, this.depth + 1));
+            nodeIndex.remove(getNodeKey(this.SE.geohash, this.depth + 1)); nodeIndex.remove(getNodeKey(this.SW.geohash, this.depth + 1));
+            // And take back the load the children saw
+            this.decayLoad(loadClock);
+            this.takeLoad(this.NE); this.takeLoad(this.NW); this.takeLoad(this.SE); this.takeLoad(this.SW);
+            this.NE = null; this.NW = null; this.SE = null; this.SW = null;
+        }
+        // Constructors
+        public QuadtreeNode(Vector2 size, Vector2 position, int depth){
+            this.objects = new ArrayList<QuadtreeObjectContainer<Obj>>(10); // 10 is small enough so that we woon't have too much issue
+            this.size = size; this.position = position; this.depth = depth;
+            this.epoch = Quadtree.this.epoch;
+        }
+        // And one to copy a node that a snapshot is holding onto
+        public QuadtreeNode(QuadtreeNode original, QuadtreeNode parent){
+            this.NE = original.NE; this.NW = original.NW; this.SE = original.SE; this.SW = original.SW;
+            this.parent = parent;
+            this.geohash = original.geohash; this.size = original.size; this.position = original.position; this.depth = original.depth;
+            this.objects = new ArrayList<QuadtreeObjectContainer<Obj>>(original.objects); // The children are shared but the objects list is ours to change
+            this.queryLoad = original.queryLoad; this.updateLoad = original.updateLoad; this.loadTick = original.loadTick;
+            this.epoch = Quadtree.this.epoch;
+        }
+        // And an override to set the geohash
+        public QuadtreeNode(Vector2 size, Vector2 position, int depth, long parentGeohash, Leaf quadrant){
+            this(size, position, depth);
+            this.geohash = Quadtree.computeGeohash(parentGeohash, quadrant, depth);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package WizardTD.gameEnv;
+// Imports
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Static imports
+import java.lang.Math;
+
+// Error imports
+import java.lang.IllegalArgumentException;
+
+/**
+ * Counters that a {@link Quadtree} keeps while its metrics are turned on, see {@link Quadtree#enableMetrics()}
+ * <p> Every query records how many nodes it went through and how long it took, and every insert or removal that splits or merges nodes records that too.
+ * Everything is safe to read from any thread while the tree is in use, so this can be polled from a monitoring thread or registered over JMX as is
+ * <p> A query's latency covers the whole call, so it includes however long the visitor takes in the forEach queries
+ */
+public final class QuadtreeMetrics implements QuadtreeMetricsMXBean{
+    // Instance vars
+    private final LongAdder queryCount = new LongAdder(), nodesVisited = new LongAdder();
+    private final LongAdder splitCount = new LongAdder(), mergeCount = new LongAdder();
+    private final Histogram nodesVisitedHistogram = new Histogram(), latencyHistogram = new Histogram();
+    private volatile QuadtreeStats treeStats; // Set by Quadtree.getStats, since only the thread that owns the tree can walk it
+    // Accessors
+    public long getQueryCount(){return this.queryCount.sum();}
+    public long getNodesVisited(){return this.nodesVisited.sum();}
+    public double getAverageNodesVisited(){
+        long queries = this.queryCount.sum();
+        return queries == 0 ? 0 : (double) this.nodesVisited.sum() / queries;
+    }
+    public long getNodesVisitedP99(){return this.nodesVisitedHistogram.getPercentile(0.99);}
+    public long getMaxNodesVisited(){return this.nodesVisitedHistogram.getMax();}
+    public long getSplitCount(){return this.splitCount.sum();}
+    public long getMergeCount(){return this.mergeCount.sum();}
+    public long getQueryLatencyP50(){return this.latencyHistogram.getPercentile(0.5);}
+    public long getQueryLatencyP90(){return this.latencyHistogram.getPercentile(0.9);}
+    public long getQueryLatencyP99(){return this.latencyHistogram.getPercentile(0.99);}
+    public long getMaxQueryLatency(){return this.latencyHistogram.getMax();}
+    /**
+     * Returns the query latency at the given percentile, in nanoseconds
+     * @param percentile between 0 and 1
+     * @return
+     */
+    public long getQueryLatencyPercentile(double percentile){return this.latencyHistogram.getPercentile(percentile);}
+    /**
+     * Returns how many nodes a query went through at the given percentile
+     * @param percentile between 0 and 1
+     * @return
+     */
+    public long getNodesVisitedPercentile(double percentile){return this.nodesVisitedHistogram.getPercentile(percentile);}
+    public QuadtreeStats getTreeStats(){return this.treeStats;}
+    // Mutators
+    void setTreeStats(QuadtreeStats treeStats){this.treeStats = treeStats;}
+    // Instance methods
+    void recordQuery(int nodesVisited, long latency){
+        this.queryCount.increment();
+        this.nodesVisited.add(nodesVisited);
+        this.nodesVisitedHistogram.record(nodesVisited);
+        this.latencyHistogram.record(latency);
+    }
+    void recordSplit(){this.splitCount.increment();}
+    void recordMerge(){this.mergeCount.increment();}
+    /**
+     * Zeroes every counter, e.g. at the start of a level so that the numbers only cover that level
+     * <p> Queries that are running while this is called might end up half counted
+     */
+    public void reset(){
+        this.queryCount.reset(); this.nodesVisited.reset();
+        this.splitCount.reset(); this.mergeCount.reset();
+        this.nodesVisitedHistogram.reset(); this.latencyHistogram.reset();
+        this.treeStats = null;
+    }
+    @Override
+    public String toString(){
+        return "QuadtreeMetrics[queries=" + String.valueOf(getQueryCount()) + ", averageNodesVisited=" + String.valueOf(getAverageNodesVisited())
+            + ", splits=" + String.valueOf(getSplitCount()) + ", merges=" + String.valueOf(getMergeCount())
+            + ", latencyP50=" + String.valueOf(getQueryLatencyP50()) + "ns, latencyP99=" + String.valueOf(getQueryLatencyP99()) + "ns]";
+    }
+    // Inner class
+    private static class Histogram{
+        // Log linear buckets; every power of 2 is split into 8 so a value is only ever rounded up by an eighth, and the whole range of a long fits in under 500 buckets
+        //  Values below 8 get a bucket each
+        private static final int subBucketBits = 3;
+        private final AtomicLongArray counts = new AtomicLongArray(getBucket(Long.MAX_VALUE) + 1);
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private static int getBucket(long value){
+            if(value < (1 << subBucketBits)){return (int) Math.max(value, 0);}
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int mantissa = (int) (value >>> (exponent - subBucketBits)) & ((1 << subBucketBits) - 1);
+            return ((exponent - subBucketBits + 1) << subBucketBits) | mantissa;
+        }
+        private static long getBucketMax(int bucket){
+            // The largest value that lands in the bucket
+            if(bucket < (1 << subBucketBits)){return bucket;}
+            int shift = (bucket >>> subBucketBits) - 1;
+            long lowest = ((long) ((1 << subBucketBits) | (bucket & ((1 << subBucketBits) - 1)))) << shift;
+            return lowest + ((1L << shift) - 1);
+        }
+        private void record(long value){
+            this.counts.incrementAndGet(getBucket(value));
+            this.max.accumulate(value);
+        }
+        private long getPercentile(double percentile){
+            if(!(percentile >= 0 && percentile <= 1)){throw new IllegalArgumentException("Percentile of " + String.valueOf(percentile) + " is outside of [0, 1]");}
+            long total = 0;
+            for(int i = 0; i < this.counts.length(); i++){total += this.counts.get(i);}
+            if(total == 0){return 0;}
+            long rank = Math.max(1, (long) Math.ceil(percentile * total)), seen = 0;
+            for(int i = 0; i < this.counts.length(); i++){
+                seen += this.counts.get(i);
+                // Never report past the largest value actually seen
+                if(seen >= rank){return Math.min(getBucketMax(i), this.max.get());}
+            }
+            return this.max.get();
+        }
+        private long getMax(){return this.max.get();}
+        private void reset(){
+            for(int i = 0; i < this.counts.length(); i++){this.counts.set(i, 0);}
+            this.max.reset();
+        }
+    }
+}
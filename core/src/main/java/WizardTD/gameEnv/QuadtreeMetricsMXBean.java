@@ -0,0 +1,26 @@
+package WizardTD.gameEnv;
+
+/**
+ * What {@link QuadtreeMetrics} exposes over JMX once it's been registered with an MBean server, e.g.
+ * <p> {@code ManagementFactory.getPlatformMBeanServer().registerMBean(tree.enableMetrics(), new ObjectName("WizardTD:type=Quadtree,name=enemies"))}
+ * <p> Latencies are in nanoseconds. The percentiles are read off a histogram so they're rounded up by at most an eighth
+ */
+public interface QuadtreeMetricsMXBean{
+    long getQueryCount();
+    long getNodesVisited();
+    double getAverageNodesVisited();
+    long getNodesVisitedP99();
+    long getMaxNodesVisited();
+    long getSplitCount();
+    long getMergeCount();
+    long getQueryLatencyP50();
+    long getQueryLatencyP90();
+    long getQueryLatencyP99();
+    long getMaxQueryLatency();
+    /**
+     * The tree's shape as of the last call to {@link Quadtree#getStats()}, or null if it hasn't been called since the metrics were turned on
+     * @return
+     */
+    QuadtreeStats getTreeStats();
+    void reset();
+}
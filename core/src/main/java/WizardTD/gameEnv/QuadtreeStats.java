@@ -0,0 +1,74 @@
+package WizardTD.gameEnv;
+// Imports
+import java.util.Arrays;
+
+/**
+ * The shape of a {@link Quadtree} at the moment {@link Quadtree#getStats()} was called, for working out whether maxChilds and the minimum leaf size suit the objects that are actually in it
+ * <p> A lot of references per object means the leaves are small next to the objects, so the objects straddle several of them. Lots of overfull leaves means leaves have stopped dividing at the minimum size or maximum depth even though they hold more than their capacity
+ */
+public final class QuadtreeStats{
+    // Instance vars
+    private final int nodeCount, leafCount, objectCount, referenceCount, branchObjectCount;
+    private final int deepestLeaf, overfullLeafCount;
+    private final double averageLeafDepth;
+    private final long[] objectsPerLeaf;
+    private final int maxChilds, maximumDepth;
+    private final float minimumLeafSizeX, minimumLeafSizeY;
+    // Accessors
+    public int getNodeCount(){return this.nodeCount;}
+    public int getLeafCount(){return this.leafCount;}
+    public int getObjectCount(){return this.objectCount;}
+    /**
+     * Returns how many places objects are listed in; an object in 3 leaves counts 3 times
+     * @return
+     */
+    public int getReferenceCount(){return this.referenceCount;}
+    /**
+     * Returns how many extra references there are on top of one per object, which is what straddling objects cost in memory and in query time
+     * @return
+     */
+    public int getDuplicateReferenceCount(){return this.referenceCount - this.objectCount;}
+    public double getAverageReferencesPerObject(){return this.objectCount == 0 ? 0 : (double) this.referenceCount / this.objectCount;}
+    /**
+     * Returns how many objects sit in nodes that have children, which only happens in loose trees
+     * @return
+     */
+    public int getBranchObjectCount(){return this.branchObjectCount;}
+    /**
+     * Returns the depth of the deepest leaf in the tree right now, unlike {@link Quadtree#getDepth()} which never goes back down
+     * @return
+     */
+    public int getDeepestLeaf(){return this.deepestLeaf;}
+    public double getAverageLeafDepth(){return this.averageLeafDepth;}
+    /**
+     * Returns how many leaves hold more than their capacity, which is maxChilds unless the tree has a {@link SplitPolicy}
+     * @return
+     */
+    public int getOverfullLeafCount(){return this.overfullLeafCount;}
+    /**
+     * Returns how many leaves hold each number of objects, bucketed by powers of 2
+     * <p> The first entry counts the empty leaves, then each entry i after that counts the leaves holding at least 2^(i-1) and less than 2^i objects
+     * @return
+     */
+    public long[] getObjectsPerLeaf(){return this.objectsPerLeaf.clone();}
+    public int getMaxChilds(){return this.maxChilds;}
+    public int getMaximumDepth(){return this.maximumDepth;}
+    public float getMinimumLeafSizeX(){return this.minimumLeafSizeX;}
+    public float getMinimumLeafSizeY(){return this.minimumLeafSizeY;}
+    // Instance methods
+    @Override
+    public String toString(){
+        return "QuadtreeStats[nodes=" + String.valueOf(this.nodeCount) + ", leaves=" + String.valueOf(this.leafCount) + ", objects=" + String.valueOf(this.objectCount)
+            + ", references=" + String.valueOf(this.referenceCount) + ", deepestLeaf=" + String.valueOf(this.deepestLeaf) + ", averageLeafDepth=" + String.valueOf(this.averageLeafDepth)
+            + ", overfullLeaves=" + String.valueOf(this.overfullLeafCount) + ", objectsPerLeaf=" + Arrays.toString(this.objectsPerLeaf) + "]";
+    }
+    // Constructors
+    QuadtreeStats(int nodeCount, int leafCount, int objectCount, int referenceCount, int branchObjectCount, int deepestLeaf, double averageLeafDepth, int overfullLeafCount, long[] objectsPerLeaf, int maxChilds, int maximumDepth, Vector2 minimumLeafSize){
+        super();
+        this.nodeCount = nodeCount; this.leafCount = leafCount; this.objectCount = objectCount; this.referenceCount = referenceCount; this.branchObjectCount = branchObjectCount;
+        this.deepestLeaf = deepestLeaf; this.averageLeafDepth = averageLeafDepth; this.overfullLeafCount = overfullLeafCount;
+        this.objectsPerLeaf = objectsPerLeaf;
+        this.maxChilds = maxChilds; this.maximumDepth = maximumDepth;
+        this.minimumLeafSizeX = minimumLeafSize.getX(); this.minimumLeafSizeY = minimumLeafSize.getY();
+    }
+}
@@ -0,0 +1,25 @@
+package WizardTD.gameEnv;
+
+/**
+ * Gets told whenever an object comes into, moves around in or leaves the region of a subscription, see {@link Quadtree#subscribe}
+ * <p> An object is in the region while its bounds overlap with it, using the same test as {@link Quadtree#getObjectsIntersectingArea(Vector2, Vector2)} so touching edges don't count.
+ * Each object that enters gets an onLeave once it's gone again, with any number of onMove calls in between, unless the subscription is closed first
+ * <p> The listener is called on the thread changing the tree, straight after the change is done. It can query the tree but mustn't add, move or remove objects or change any subscriptions
+ */
+public interface RegionListener<Obj>{
+    /**
+     * Called when an object starts overlapping with the region, whether it was added, moved in or the region moved over it
+     * @param object
+     */
+    void onEnter(Obj object);
+    /**
+     * Called when an object that was already in the region is moved or resized and is still in it
+     * @param object
+     */
+    void onMove(Obj object);
+    /**
+     * Called when an object stops overlapping with the region, whether it was removed, moved out or the region moved off it
+     * @param object
+     */
+    void onLeave(Obj object);
+}
@@ -0,0 +1,117 @@
+package WizardTD.gameEnv;
+// Imports
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * The queries and settings that {@link Quadtree} and {@link CompactQuadtree} have in common, so that code which only looks things up can take either
+ * <p> Adding, moving and removing objects by what {@code add} handed back isn't part of this since the two hand back different things: a {@link Quadtree.QuadtreeObjectContainer} for one and an int handle for the other
+ * <p> The area queries don't count objects that only touch the edge of the area, while the point queries count objects whose edge the point is on
+ */
+public interface SpatialIndex<Obj>{
+    /**
+     * @return the size of the whole tree
+     */
+    Vector2 getSize();
+    /**
+     * @return the centre of the whole tree
+     */
+    Vector2 getPosition();
+    int getMaximumDepth();
+    int getCollapseThreshold();
+    int getMaxChilds();
+    Vector2 getMinimumLeafSize();
+    /**
+     * Returns the deepest layer the tree has reached so far; it doesn't go back down when nodes collapse
+     * @return
+     */
+    int getDepth();
+    /**
+     * Sets how deep nodes can be divided; nodes already past the new limit are left alone until they collapse
+     * @param maximumDepth between 1 and 31
+     */
+    void setMaximumDepth(int maximumDepth);
+    /**
+     * Sets how many objects sibling leaves can hold between them before they stop being merged back into their parent
+     * @param collapseThreshold has to be below maxChilds
+     */
+    void setCollapseThreshold(int collapseThreshold);
+    /**
+     * Sets how many objects a leaf can hold before it gets divided
+     * @param maxChilds has to be above the collapse threshold
+     */
+    void setMaxChilds(int maxChilds);
+    /**
+     * Sets how small a leaf can get; a node is only divided if its children would be bigger than this on both axes
+     * @param minimumLeafSize
+     */
+    void setMinimumLeafSize(Vector2 minimumLeafSize);
+    /**
+     * Removes the given object, only looking for it in the leaf at the position
+     * @param object
+     * @param position
+     */
+    void remove(Obj object, Vector2 position);
+    /**
+     * Fetches all objects that are within the node closest to the point, without checking them against the point
+     * @param point
+     * @return
+     */
+    ArrayList<Obj> getObjectsAtPoint(Vector2 point);
+    /**
+     * Fetches all the objects in the nodes that overlap with the area, which can include objects that don't overlap with it and objects more than once
+     * @param position
+     * @param size
+     * @return
+     */
+    ArrayList<Obj> getObjectsInArea(Vector2 position, Vector2 size);
+    /**
+     * Fetches every object whose own bounds overlap with the area, once each
+     * @param position
+     * @param size
+     * @return
+     */
+    ArrayList<Obj> getObjectsIntersectingArea(Vector2 position, Vector2 size);
+    /**
+     * Fetches every object whose own bounds contain the point, edges included
+     * @param point
+     * @return
+     */
+    ArrayList<Obj> getObjectsContainingPoint(Vector2 point);
+    // The same queries appending to a collection owned by the caller, each returning how many objects were added
+    int getObjectsAtPoint(float pointX, float pointY, Collection<? super Obj> sink);
+    int getObjectsInArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink);
+    int getObjectsIntersectingArea(float posX, float posY, float sizeX, float sizeY, Collection<? super Obj> sink);
+    int getObjectsContainingPoint(float pointX, float pointY, Collection<? super Obj> sink);
+    // And handing each object to a visitor instead, each returning how many objects were visited
+    int forEachObjectAtPoint(float pointX, float pointY, Consumer<? super Obj> visitor);
+    int forEachObjectInArea(float posX, float posY, float sizeX, float sizeY, Consumer<? super Obj> visitor);
+    int forEachObjectIntersectingArea(float posX, float posY, float sizeX, float sizeY, Consumer<? super Obj> visitor);
+    int forEachObjectContainingPoint(float pointX, float pointY, Consumer<? super Obj> visitor);
+    /**
+     * Fetches the object whose bounds are closest to the point
+     * @param point
+     * @return the closest object, or null if the tree is empty
+     */
+    Obj nearest(Vector2 point);
+    /**
+     * Fetches up to k objects whose bounds are within maxDistance of the point, closest first
+     * <p> The distance to an object is measured to the closest point on its bounds, so it's 0 for any object the point is inside of
+     * @param point
+     * @param k how many objects to return at most, at least 1
+     * @param maxDistance how far away from the point an object can be, inclusive
+     * @return
+     */
+    ArrayList<Obj> kNearest(Vector2 point, int k, float maxDistance);
+    /**
+     * Same as {@link #kNearest(Vector2, int, float)} but appends the objects to a collection owned by the caller, closest first
+     * @param pointX
+     * @param pointY
+     * @param k
+     * @param maxDistance
+     * @param sink
+     * @return the number of objects added to the sink
+     */
+    int kNearest(float pointX, float pointY, int k, float maxDistance, Collection<? super Obj> sink);
+}
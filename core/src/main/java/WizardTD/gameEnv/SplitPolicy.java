@@ -0,0 +1,30 @@
+package WizardTD.gameEnv;
+
+/**
+ * Decides how many objects each leaf of a {@link Quadtree} can hold before it's divided, and how few its children have to hold before they're merged back, see {@link Quadtree#setSplitPolicy}
+ * <p> Without a policy the tree uses the same maxChilds and collapse threshold everywhere. The minimum leaf size and maximum depth are hard limits that apply either way
+ * <p> While a policy is set the tree keeps track of how many queries and updates each leaf has seen recently, where older ones count for less and less (they halve every 65536 or so).
+ * Those are handed over as the node's share of everything the tree has seen, so 0.25 means a quarter of the recent queries went through this node.
+ * Only queries made on the tree itself are counted; queries through a {@link ConcurrentQuadtree}'s readers or a snapshot leave the nodes alone, so they aren't
+ */
+public interface SplitPolicy{
+    /**
+     * Returns how many objects the leaf can hold; once it holds this many, adding another divides it
+     * @param geohash the leaf's geohash
+     * @param depth the leaf's depth
+     * @param queryShare the leaf's share of the recent queries, between 0 and 1
+     * @param updateShare the leaf's share of the objects recently added, moved or removed, between 0 and 1
+     * @return at least 1
+     */
+    int getCapacity(long geohash, int depth, float queryShare, float updateShare);
+    /**
+     * Returns how many objects a node's leaves can hold between them before they stop being merged back into it
+     * <p> This should stay below what {@link #getCapacity} gives for the same node, otherwise the merged leaf would be divided again by the next insert
+     * @param geohash the geohash of the node the leaves would be merged into
+     * @param depth the depth of the node the leaves would be merged into
+     * @param queryShare the share of the recent queries that went through the node and its leaves
+     * @param updateShare the share of the recent updates that went through the node and its leaves
+     * @return
+     */
+    int getCollapseThreshold(long geohash, int depth, float queryShare, float updateShare);
+}
@@ -0,0 +1,41 @@
+package WizardTD.gameEnv;
+// Imports
+import java.lang.Float;
+
+// Static imports
+import java.lang.Math;
+
+/**
+ * Immutable 2D vector used for the positions and sizes handed to and from the quadtrees
+ */
+public class Vector2{
+    // Static methods
+    public static Vector2 add(Vector2 first, Vector2 second){return new Vector2(first.x + second.x, first.y + second.y);}
+    public static Vector2 subtract(Vector2 first, Vector2 second){return new Vector2(first.x - second.x, first.y - second.y);}
+    public static Vector2 multiply(Vector2 vector, float scalar){return new Vector2(vector.x * scalar, vector.y * scalar);}
+    public static Vector2 divide(Vector2 vector, float scalar){return new Vector2(vector.x / scalar, vector.y / scalar);}
+    // Instance vars
+    private final float x, y;
+    // Accessors
+    public float getX(){return this.x;}
+    public float getY(){return this.y;}
+    public float getMagnitude(){return (float) Math.sqrt(this.x*this.x + this.y*this.y);}
+    // Instance methods
+    @Override
+    public boolean equals(Object other){
+        if(this == other){return true;}
+        if(!(other instanceof Vector2)){return false;}
+        Vector2 otherVector = (Vector2) other;
+        // Compared the same way Float.equals does so that equals and hashCode agree on NaNs and signed zeroes
+        return Float.floatToIntBits(this.x) == Float.floatToIntBits(otherVector.x) && Float.floatToIntBits(this.y) == Float.floatToIntBits(otherVector.y);
+    }
+    @Override
+    public int hashCode(){return 31 * Float.hashCode(this.x) + Float.hashCode(this.y);}
+    @Override
+    public String toString(){return "(" + String.valueOf(this.x) + ", " + String.valueOf(this.y) + ")";}
+    // Constructors
+    public Vector2(float x, float y){
+        super();
+        this.x = x; this.y = y;
+    }
+}
@@ -0,0 +1,95 @@
+package WizardTD.gameEnv;
+
+// Imports
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Static imports
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the capacities {@link AdaptiveSplitPolicy} hands out, and that a {@link Quadtree} shaped by it still answers queries the same as a brute force search
+ */
+class AdaptiveSplitPolicyTest{
+    // Config vars
+    private static final int objectCount = 1500;
+    // Helper methods
+    private static double getAverageLeafDepth(Quadtree<Integer> tree, long quadrant){
+        // The average depth of the leaves under one of the root's children, going by the first digit of their geohash
+        long depthTotal = 0, leafCount = 0;
+        for(long[] node : QuadtreeTest.getNodes(tree)){
+            if(node[1] == 0 || (node[0] & 3) != quadrant || tree.hasNode(node[0], (int) node[1] + 1)){continue;}
+            depthTotal += node[1];
+            leafCount++;
+        }
+        return (double) depthTotal / leafCount;
+    }
+    // Instance methods
+    @Test
+    void capacityFollowsTheLoad(){
+        AdaptiveSplitPolicy policy = new AdaptiveSplitPolicy();
+        // A node with its fair share of both gets the base capacity, which the first layer's fair share of a quarter works out to
+        assertEquals(8, policy.getCapacity(0, 1, 0.25f, 0.25f));
+        assertEquals(8, policy.getCapacity(0, 3, 0, 0));
+        // Otherwise it's the base capacity times the square root of the update share over the query share, both topped up by the fair share
+        assertEquals(Math.round(8*Math.sqrt(0.25/1.25)), policy.getCapacity(0, 1, 1, 0));
+        assertEquals(Math.round(8*Math.sqrt(1.25/0.25)), policy.getCapacity(0, 1, 0, 1));
+        // and kept between the minimum and the maximum
+        assertEquals(2, policy.getCapacity(0, 10, 1, 0));
+        assertEquals(64, policy.getCapacity(0, 10, 0, 1));
+        for(int depth = 1; depth < 8; depth++){
+            for(float share = 0; share <= 1; share += 0.125f){
+                assertEquals(policy.getCapacity(0, depth, share, 1 - share)/2, policy.getCollapseThreshold(0, depth, share, 1 - share));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveSplitPolicy(8, 0, 64));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveSplitPolicy(1, 2, 64));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveSplitPolicy(8, 2, 4));
+    }
+    @Test
+    void treeMatchesBruteForce(){
+        Random random = new Random(71);
+        Quadtree<Integer> tree = new Quadtree<Integer>(new Vector2(1000, 1000), new Vector2(0, 0), new AdaptiveSplitPolicy());
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(objectCount);
+        for(int i = 0; i < objectCount; i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            containers.add(tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            expected.put(i, bounds);
+        }
+        QuadtreeTest.assertQueriesMatch(tree, expected, random);
+        // Query the north east a lot while only moving things around in the south west
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        for(int round = 0; round < 20; round++){
+            for(int i = 0; i < 500; i++){
+                sink.clear();
+                tree.getObjectsIntersectingArea(random.nextFloat()*500, random.nextFloat()*500, 20, 20, sink);
+            }
+            for(int i = 0; i < objectCount; i++){
+                float[] bounds = expected.getBounds(i);
+                if(bounds[0] >= 0 || bounds[1] >= 0){continue;}
+                bounds = bounds.clone();
+                bounds[0] = Math.max(-470, Math.min(-20, bounds[0] + (random.nextFloat() - 0.5f)*20));
+                bounds[1] = Math.max(-470, Math.min(-20, bounds[1] + (random.nextFloat() - 0.5f)*20));
+                tree.update(containers.get(i), bounds[0], bounds[1], bounds[2], bounds[3]);
+                expected.put(i, bounds);
+            }
+        }
+        // Leaves only divide and merge as objects come and go, so take everything out and put it back to let the policy reshape the tree
+        for(int i = 0; i < objectCount; i++){tree.remove(containers.get(i));}
+        for(int i = 0; i < objectCount; i++){
+            float[] bounds = expected.getBounds(i);
+            containers.set(i, tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+        }
+        QuadtreeTest.assertQueriesMatch(tree, expected, random);
+        assertTrue(getAverageLeafDepth(tree, 2) > getAverageLeafDepth(tree, 1), "the busy north east should have smaller leaves than the south west");
+        // Then carry on as normal with the policy still in charge
+        QuadtreeTest.mutate(tree, containers, expected, random, 4000);
+        QuadtreeTest.assertQueriesMatch(tree, expected, random);
+        assertEquals(expected.getSize(), tree.getStats().getObjectCount());
+    }
+}
@@ -0,0 +1,169 @@
+package WizardTD.gameEnv;
+
+// Imports
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Keeps the bounds of every object in a plain array and answers each query by checking all of them, for testing the trees against
+ * <p> The objects are ints from 0 up to the capacity, and the tests are expected to put the same objects in the tree they're checking
+ */
+class BruteForceIndex{
+    // Static methods
+    /**
+     * Makes up the bounds of an object that sits inside of a 1000 by 1000 tree centred on the origin
+     * <p> Some of them are points, some sit right on the lines the tree divides along and some are snapped to a grid so that their edges touch, since those are where the edge cases are
+     * @param random
+     * @return the position X, position Y, size X and size Y
+     */
+    static float[] randomBounds(Random random){
+        float posX = random.nextFloat()*940 - 470, posY = random.nextFloat()*940 - 470;
+        int kind = random.nextInt(10);
+        if(kind == 0){return new float[]{posX, posY, 0, 0};}
+        if(kind == 3){return new float[]{Math.round(posX/5)*5, Math.round(posY/5)*5, 10*(1 + random.nextInt(2)), 10*(1 + random.nextInt(2))};}
+        if(kind == 1){posX = Math.round(posX/62.5f)*62.5f;}
+        if(kind == 2){posY = Math.round(posY/125f)*125f;}
+        return new float[]{posX, posY, random.nextFloat()*30 + 0.5f, random.nextFloat()*30 + 0.5f};
+    }
+    static long getPairKey(int first, int second){return ((long) Math.min(first, second) << 32) | Math.max(first, second);}
+    // Instance vars
+    private final float[][] bounds; // Null for objects that aren't in the tree
+    private int size;
+    // Accessors
+    int getCapacity(){return this.bounds.length;}
+    int getSize(){return this.size;}
+    boolean contains(int object){return this.bounds[object] != null;}
+    float[] getBounds(int object){return this.bounds[object];}
+    // Mutators
+    void put(int object, float posX, float posY, float sizeX, float sizeY){
+        if(this.bounds[object] == null){this.size++;}
+        this.bounds[object] = new float[]{posX, posY, sizeX, sizeY};
+    }
+    void put(int object, float[] bounds){put(object, bounds[0], bounds[1], bounds[2], bounds[3]);}
+    void remove(int object){
+        if(this.bounds[object] != null){this.size--;}
+        this.bounds[object] = null;
+    }
+    // Instance methods
+    /**
+     * Every object whose bounds overlap with the area; touching edges don't count, the same as the trees
+     * @param posX
+     * @param posY
+     * @param sizeX
+     * @param sizeY
+     * @return
+     */
+    Set<Integer> getIntersecting(float posX, float posY, float sizeX, float sizeY){
+        HashSet<Integer> returnValue = new HashSet<Integer>();
+        for(int i = 0; i < this.bounds.length; i++){
+            float[] current = this.bounds[i];
+            if(current == null){continue;}
+            if(Math.abs(current[0] - posX) < (current[2] + sizeX)/2 && Math.abs(current[1] - posY) < (current[3] + sizeY)/2){returnValue.add(i);}
+        }
+        return returnValue;
+    }
+    /**
+     * Every object whose bounds contain the point, edges included
+     * @param pointX
+     * @param pointY
+     * @return
+     */
+    Set<Integer> getContaining(float pointX, float pointY){
+        HashSet<Integer> returnValue = new HashSet<Integer>();
+        for(int i = 0; i < this.bounds.length; i++){
+            float[] current = this.bounds[i];
+            if(current == null){continue;}
+            if(Math.abs(current[0] - pointX) <= current[2]/2 && Math.abs(current[1] - pointY) <= current[3]/2){returnValue.add(i);}
+        }
+        return returnValue;
+    }
+    /**
+     * Every pair of objects whose bounds overlap, keyed by {@link #getPairKey(int, int)}
+     * @return
+     */
+    Set<Long> getOverlappingPairs(){
+        HashSet<Long> returnValue = new HashSet<Long>();
+        for(int i = 0; i < this.bounds.length; i++){
+            float[] first = this.bounds[i];
+            if(first == null){continue;}
+            for(int l = i + 1; l < this.bounds.length; l++){
+                float[] second = this.bounds[l];
+                if(second == null){continue;}
+                if(Math.abs(first[0] - second[0]) < (first[2] + second[2])/2 && Math.abs(first[1] - second[1]) < (first[3] + second[3])/2){returnValue.add(getPairKey(i, l));}
+            }
+        }
+        return returnValue;
+    }
+    /**
+     * The distance from the point to the closest point on the object's bounds, worked out the same way as the trees do
+     * @param object
+     * @param pointX
+     * @param pointY
+     * @return
+     */
+    float getDistance(int object, float pointX, float pointY){
+        float[] current = this.bounds[object];
+        float distanceX = Math.max(Math.abs(pointX - current[0]) - current[2]/2, 0), distanceY = Math.max(Math.abs(pointY - current[1]) - current[3]/2, 0);
+        return (float) Math.sqrt(distanceX*distanceX + distanceY*distanceY);
+    }
+    /**
+     * Every object within maxDistance of the point, closest first
+     * @param pointX
+     * @param pointY
+     * @param maxDistance
+     * @return
+     */
+    ArrayList<Integer> getNearest(float pointX, float pointY, float maxDistance){
+        ArrayList<Integer> returnValue = new ArrayList<Integer>();
+        for(int i = 0; i < this.bounds.length; i++){
+            if(this.bounds[i] != null && getDistance(i, pointX, pointY) <= maxDistance){returnValue.add(i);}
+        }
+        returnValue.sort(Comparator.comparingDouble(object -> getDistance(object, pointX, pointY)));
+        return returnValue;
+    }
+    /**
+     * How far along the ray the object is first hit, in doubles so that it can be compared against the tree's floats with a little leeway
+     * @param object
+     * @param originX
+     * @param originY
+     * @param directionX
+     * @param directionY
+     * @param maxDistance how far along the ray to go, in lengths of the direction
+     * @return the distance in lengths of the direction, or -1 if the ray misses; edges count as hits
+     */
+    double getRayDistance(int object, double originX, double originY, double directionX, double directionY, double maxDistance){
+        float[] current = this.bounds[object];
+        double[] origin = {originX, originY}, direction = {directionX, directionY};
+        double[] minimum = {current[0] - current[2]/2.0, current[1] - current[3]/2.0}, maximum = {current[0] + current[2]/2.0, current[1] + current[3]/2.0};
+        double enter = 0, exit = maxDistance;
+        for(int axis = 0; axis < 2; axis++){
+            if(direction[axis] == 0){
+                if(origin[axis] < minimum[axis] || origin[axis] > maximum[axis]){return -1;}
+                continue;
+            }
+            double first = (minimum[axis] - origin[axis])/direction[axis], second = (maximum[axis] - origin[axis])/direction[axis];
+            enter = Math.max(enter, Math.min(first, second)); exit = Math.min(exit, Math.max(first, second));
+            if(enter > exit){return -1;}
+        }
+        return enter;
+    }
+    /**
+     * A copy of everything that's in here right now, so that it can be checked against a snapshot later on
+     * @return
+     */
+    BruteForceIndex copy(){
+        BruteForceIndex returnValue = new BruteForceIndex(this.bounds.length);
+        for(int i = 0; i < this.bounds.length; i++){
+            if(this.bounds[i] != null){returnValue.put(i, this.bounds[i]);}
+        }
+        return returnValue;
+    }
+    public String toString(){return "BruteForceIndex[size=" + String.valueOf(this.size) + ", capacity=" + String.valueOf(this.bounds.length) + "]";}
+    // Constructors
+    BruteForceIndex(int capacity){
+        this.bounds = new float[capacity][];
+    }
+}
@@ -0,0 +1,151 @@
+package WizardTD.gameEnv;
+
+// Imports
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Static imports
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs {@link CompactQuadtree} and {@link Quadtree} side by side through {@link SpatialIndex}, checking both against a brute force search
+ */
+class CompactQuadtreeTest{
+    // Config vars
+    private static final int objectCount = 1500;
+    // Helper methods
+    private static void assertMatches(SpatialIndex<Integer> tree, BruteForceIndex expected, Random random){
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        for(int i = 0; i < 200; i++){
+            float posX = Math.round((random.nextFloat()*1000 - 500)/5)*5, posY = Math.round((random.nextFloat()*1000 - 500)/5)*5, sizeX = 5*(1 + random.nextInt(30)), sizeY = 5*(1 + random.nextInt(30));
+            sink.clear();
+            tree.getObjectsIntersectingArea(posX, posY, sizeX, sizeY, sink);
+            assertEquals(expected.getIntersecting(posX, posY, sizeX, sizeY), new HashSet<Integer>(sink));
+            assertEquals(sink.size(), new HashSet<Integer>(sink).size(), "an object came back twice");
+            // Every other point is snapped to the same grid, which puts it on object edges and the lines the trees divide along
+            posX = random.nextFloat()*1000 - 500; posY = random.nextFloat()*1000 - 500;
+            if(i % 2 == 0){posX = Math.round(posX/5)*5; posY = Math.round(posY/5)*5;}
+            sink.clear();
+            tree.getObjectsContainingPoint(posX, posY, sink);
+            assertEquals(expected.getContaining(posX, posY), new HashSet<Integer>(sink));
+            ArrayList<Integer> nearest = tree.kNearest(new Vector2(posX, posY), 5, 100);
+            ArrayList<Integer> expectedNearest = expected.getNearest(posX, posY, 100);
+            assertEquals(Math.min(5, expectedNearest.size()), nearest.size());
+            // Ties can come back in any order, so only compare the distances
+            for(int l = 0; l < nearest.size(); l++){assertEquals(expected.getDistance(expectedNearest.get(l), posX, posY), expected.getDistance(nearest.get(l), posX, posY));}
+        }
+    }
+    // Instance methods
+    @Test
+    void bothTreesMatchBruteForce(){
+        Random random = new Random(31);
+        Quadtree<Integer> tree = QuadtreeTest.newTree(0);
+        CompactQuadtree<Integer> compactTree = new CompactQuadtree<Integer>(tree.getSize(), tree.getPosition(), tree.getMaxChilds(), tree.getMinimumLeafSize());
+        compactTree.setMaximumDepth(tree.getMaximumDepth());
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(objectCount);
+        int[] handles = new int[objectCount];
+        for(int i = 0; i < objectCount; i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            containers.add(tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            handles[i] = compactTree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]);
+            expected.put(i, bounds);
+        }
+        assertMatches(tree, expected, random);
+        assertMatches(compactTree, expected, random);
+        // Move, remove and put back objects in both trees the same way
+        for(int i = 0; i < 4000; i++){
+            int object = random.nextInt(objectCount);
+            if(!expected.contains(object)){
+                float[] bounds = BruteForceIndex.randomBounds(random);
+                containers.set(object, tree.add(object, bounds[0], bounds[1], bounds[2], bounds[3]));
+                handles[object] = compactTree.add(object, bounds[0], bounds[1], bounds[2], bounds[3]);
+                expected.put(object, bounds);
+            } else if(random.nextInt(3) == 0){
+                tree.remove(containers.get(object));
+                compactTree.remove(handles[object]);
+                expected.remove(object);
+            } else {
+                float[] bounds = BruteForceIndex.randomBounds(random);
+                tree.update(containers.get(object), bounds[0], bounds[1], bounds[2], bounds[3]);
+                compactTree.update(handles[object], bounds[0], bounds[1], bounds[2], bounds[3]);
+                expected.put(object, bounds);
+            }
+        }
+        assertEquals(expected.getSize(), compactTree.getObjectCount());
+        assertMatches(tree, expected, random);
+        assertMatches(compactTree, expected, random);
+    }
+    @Test
+    void objectsRightOnASplitLine(){
+        // Same layout as QuadtreeTest.objectsRightOnASplitLine
+        CompactQuadtree<Integer> tree = new CompactQuadtree<Integer>(new Vector2(1000, 1000), new Vector2(0, 0));
+        BruteForceIndex expected = new BruteForceIndex(64);
+        float[][] onTheLine = {{-5, 100, 10, 10}, {0, 0, 0, 0}, {0, -200, 0, 40}};
+        for(int i = 0; i < onTheLine.length; i++){
+            tree.add(i, onTheLine[i][0], onTheLine[i][1], onTheLine[i][2], onTheLine[i][3]);
+            expected.put(i, onTheLine[i]);
+        }
+        for(int i = onTheLine.length; i < 64; i++){
+            float[] bounds = {-400 + (i % 8)*110, -400 + (i / 8)*110, 4, 4};
+            tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]);
+            expected.put(i, bounds);
+        }
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        float[][] points = {{0, 100}, {0, 105}, {-10, 100}, {0, 0}, {0, -200}, {0, -180}, {0, -230}};
+        for(int i = 0; i < points.length; i++){
+            sink.clear();
+            tree.getObjectsContainingPoint(points[i][0], points[i][1], sink);
+            assertEquals(expected.getContaining(points[i][0], points[i][1]), new HashSet<Integer>(sink), "at " + points[i][0] + ", " + points[i][1]);
+            assertEquals(new HashSet<Integer>(sink).size(), sink.size(), "an object came back twice");
+        }
+        float[][] areas = {{0, 100, 0, 0}, {-2, 100, 0, 4}, {0, 0, 2, 2}, {0, -200, 10, 0}, {0, -200, 0, 0}, {1, -200, 4, 4}};
+        for(int i = 0; i < areas.length; i++){
+            sink.clear();
+            tree.getObjectsIntersectingArea(areas[i][0], areas[i][1], areas[i][2], areas[i][3], sink);
+            assertEquals(expected.getIntersecting(areas[i][0], areas[i][1], areas[i][2], areas[i][3]), new HashSet<Integer>(sink));
+        }
+    }
+    @Test
+    void visitorsCanQueryTheTree(){
+        Random random = new Random(32);
+        CompactQuadtree<Integer> tree = new CompactQuadtree<Integer>(new Vector2(1000, 1000), new Vector2(0, 0));
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        for(int i = 0; i < objectCount; i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]);
+            expected.put(i, bounds);
+        }
+        for(int i = 0; i < 200; i++){
+            float posX = random.nextFloat()*1000 - 500, posY = random.nextFloat()*1000 - 500, sizeX = random.nextFloat()*300, sizeY = random.nextFloat()*300;
+            // Every visit runs an exact query of its own around the object, which takes a new stamp and mustn't let objects we've already seen through again
+            ArrayList<Integer> visited = new ArrayList<Integer>();
+            tree.forEachObjectIntersectingArea(posX, posY, sizeX, sizeY, object -> {
+                float[] bounds = expected.getBounds(object);
+                ArrayList<Integer> inner = new ArrayList<Integer>();
+                tree.forEachObjectIntersectingArea(bounds[0], bounds[1], 1, 1, inner::add);
+                assertEquals(expected.getIntersecting(bounds[0], bounds[1], 1, 1), new HashSet<Integer>(inner));
+                visited.add(object);
+            });
+            assertEquals(expected.getIntersecting(posX, posY, sizeX, sizeY).size(), visited.size(), "an object was missed or came back twice");
+            assertEquals(expected.getIntersecting(posX, posY, sizeX, sizeY), new HashSet<Integer>(visited));
+        }
+    }
+    @Test
+    void takesItsSettingsInTheConstructor(){
+        CompactQuadtree<Integer> tree = new CompactQuadtree<Integer>(new Vector2(1000, 1000), new Vector2(0, 0), 6, new Vector2(5, 10));
+        assertEquals(6, tree.getMaxChilds());
+        assertEquals(5, tree.getMinimumLeafSize().getX());
+        assertEquals(10, tree.getMinimumLeafSize().getY());
+        // The defaults are the same as a regular quadtree's
+        SpatialIndex<Integer> defaultTree = new CompactQuadtree<Integer>(new Vector2(1000, 1000), new Vector2(0, 0));
+        assertEquals(20, defaultTree.getMinimumLeafSize().getX());
+        assertThrows(IllegalArgumentException.class, () -> tree.setMaxChilds(tree.getCollapseThreshold()));
+        assertThrows(IllegalArgumentException.class, () -> tree.setMinimumLeafSize(new Vector2(-1, 0)));
+        assertThrows(IllegalArgumentException.class, () -> new CompactQuadtree<Integer>(new Vector2(1000, 1000), new Vector2(0, 0), 0, new Vector2(0, 0)));
+    }
+}
@@ -0,0 +1,176 @@
+package WizardTD.gameEnv;
+
+// Imports
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Static imports
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the queries {@link ConcurrentQuadtree} runs on behalf of its readers against a brute force search
+ */
+class ConcurrentQuadtreeTest{
+    // Config vars
+    private static final int objectCount = 1500;
+    private static final int queryCount = 200;
+    private static final int movingCount = 300;
+    private static final int readerCount = 4;
+    // Static methods
+    static ConcurrentQuadtree<Integer> newTree(float looseness){
+        // 0 stands for a regular tree, the same as QuadtreeTest.newTree
+        Vector2 size = new Vector2(1000, 1000), position = new Vector2(0, 0);
+        return looseness == 0 ? new ConcurrentQuadtree<Integer>(size, position) : new ConcurrentQuadtree<Integer>(size, position, looseness);
+    }
+    static ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> fill(ConcurrentQuadtree<Integer> tree, BruteForceIndex expected, Random random){
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> returnValue = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(expected.getCapacity());
+        for(int i = 0; i < expected.getCapacity(); i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            returnValue.add(tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            expected.put(i, bounds);
+        }
+        return returnValue;
+    }
+    // Instance methods
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void readsMatchBruteForce(float looseness){
+        Random random = new Random(51);
+        ConcurrentQuadtree<Integer> tree = newTree(looseness);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        fill(tree, expected, random);
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        // Once optimistically and once always taking the read lock, which go down different paths
+        for(int attempts = 0; attempts < 2; attempts++){
+            tree.setOptimisticAttempts(attempts == 0 ? 3 : 0);
+            for(int i = 0; i < queryCount; i++){
+                float posX = random.nextFloat()*1000 - 500, posY = random.nextFloat()*1000 - 500, sizeX = random.nextFloat()*150, sizeY = random.nextFloat()*150;
+                Set<Integer> expectedObjects = expected.getIntersecting(posX, posY, sizeX, sizeY);
+                sink.clear();
+                tree.getObjectsIntersectingArea(posX, posY, sizeX, sizeY, sink);
+                assertEquals(expectedObjects.size(), sink.size(), "an object was missed or came back twice");
+                assertEquals(expectedObjects, new HashSet<Integer>(sink));
+                ArrayList<Integer> visited = new ArrayList<Integer>();
+                assertEquals(expectedObjects.size(), tree.forEachObjectIntersectingArea(posX, posY, sizeX, sizeY, visited::add));
+                assertEquals(expectedObjects, new HashSet<Integer>(visited));
+                sink.clear();
+                tree.getObjectsInArea(posX, posY, sizeX, sizeY, sink);
+                assertTrue(new HashSet<Integer>(sink).containsAll(expectedObjects));
+                sink.clear();
+                tree.getObjectsContainingPoint(posX, posY, sink);
+                assertEquals(expected.getContaining(posX, posY), new HashSet<Integer>(sink));
+                ArrayList<Integer> nearest = tree.kNearest(new Vector2(posX, posY), 5, 100);
+                ArrayList<Integer> expectedNearest = expected.getNearest(posX, posY, 100);
+                assertEquals(Math.min(5, expectedNearest.size()), nearest.size());
+                for(int l = 0; l < nearest.size(); l++){assertEquals(expected.getDistance(expectedNearest.get(l), posX, posY), expected.getDistance(nearest.get(l), posX, posY));}
+            }
+        }
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void visitorsCanQueryTheTree(float looseness){
+        Random random = new Random(52);
+        ConcurrentQuadtree<Integer> tree = newTree(looseness);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        fill(tree, expected, random);
+        for(int i = 0; i < queryCount; i++){
+            float posX = random.nextFloat()*1000 - 500, posY = random.nextFloat()*1000 - 500, sizeX = random.nextFloat()*300, sizeY = random.nextFloat()*300;
+            Set<Integer> expectedObjects = expected.getIntersecting(posX, posY, sizeX, sizeY);
+            // Every visit runs a query of its own around the object, and those shouldn't cut ours short
+            ArrayList<Integer> visited = new ArrayList<Integer>();
+            tree.forEachObjectIntersectingArea(posX, posY, sizeX, sizeY, object -> {
+                float[] bounds = expected.getBounds(object);
+                ArrayList<Integer> inner = new ArrayList<Integer>();
+                tree.forEachObjectIntersectingArea(bounds[0], bounds[1], 1, 1, inner::add);
+                assertEquals(expected.getIntersecting(bounds[0], bounds[1], 1, 1), new HashSet<Integer>(inner));
+                visited.add(object);
+            });
+            assertEquals(expectedObjects.size(), visited.size(), "an object was missed or came back twice");
+            assertEquals(expectedObjects, new HashSet<Integer>(visited));
+        }
+        // Visitors can write to the tree too, since they're only called once the read is over
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> added = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>();
+        int visited = tree.forEachObjectIntersectingArea(0, 0, 200, 200, object -> added.add(tree.add(-1 - object, 0, 0, 1, 1)));
+        assertEquals(expected.getIntersecting(0, 0, 200, 200).size(), visited);
+        assertEquals(visited, tree.getObjectsContainingPoint(new Vector2(0, 0)).stream().filter(object -> object < 0).count());
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void readsRetryAroundWritersOnOtherThreads(float looseness) throws InterruptedException{
+        Random random = new Random(53);
+        ConcurrentQuadtree<Integer> tree = newTree(looseness);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        fill(tree, expected, random);
+        // On top of the objects that stay put, this thread keeps flipping some between two spots, sometimes by moving them and sometimes by taking them out and adding them back
+        //  so whatever a reader finds of those has to be at one spot or the other, and the rest has to match exactly
+        float[][] firstSpots = new float[movingCount][], secondSpots = new float[movingCount][];
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> movingContainers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(movingCount);
+        boolean[] atSecondSpot = new boolean[movingCount];
+        for(int i = 0; i < movingCount; i++){
+            firstSpots[i] = BruteForceIndex.randomBounds(random); secondSpots[i] = BruteForceIndex.randomBounds(random);
+            movingContainers.add(tree.add(objectCount + i, firstSpots[i][0], firstSpots[i][1], firstSpots[i][2], firstSpots[i][3]));
+        }
+        BruteForceIndex firstIndex = new BruteForceIndex(movingCount), secondIndex = new BruteForceIndex(movingCount);
+        for(int i = 0; i < movingCount; i++){firstIndex.put(i, firstSpots[i]); secondIndex.put(i, secondSpots[i]);}
+        // One optimistic attempt makes the readers fall back to the lock a lot more often
+        tree.setOptimisticAttempts(looseness == 0 ? 1 : 3);
+        AtomicInteger finished = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        ArrayList<Thread> readers = new ArrayList<Thread>();
+        for(int i = 0; i < readerCount; i++){
+            Random readerRandom = new Random(i);
+            Thread reader = new Thread(() -> {
+                ArrayList<Integer> sink = new ArrayList<Integer>();
+                try{
+                    for(int l = 0; l < queryCount && failure.get() == null; l++){
+                        float posX = readerRandom.nextFloat()*1000 - 500, posY = readerRandom.nextFloat()*1000 - 500, sizeX = readerRandom.nextFloat()*300, sizeY = readerRandom.nextFloat()*300;
+                        sink.clear();
+                        tree.getObjectsIntersectingArea(posX, posY, sizeX, sizeY, sink);
+                        assertEquals(new HashSet<Integer>(sink).size(), sink.size(), "an object came back twice");
+                        Set<Integer> found = new HashSet<Integer>(), foundMoving = new HashSet<Integer>();
+                        for(int object : sink){
+                            if(object < objectCount){found.add(object);} else {foundMoving.add(object - objectCount);}
+                        }
+                        assertEquals(expected.getIntersecting(posX, posY, sizeX, sizeY), found);
+                        Set<Integer> couldBeMoving = firstIndex.getIntersecting(posX, posY, sizeX, sizeY);
+                        couldBeMoving.addAll(secondIndex.getIntersecting(posX, posY, sizeX, sizeY));
+                        assertTrue(couldBeMoving.containsAll(foundMoving), "an object that's moving came back from somewhere it never was");
+                        sink.clear();
+                        tree.forEachObjectContainingPoint(posX, posY, object -> {if(object < objectCount){sink.add(object);}});
+                        assertEquals(expected.getContaining(posX, posY), new HashSet<Integer>(sink));
+                    }
+                } catch(Throwable e){
+                    failure.compareAndSet(null, e);
+                } finally {
+                    finished.incrementAndGet();
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        try{
+            while(finished.get() < readerCount){
+                int object = random.nextInt(movingCount);
+                atSecondSpot[object] = !atSecondSpot[object];
+                float[] bounds = atSecondSpot[object] ? secondSpots[object] : firstSpots[object];
+                if(random.nextInt(4) == 0){
+                    tree.remove(movingContainers.get(object));
+                    movingContainers.set(object, tree.add(objectCount + object, bounds[0], bounds[1], bounds[2], bounds[3]));
+                } else {
+                    tree.update(movingContainers.get(object), bounds[0], bounds[1], bounds[2], bounds[3]);
+                }
+            }
+        } finally {
+            for(int i = 0; i < readers.size(); i++){readers.get(i).join();}
+        }
+        if(failure.get() != null){throw new AssertionError("a reader failed", failure.get());}
+    }
+}
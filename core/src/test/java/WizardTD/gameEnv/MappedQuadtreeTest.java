@@ -0,0 +1,153 @@
+package WizardTD.gameEnv;
+
+// Imports
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Static imports
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Saves a tree, loads it back into another tree and maps it with {@link MappedQuadtree}, then checks all three against a brute force search
+ */
+class MappedQuadtreeTest{
+    // Config vars
+    private static final int objectCount = 1500;
+    private static final long idOffset = 1000; // Saved ids aren't the objects themselves, so shift them to make sure they get translated back
+    // Instance vars
+    @TempDir
+    Path directory;
+    // Helper methods
+    private static Set<Integer> toObjects(ArrayList<Long> ids){
+        HashSet<Integer> returnValue = new HashSet<Integer>();
+        for(int i = 0; i < ids.size(); i++){returnValue.add((int) (ids.get(i) - idOffset));}
+        return returnValue;
+    }
+    private static BruteForceIndex reorder(BruteForceIndex expected, ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers){
+        // load hands back the containers in the order they were saved in, so index the bounds by position in that list instead
+        BruteForceIndex returnValue = new BruteForceIndex(containers.size());
+        for(int i = 0; i < containers.size(); i++){returnValue.put(i, expected.getBounds(containers.get(i).getInstance()));}
+        return returnValue;
+    }
+    // Instance methods
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void roundTripMatchesBruteForce(float looseness) throws IOException{
+        Random random = new Random(21);
+        Quadtree<Integer> tree = QuadtreeTest.newTree(looseness);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(objectCount);
+        for(int i = 0; i < objectCount; i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            containers.add(tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            expected.put(i, bounds);
+        }
+        QuadtreeTest.mutate(tree, containers, expected, random, 3000);
+        Path file = this.directory.resolve("tree.bin");
+        tree.save(file, object -> object + idOffset);
+        // Load into a tree with different bounds and something already in it, both of which should be replaced
+        Quadtree<Integer> loadedTree = looseness == 0 ? new Quadtree<Integer>(new Vector2(10, 10), new Vector2(0, 0)) : new Quadtree<Integer>(new Vector2(10, 10), new Vector2(0, 0), looseness);
+        loadedTree.add(-1, 0, 0, 1, 1);
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> loadedContainers = loadedTree.load(file, id -> (int) (id - idOffset));
+        assertEquals(expected.getSize(), loadedContainers.size());
+        assertEquals(tree.getSize(), loadedTree.getSize());
+        assertEquals(tree.getStats().getNodeCount(), loadedTree.getStats().getNodeCount());
+        MappedQuadtree mappedTree = new MappedQuadtree(file);
+        assertEquals(tree.getStats().getNodeCount(), mappedTree.getNodeCount());
+        assertEquals(expected.getSize(), mappedTree.getObjectCount());
+        assertEquals(looseness, mappedTree.getLooseness());
+        ArrayList<Integer> sink = new ArrayList<Integer>(), loadedSink = new ArrayList<Integer>();
+        ArrayList<Long> ids = new ArrayList<Long>();
+        for(int i = 0; i < 300; i++){
+            float posX = random.nextFloat()*1000 - 500, posY = random.nextFloat()*1000 - 500, sizeX = random.nextFloat()*150, sizeY = random.nextFloat()*150;
+            Set<Integer> expectedObjects = expected.getIntersecting(posX, posY, sizeX, sizeY);
+            loadedSink.clear(); ids.clear();
+            loadedTree.getObjectsIntersectingArea(posX, posY, sizeX, sizeY, loadedSink);
+            mappedTree.forEachIdIntersectingArea(posX, posY, sizeX, sizeY, ids::add);
+            assertEquals(expectedObjects.size(), loadedSink.size());
+            assertEquals(expectedObjects, new HashSet<Integer>(loadedSink));
+            assertEquals(expectedObjects.size(), ids.size());
+            assertEquals(expectedObjects, toObjects(ids));
+            expectedObjects = expected.getContaining(posX, posY);
+            loadedSink.clear(); ids.clear();
+            loadedTree.getObjectsContainingPoint(posX, posY, loadedSink);
+            mappedTree.forEachIdContainingPoint(posX, posY, ids::add);
+            assertEquals(expectedObjects, new HashSet<Integer>(loadedSink));
+            assertEquals(expectedObjects.size(), ids.size());
+            assertEquals(expectedObjects, toObjects(ids));
+            // The non-exact queries go by the nodes, which were saved exactly as they were
+            sink.clear(); loadedSink.clear(); ids.clear();
+            tree.getObjectsInArea(posX, posY, sizeX, sizeY, sink);
+            loadedTree.getObjectsInArea(posX, posY, sizeX, sizeY, loadedSink);
+            mappedTree.forEachIdInArea(posX, posY, sizeX, sizeY, ids::add);
+            assertEquals(sink.size(), loadedSink.size());
+            assertEquals(sink.size(), ids.size());
+        }
+        // The loaded tree carries on like any other
+        BruteForceIndex loadedExpected = reorder(expected, loadedContainers);
+        QuadtreeTest.mutate(loadedTree, loadedContainers, loadedExpected, random, 2000);
+        for(int i = 0; i < 100; i++){
+            float posX = random.nextFloat()*1000 - 500, posY = random.nextFloat()*1000 - 500, sizeX = random.nextFloat()*150, sizeY = random.nextFloat()*150;
+            loadedSink.clear();
+            loadedTree.getObjectsIntersectingArea(posX, posY, sizeX, sizeY, loadedSink);
+            Set<Integer> expectedObjects = new HashSet<Integer>();
+            for(int object : loadedExpected.getIntersecting(posX, posY, sizeX, sizeY)){expectedObjects.add(loadedContainers.get(object).getInstance());}
+            assertEquals(expectedObjects, new HashSet<Integer>(loadedSink));
+        }
+    }
+    @Test
+    void areaRightOnASplitLine() throws IOException{
+        // Same layout as QuadtreeSnapshotTest.areaRightOnASplitLine, where the bottom of the area rounds to a hair below the split line at y = -62.5
+        Quadtree<Integer> tree = QuadtreeTest.newTree(0);
+        BruteForceIndex expected = new BruteForceIndex(61);
+        for(int i = 0; i < 60; i++){
+            float[] bounds = {-340 + (i % 8)*2.5f, -70 + (i / 8)*2.5f, 1, 1};
+            tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]);
+            expected.put(i, bounds);
+        }
+        float[] bounds = {-335.37228f, -68.89453f, 19.773087f, 16.848574f};
+        tree.add(60, bounds[0], bounds[1], bounds[2], bounds[3]);
+        expected.put(60, bounds);
+        Path file = this.directory.resolve("tree.bin");
+        tree.save(file, object -> object + idOffset);
+        ArrayList<Long> ids = new ArrayList<Long>();
+        new MappedQuadtree(file).forEachIdIntersectingArea(-324.89026f, -6.7852783f, 50.05063f, 111.42945f, ids::add);
+        assertEquals(expected.getIntersecting(-324.89026f, -6.7852783f, 50.05063f, 111.42945f), toObjects(ids));
+        assertEquals(toObjects(ids).size(), ids.size(), "an object came back twice");
+    }
+    @Test
+    void rejectsBrokenFiles() throws IOException{
+        Quadtree<Integer> tree = QuadtreeTest.newTree(0);
+        Random random = new Random(22);
+        for(int i = 0; i < 200; i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]);
+        }
+        Path file = this.directory.resolve("tree.bin");
+        tree.save(file, object -> object);
+        byte[] bytes = Files.readAllBytes(file);
+        assertThrows(IOException.class, () -> new MappedQuadtree(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 4))));
+        byte[] wrongMagic = bytes.clone();
+        wrongMagic[0] ^= 1;
+        Path wrongFile = this.directory.resolve("wrong.bin");
+        Files.write(wrongFile, wrongMagic);
+        assertThrows(IOException.class, () -> new MappedQuadtree(wrongFile));
+        Quadtree<Integer> loadedTree = QuadtreeTest.newTree(0);
+        assertThrows(IOException.class, () -> loadedTree.load(wrongFile, id -> (int) id));
+        // Loose and regular trees can't be swapped for each other
+        assertThrows(IOException.class, () -> QuadtreeTest.newTree(2).load(file, id -> (int) id));
+    }
+}
@@ -0,0 +1,142 @@
+package WizardTD.gameEnv;
+
+// Imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Static imports
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks what {@link Quadtree#getStats()} and {@link QuadtreeMetrics} report against counting the same things up by hand
+ */
+class QuadtreeMetricsTest{
+    // Config vars
+    private static final int objectCount = 1500;
+    private static final int queryCount = 200;
+    // Static methods
+    static Quadtree<Integer> build(float looseness, BruteForceIndex expected, Random random){
+        // Same as QuadtreeTest.build, but with the metrics on from the start so that every split and merge gets counted
+        Quadtree<Integer> returnValue = QuadtreeTest.newTree(looseness);
+        returnValue.enableMetrics();
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(objectCount);
+        for(int i = 0; i < objectCount; i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            containers.add(returnValue.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            expected.put(i, bounds);
+        }
+        QuadtreeTest.mutate(returnValue, containers, expected, random, 4000);
+        return returnValue;
+    }
+    // Instance methods
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void statsMatchTheTree(float looseness){
+        Random random = new Random(61);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        Quadtree<Integer> tree = build(looseness, expected, random);
+        QuadtreeMetrics metrics = tree.getMetrics();
+        QuadtreeStats stats = tree.getStats();
+        assertSame(stats, metrics.getTreeStats());
+        // Each split adds 4 nodes and each merge takes them away again, on top of the root and the 4 nodes it starts out divided into
+        assertTrue(metrics.getMergeCount() > 0, "nothing was merged");
+        assertEquals(5 + 4*(metrics.getSplitCount() - metrics.getMergeCount()), stats.getNodeCount());
+        ArrayList<long[]> nodes = QuadtreeTest.getNodes(tree);
+        ArrayList<long[]> leaves = new ArrayList<long[]>();
+        long leafDepthTotal = 0;
+        int deepestLeaf = 0;
+        for(long[] node : nodes){
+            if(tree.hasNode(node[0], (int) node[1] + 1)){continue;}
+            leaves.add(node);
+            leafDepthTotal += node[1];
+            deepestLeaf = Math.max(deepestLeaf, (int) node[1]);
+        }
+        assertEquals(nodes.size(), stats.getNodeCount());
+        assertEquals(leaves.size(), stats.getLeafCount());
+        assertEquals(deepestLeaf, stats.getDeepestLeaf());
+        assertEquals((double) leafDepthTotal / leaves.size(), stats.getAverageLeafDepth(), 1e-9);
+        assertEquals(expected.getSize(), stats.getObjectCount());
+        assertEquals(leaves.size(), Arrays.stream(stats.getObjectsPerLeaf()).sum());
+        assertEquals(tree.getMaxChilds(), stats.getMaxChilds());
+        assertEquals(tree.getMaximumDepth(), stats.getMaximumDepth());
+        if(looseness != 0){
+            // Every object in a loose tree is in exactly one node
+            assertEquals(stats.getObjectCount(), stats.getReferenceCount());
+            assertEquals(0, stats.getDuplicateReferenceCount());
+            return;
+        }
+        // Regular trees only keep objects in leaves, and the point query that doesn't filter hands back everything in the leaf at the point, so count them up leaf by leaf from the middle of each
+        assertEquals(0, stats.getBranchObjectCount());
+        long referenceCount = 0;
+        int overfullLeafCount = 0, bucketCount = 1;
+        long[] objectsPerLeaf = new long[32];
+        for(long[] leaf : leaves){
+            int size = tree.getObjectsAtPoint(tree.getNodePosition(leaf[0], (int) leaf[1])).size();
+            referenceCount += size;
+            if(size > tree.getMaxChilds()){overfullLeafCount++;}
+            int bucket = 32 - Integer.numberOfLeadingZeros(size);
+            objectsPerLeaf[bucket]++;
+            bucketCount = Math.max(bucketCount, bucket + 1);
+        }
+        assertEquals(referenceCount, stats.getReferenceCount());
+        assertEquals(overfullLeafCount, stats.getOverfullLeafCount());
+        assertArrayEquals(Arrays.copyOf(objectsPerLeaf, bucketCount), stats.getObjectsPerLeaf());
+        assertTrue(stats.getDuplicateReferenceCount() > 0, "nothing straddles a leaf");
+    }
+    @Test
+    void queriesAreCounted(){
+        Random random = new Random(62);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        Quadtree<Integer> tree = build(0, expected, random);
+        QuadtreeMetrics metrics = tree.getMetrics();
+        ArrayList<long[]> nodes = QuadtreeTest.getNodes(tree);
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        long nodesVisited = 0, maxNodesVisited = 0;
+        metrics.reset();
+        assertNull(metrics.getTreeStats());
+        for(int i = 0; i < queryCount; i++){
+            float posX = random.nextFloat()*1000 - 500, posY = random.nextFloat()*1000 - 500, sizeX = 1 + random.nextFloat()*150, sizeY = 1 + random.nextFloat()*150;
+            // An area query goes through the root and every other node that overlaps with the area
+            long overlapping = 1;
+            for(long[] node : nodes){
+                if(node[1] == 0){continue;}
+                Vector2 position = tree.getNodePosition(node[0], (int) node[1]), size = tree.getNodeSize(node[0], (int) node[1]);
+                if(Math.abs(position.getX() - posX) < (size.getX() + sizeX)/2 && Math.abs(position.getY() - posY) < (size.getY() + sizeY)/2){overlapping++;}
+            }
+            long before = metrics.getNodesVisited();
+            sink.clear();
+            tree.getObjectsIntersectingArea(posX, posY, sizeX, sizeY, sink);
+            assertEquals(overlapping, metrics.getNodesVisited() - before);
+            nodesVisited += overlapping;
+            maxNodesVisited = Math.max(maxNodesVisited, overlapping);
+        }
+        assertEquals(queryCount, metrics.getQueryCount());
+        assertEquals(nodesVisited, metrics.getNodesVisited());
+        assertEquals((double) nodesVisited / queryCount, metrics.getAverageNodesVisited(), 1e-9);
+        assertEquals(maxNodesVisited, metrics.getMaxNodesVisited());
+        assertEquals(maxNodesVisited, metrics.getNodesVisitedPercentile(1));
+        // The percentiles come out in order
+        assertTrue(metrics.getNodesVisitedP99() <= maxNodesVisited && metrics.getNodesVisitedP99() >= metrics.getNodesVisitedPercentile(0.5));
+        assertTrue(metrics.getQueryLatencyP50() <= metrics.getQueryLatencyP99() && metrics.getQueryLatencyP99() <= metrics.getMaxQueryLatency());
+        // Point and nearest queries count too, but nothing does once the metrics are off
+        tree.getObjectsContainingPoint(0, 0, sink);
+        tree.kNearest(new Vector2(0, 0), 3, 100);
+        assertEquals(queryCount + 2, metrics.getQueryCount());
+        tree.disableMetrics();
+        tree.getObjectsIntersectingArea(0, 0, 100, 100, sink);
+        assertEquals(queryCount + 2, metrics.getQueryCount());
+        metrics.reset();
+        assertEquals(0, metrics.getQueryCount());
+        assertEquals(0, metrics.getMaxNodesVisited());
+        assertEquals(0, metrics.getQueryLatencyP99());
+    }
+}
@@ -0,0 +1,229 @@
+package WizardTD.gameEnv;
+
+// Imports
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Static imports
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a snapshot keeps answering queries the way the tree would have when it was taken, against a brute force copy taken at the same time, however much the tree changes afterwards
+ */
+class QuadtreeSnapshotTest{
+    // Config vars
+    private static final int objectCount = 1500;
+    private static final int queryCount = 150;
+    private static final int readerCount = 4;
+    private static final int frameCount = 40; // How many snapshots the writer hands to the readers in the multi-threaded test
+    // Static methods
+    private static float[] randomArea(Random random){return new float[]{random.nextFloat()*1000 - 500, random.nextFloat()*1000 - 500, random.nextFloat()*150, random.nextFloat()*150};}
+    // Helper methods
+    private static void assertSnapshotMatches(Quadtree<Integer>.Snapshot snapshot, BruteForceIndex expected, Random random){
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        for(int i = 0; i < queryCount; i++){
+            float[] area = randomArea(random);
+            HashSet<Integer> expectedObjects = new HashSet<Integer>(expected.getIntersecting(area[0], area[1], area[2], area[3]));
+            sink.clear();
+            snapshot.getObjectsIntersectingArea(area[0], area[1], area[2], area[3], sink);
+            assertEquals(expectedObjects.size(), sink.size(), "an object was missed or came back twice");
+            assertEquals(expectedObjects, new HashSet<Integer>(sink));
+            sink.clear();
+            snapshot.getObjectsInArea(area[0], area[1], area[2], area[3], sink);
+            assertTrue(new HashSet<Integer>(sink).containsAll(expectedObjects));
+            sink.clear();
+            snapshot.getObjectsContainingPoint(area[0], area[1], sink);
+            assertEquals(expected.getContaining(area[0], area[1]), new HashSet<Integer>(sink));
+            ArrayList<Integer> nearest = snapshot.kNearest(new Vector2(area[0], area[1]), 5, 100);
+            ArrayList<Integer> expectedNearest = expected.getNearest(area[0], area[1], 100);
+            assertEquals(Math.min(5, expectedNearest.size()), nearest.size());
+            // Ties can come back in any order, so only compare the distances
+            for(int l = 0; l < nearest.size(); l++){assertEquals(expected.getDistance(expectedNearest.get(l), area[0], area[1]), expected.getDistance(nearest.get(l), area[0], area[1]));}
+        }
+    }
+    private static void removeMost(Quadtree<Integer> tree, ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers, BruteForceIndex expected, Random random){
+        // Empties out most of the tree so that its nodes collapse
+        for(int i = 0; i < containers.size(); i++){
+            if(!expected.contains(i) || random.nextInt(10) == 0){continue;}
+            tree.remove(containers.get(i));
+            expected.remove(i);
+        }
+    }
+    // Instance methods
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1, 2})
+    void snapshotsMatchBruteForce(float looseness){
+        Random random = new Random(41);
+        Quadtree<Integer> tree = QuadtreeTest.newTree(looseness);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(objectCount);
+        ArrayList<Quadtree<Integer>.Snapshot> snapshots = new ArrayList<Quadtree<Integer>.Snapshot>();
+        ArrayList<BruteForceIndex> snapshotContents = new ArrayList<BruteForceIndex>();
+        // Each step changes the tree in a different way, then every snapshot taken so far is checked before the next one is taken
+        for(int step = 0; step < 5; step++){
+            int nodeCount = tree.getStats().getNodeCount();
+            if(step == 0 || step == 1){
+                // Filling the tree up divides its nodes
+                for(int i = containers.size(); i < (step + 1)*objectCount/2; i++){
+                    float[] bounds = BruteForceIndex.randomBounds(random);
+                    containers.add(tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+                    expected.put(i, bounds);
+                }
+                assertTrue(tree.getStats().getNodeCount() > nodeCount, "nothing was divided");
+            } else if(step == 3){
+                removeMost(tree, containers, expected, random);
+                assertTrue(tree.getStats().getNodeCount() < nodeCount, "nothing was collapsed");
+            } else {
+                // Moves and resizes objects, and puts back the ones that were removed
+                QuadtreeTest.mutate(tree, containers, expected, random, 3000);
+            }
+            for(int i = 0; i < snapshots.size(); i++){assertSnapshotMatches(snapshots.get(i), snapshotContents.get(i), random);}
+            snapshots.add(tree.snapshot());
+            snapshotContents.add(expected.copy());
+        }
+        // Closing the oldest ones mustn't disturb the ones still open
+        snapshots.get(0).close(); snapshots.get(1).close();
+        QuadtreeTest.mutate(tree, containers, expected, random, 3000);
+        for(int i = 2; i < snapshots.size(); i++){assertSnapshotMatches(snapshots.get(i), snapshotContents.get(i), random);}
+        for(int i = 2; i < snapshots.size(); i++){snapshots.get(i).close();}
+    }
+    @Test
+    void closingLetsGoOfOldBounds(){
+        Quadtree<Integer> tree = QuadtreeTest.newTree(0);
+        Quadtree<Integer>.QuadtreeObjectContainer<Integer> container = tree.add(1, 10, 10, 2, 2);
+        Quadtree<Integer>.QuadtreeObjectContainer<Integer> other = tree.add(2, -10, -10, 2, 2);
+        // Each snapshot needs the bounds from before the move that followed it
+        Quadtree<Integer>.Snapshot first = tree.snapshot();
+        tree.update(container, 20, 10, 2, 2);
+        Quadtree<Integer>.Snapshot second = tree.snapshot();
+        tree.update(container, 30, 10, 2, 2);
+        Quadtree<Integer>.Snapshot third = tree.snapshot();
+        tree.update(container, 40, 10, 2, 2);
+        assertEquals(3, container.getPreviousBoundsCount());
+        assertEquals(1, first.getObjectsContainingPoint(new Vector2(10, 10)).size());
+        assertEquals(1, second.getObjectsContainingPoint(new Vector2(20, 10)).size());
+        assertEquals(1, third.getObjectsContainingPoint(new Vector2(30, 10)).size());
+        // Once the first snapshot is closed the bounds only it could see go on the next move, which saves the bounds the fourth one needs
+        first.close();
+        assertThrows(IllegalStateException.class, () -> first.getObjectsContainingPoint(new Vector2(10, 10)));
+        assertThrows(IllegalStateException.class, () -> first.nearest(new Vector2(10, 10)));
+        Quadtree<Integer>.Snapshot fourth = tree.snapshot();
+        tree.update(container, 50, 10, 2, 2);
+        assertEquals(3, container.getPreviousBoundsCount());
+        assertEquals(1, second.getObjectsContainingPoint(new Vector2(20, 10)).size());
+        assertEquals(1, third.getObjectsContainingPoint(new Vector2(30, 10)).size());
+        assertEquals(1, fourth.getObjectsContainingPoint(new Vector2(40, 10)).size());
+        // And with nothing left open, nothing's kept at all
+        second.close(); third.close(); fourth.close();
+        tree.update(container, 60, 10, 2, 2);
+        assertEquals(0, container.getPreviousBoundsCount());
+        tree.update(other, -20, -10, 2, 2);
+        assertEquals(0, other.getPreviousBoundsCount());
+        assertEquals(1, tree.getObjectsContainingPoint(new Vector2(60, 10)).size());
+        // An empty snapshot stays empty
+        Quadtree<Integer>.Snapshot emptySnapshot = QuadtreeTest.newTree(0).snapshot();
+        assertNull(emptySnapshot.nearest(new Vector2(0, 0)));
+        emptySnapshot.close();
+    }
+    @Test
+    void areaRightOnASplitLine(){
+        // The bottom of this area works out a hair below the split line at y = -62.5, while the tree's own checks put it on the line
+        //  The big object is in the leaves on both sides of it, and it was getting dropped from both
+        Quadtree<Integer> tree = QuadtreeTest.newTree(0);
+        BruteForceIndex expected = new BruteForceIndex(61);
+        for(int i = 0; i < 60; i++){
+            float[] bounds = {-340 + (i % 8)*2.5f, -70 + (i / 8)*2.5f, 1, 1};
+            tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]);
+            expected.put(i, bounds);
+        }
+        float[] bounds = {-335.37228f, -68.89453f, 19.773087f, 16.848574f};
+        tree.add(60, bounds[0], bounds[1], bounds[2], bounds[3]);
+        expected.put(60, bounds);
+        Quadtree<Integer>.Snapshot snapshot = tree.snapshot();
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        snapshot.getObjectsIntersectingArea(-324.89026f, -6.7852783f, 50.05063f, 111.42945f, sink);
+        assertEquals(expected.getIntersecting(-324.89026f, -6.7852783f, 50.05063f, 111.42945f), new HashSet<Integer>(sink));
+        assertEquals(new HashSet<Integer>(sink).size(), sink.size(), "an object came back twice");
+        snapshot.close();
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void readersOnOtherThreads(float looseness) throws InterruptedException{
+        Random random = new Random(42);
+        Quadtree<Integer> tree = QuadtreeTest.newTree(looseness);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(objectCount);
+        for(int i = 0; i < objectCount; i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            containers.add(tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            expected.put(i, bounds);
+        }
+        // The readers keep querying whichever snapshot was handed over last while this thread carries on changing the tree
+        AtomicReference<Frame> frame = new AtomicReference<Frame>(new Frame(tree.snapshot(), expected.copy()));
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        AtomicLong checks = new AtomicLong();
+        ArrayList<Thread> readers = new ArrayList<Thread>();
+        for(int i = 0; i < readerCount; i++){
+            Random readerRandom = new Random(i);
+            Thread reader = new Thread(() -> {
+                ArrayList<Integer> sink = new ArrayList<Integer>();
+                try{
+                    while(!stop.get()){
+                        Frame currentFrame = frame.get();
+                        float[] area = randomArea(readerRandom);
+                        sink.clear();
+                        currentFrame.snapshot.getObjectsIntersectingArea(area[0], area[1], area[2], area[3], sink);
+                        assertEquals(currentFrame.expected.getIntersecting(area[0], area[1], area[2], area[3]), new HashSet<Integer>(sink));
+                        assertEquals(new HashSet<Integer>(sink).size(), sink.size(), "an object came back twice");
+                        sink.clear();
+                        currentFrame.snapshot.getObjectsContainingPoint(area[0], area[1], sink);
+                        assertEquals(currentFrame.expected.getContaining(area[0], area[1]), new HashSet<Integer>(sink));
+                        checks.incrementAndGet();
+                    }
+                } catch(Throwable e){
+                    failure.compareAndSet(null, e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        try{
+            for(int i = 0; i < frameCount && failure.get() == null; i++){
+                QuadtreeTest.mutate(tree, containers, expected, random, 500);
+                // Old snapshots are just dropped rather than closed, since a reader might still be partway through one
+                frame.set(new Frame(tree.snapshot(), expected.copy()));
+                // Give the readers a chance to get some queries in on each snapshot
+                long start = checks.get();
+                while(checks.get() < start + readerCount && failure.get() == null){Thread.onSpinWait();}
+            }
+        } finally {
+            stop.set(true);
+            for(int i = 0; i < readers.size(); i++){readers.get(i).join();}
+        }
+        if(failure.get() != null){throw new AssertionError("a reader failed", failure.get());}
+        assertTrue(checks.get() >= frameCount*readerCount);
+    }
+
+    // Inner class
+    private static class Frame{
+        // A snapshot along with what was in the tree when it was taken
+        private final Quadtree<Integer>.Snapshot snapshot;
+        private final BruteForceIndex expected;
+        private Frame(Quadtree<Integer>.Snapshot snapshot, BruteForceIndex expected){
+            this.snapshot = snapshot;
+            this.expected = expected;
+        }
+    }
+}
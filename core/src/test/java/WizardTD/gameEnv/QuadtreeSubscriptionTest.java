@@ -0,0 +1,147 @@
+package WizardTD.gameEnv;
+
+// Imports
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Static imports
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that each subscription's listener is told about exactly the objects coming into, moving around in and leaving its region, against a brute force search
+ */
+class QuadtreeSubscriptionTest{
+    // Config vars
+    private static final int objectCount = 800;
+    private static final int subscriptionCount = 10;
+    // Static methods
+    private static float[] randomRegion(Random random){return new float[]{random.nextFloat()*800 - 400, random.nextFloat()*800 - 400, random.nextFloat()*300 + 10, random.nextFloat()*300 + 10};}
+    // Helper methods
+    private static void assertListenersMatch(BruteForceIndex expected, float[][] regions, RecordingListener[] listeners){
+        for(int i = 0; i < listeners.length; i++){
+            if(listeners[i] == null){continue;}
+            assertEquals(expected.getIntersecting(regions[i][0], regions[i][1], regions[i][2], regions[i][3]), listeners[i].inside, "subscription " + String.valueOf(i));
+        }
+    }
+    // Instance methods
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1.5f})
+    void listenersMatchBruteForce(float looseness){
+        Random random = new Random(11);
+        Quadtree<Integer> tree = QuadtreeTest.newTree(looseness);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(objectCount);
+        for(int i = 0; i < objectCount/2; i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            containers.add(tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            expected.put(i, bounds);
+        }
+        float[][] regions = new float[subscriptionCount][];
+        RecordingListener[] listeners = new RecordingListener[subscriptionCount];
+        ArrayList<Quadtree<Integer>.Subscription> subscriptions = new ArrayList<Quadtree<Integer>.Subscription>();
+        for(int i = 0; i < subscriptionCount; i++){
+            regions[i] = randomRegion(random);
+            listeners[i] = new RecordingListener();
+            subscriptions.add(tree.subscribe(regions[i][0], regions[i][1], regions[i][2], regions[i][3], listeners[i]));
+        }
+        // Subscribing tells the listener about everything already in the region
+        assertListenersMatch(expected, regions, listeners);
+        ArrayList<Integer> rest = new ArrayList<Integer>();
+        for(int i = objectCount/2; i < objectCount; i++){
+            rest.add(i);
+            expected.put(i, BruteForceIndex.randomBounds(random));
+        }
+        containers.addAll(tree.addAll(rest, object -> new Vector2(expected.getBounds(object)[0], expected.getBounds(object)[1]), object -> new Vector2(expected.getBounds(object)[2], expected.getBounds(object)[3])));
+        assertListenersMatch(expected, regions, listeners);
+        for(int i = 0; i < 20; i++){
+            QuadtreeTest.mutate(tree, containers, expected, random, 300);
+            // Move, resize, close and reopen some of the subscriptions in between
+            for(int l = 0; l < 3; l++){
+                int subscription = random.nextInt(subscriptionCount);
+                if(listeners[subscription] == null){
+                    regions[subscription] = randomRegion(random);
+                    listeners[subscription] = new RecordingListener();
+                    subscriptions.set(subscription, tree.subscribe(regions[subscription][0], regions[subscription][1], regions[subscription][2], regions[subscription][3], listeners[subscription]));
+                } else if(random.nextInt(5) == 0){
+                    subscriptions.get(subscription).close();
+                    assertTrue(subscriptions.get(subscription).isClosed());
+                    listeners[subscription] = null;
+                } else {
+                    float distance = random.nextBoolean() ? 10 : 400;
+                    float[] region = regions[subscription];
+                    regions[subscription] = new float[]{region[0] + (random.nextFloat() - 0.5f)*distance, region[1] + (random.nextFloat() - 0.5f)*distance, Math.max(0, region[2] + (random.nextFloat() - 0.5f)*distance/4), Math.max(0, region[3] + (random.nextFloat() - 0.5f)*distance/4)};
+                    subscriptions.get(subscription).setRegion(regions[subscription][0], regions[subscription][1], regions[subscription][2], regions[subscription][3]);
+                }
+            }
+            assertListenersMatch(expected, regions, listeners);
+        }
+        int moves = 0;
+        for(int i = 0; i < subscriptionCount; i++){moves += listeners[i] == null ? 0 : listeners[i].moves;}
+        assertTrue(moves > 0, "no moves were reported");
+    }
+    @Test
+    void enterMoveAndLeave(){
+        Quadtree<Integer> tree = QuadtreeTest.newTree(0);
+        RecordingListener listener = new RecordingListener();
+        Quadtree<Integer>.Subscription subscription = tree.subscribe(0, 0, 100, 100, listener);
+        Quadtree<Integer>.QuadtreeObjectContainer<Integer> container = tree.add(1, 10, 10, 2, 2);
+        assertEquals(1, listener.enters);
+        tree.update(container, 12, 10, 2, 2);
+        assertEquals(1, listener.moves);
+        // Touching the edge doesn't count as being in the region
+        tree.update(container, 51, 10, 2, 2);
+        assertEquals(1, listener.leaves);
+        tree.update(container, 300, 300, 2, 2);
+        assertEquals(1, listener.leaves);
+        subscription.setRegion(300, 300, 10, 10);
+        assertEquals(2, listener.enters);
+        tree.remove(container);
+        assertEquals(2, listener.leaves);
+        subscription.close();
+        tree.add(2, 300, 300, 2, 2);
+        assertEquals(2, listener.enters, "a closed subscription shouldn't hear about anything");
+        assertThrows(IllegalStateException.class, () -> subscription.setRegion(0, 0, 1, 1));
+    }
+    @Test
+    void concurrentQuadtreeForwardsEvents(){
+        ConcurrentQuadtree<Integer> tree = new ConcurrentQuadtree<Integer>(new Vector2(1000, 1000), new Vector2(0, 0));
+        RecordingListener listener = new RecordingListener();
+        Quadtree<Integer>.Subscription subscription = tree.subscribe(0, 0, 100, 100, listener);
+        Quadtree<Integer>.QuadtreeObjectContainer<Integer> container = tree.add(1, 10, 10, 2, 2);
+        assertTrue(listener.inside.contains(1));
+        tree.update(container, 12, 10, 2, 2);
+        assertEquals(1, listener.moves);
+        tree.setRegion(subscription, 300, 300, 10, 10);
+        assertTrue(listener.inside.isEmpty());
+        tree.unsubscribe(subscription);
+        tree.update(container, 300, 300, 2, 2);
+        assertTrue(listener.inside.isEmpty());
+    }
+
+    // Inner class
+    private static class RecordingListener implements RegionListener<Integer>{
+        // Keeps track of what's in the region going by the events alone, and fails on any event that doesn't make sense
+        private final HashSet<Integer> inside = new HashSet<Integer>();
+        private int enters, moves, leaves;
+        public void onEnter(Integer object){
+            if(!this.inside.add(object)){fail("object " + String.valueOf(object) + " entered twice");}
+            this.enters++;
+        }
+        public void onMove(Integer object){
+            if(!this.inside.contains(object)){fail("object " + String.valueOf(object) + " moved without being inside");}
+            this.moves++;
+        }
+        public void onLeave(Integer object){
+            if(!this.inside.remove(object)){fail("object " + String.valueOf(object) + " left without being inside");}
+            this.leaves++;
+        }
+    }
+}
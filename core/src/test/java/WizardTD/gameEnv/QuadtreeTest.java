@@ -0,0 +1,515 @@
+package WizardTD.gameEnv;
+
+// Imports
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Static imports
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks every query against a brute force search over the same objects, for regular and loose trees after a mix of adds, moves, resizes and removes
+ */
+class QuadtreeTest{
+    // Config vars
+    private static final int objectCount = 1500;
+    private static final int queryCount = 300;
+    private static final double rayLeeway = 1e-2; // The tree works in floats and the brute force in doubles, so ray distances can be a hair apart
+    // Static methods
+    static Quadtree<Integer> newTree(float looseness){
+        // 0 stands for a regular tree
+        Vector2 size = new Vector2(1000, 1000), position = new Vector2(0, 0);
+        return looseness == 0 ? new Quadtree<Integer>(size, position) : new Quadtree<Integer>(size, position, looseness);
+    }
+    // Instance vars
+    private Quadtree<Integer> tree;
+    private BruteForceIndex expected;
+    private ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers;
+    private Random random;
+    // Helper methods
+    private void build(float looseness, long seed){
+        // Fills a tree up then shuffles it around enough for nodes to divide and collapse a few times over
+        this.tree = newTree(looseness);
+        this.expected = new BruteForceIndex(objectCount);
+        this.containers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>(objectCount);
+        this.random = new Random(seed);
+        for(int i = 0; i < objectCount; i++){
+            float[] bounds = BruteForceIndex.randomBounds(this.random);
+            this.containers.add(this.tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            this.expected.put(i, bounds);
+        }
+        mutate(this.tree, this.containers, this.expected, this.random, 4000);
+    }
+    static void mutate(Quadtree<Integer> tree, ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers, BruteForceIndex expected, Random random, int count){
+        // Moves objects a little or a long way, resizes them, removes them and puts removed ones back, keeping expected in step
+        for(int i = 0; i < count; i++){
+            int object = random.nextInt(containers.size());
+            Quadtree<Integer>.QuadtreeObjectContainer<Integer> container = containers.get(object);
+            int operation = random.nextInt(10);
+            if(operation < 2 && expected.contains(object)){
+                tree.remove(container);
+                expected.remove(object);
+                continue;
+            }
+            float[] bounds = expected.contains(object) ? expected.getBounds(object).clone() : BruteForceIndex.randomBounds(random);
+            if(operation < 6){
+                bounds[0] = Math.max(-470, Math.min(470, bounds[0] + (random.nextFloat() - 0.5f)*20));
+                bounds[1] = Math.max(-470, Math.min(470, bounds[1] + (random.nextFloat() - 0.5f)*20));
+            } else if(operation < 8){
+                bounds = BruteForceIndex.randomBounds(random);
+            } else {
+                bounds[2] = random.nextFloat()*30; bounds[3] = random.nextFloat()*30;
+            }
+            tree.update(container, bounds[0], bounds[1], bounds[2], bounds[3]);
+            expected.put(object, bounds);
+        }
+    }
+    static ArrayList<long[]> getNodes(Quadtree<Integer> tree){
+        // Finds every node by going through the geohash index a layer at a time, since a node's children are either all there or none of them are
+        ArrayList<long[]> returnValue = new ArrayList<long[]>();
+        ArrayList<Long> layer = new ArrayList<Long>();
+        layer.add(0L);
+        for(int depth = 0; !layer.isEmpty(); depth++){
+            ArrayList<Long> nextLayer = new ArrayList<Long>();
+            for(long geohash : layer){
+                returnValue.add(new long[]{geohash, depth});
+                if(!tree.hasNode(geohash, depth + 1)){continue;}
+                for(long digit = 0; digit < 4; digit++){nextLayer.add(geohash | (digit << (depth << 1)));}
+            }
+            layer = nextLayer;
+        }
+        return returnValue;
+    }
+    static void assertQueriesMatch(Quadtree<Integer> tree, BruteForceIndex expected, Random random){
+        // A quick round of area and point queries for the tests that build trees some other way than build does
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        for(int i = 0; i < queryCount; i++){
+            float posX = random.nextFloat()*1000 - 500, posY = random.nextFloat()*1000 - 500, sizeX = random.nextFloat()*150, sizeY = random.nextFloat()*150;
+            sink.clear();
+            tree.getObjectsIntersectingArea(posX, posY, sizeX, sizeY, sink);
+            assertEquals(expected.getIntersecting(posX, posY, sizeX, sizeY), new HashSet<Integer>(sink));
+            assertEquals(new HashSet<Integer>(sink).size(), sink.size(), "an object came back twice");
+            sink.clear();
+            tree.getObjectsContainingPoint(posX, posY, sink);
+            assertEquals(expected.getContaining(posX, posY), new HashSet<Integer>(sink));
+        }
+    }
+    private float[] randomArea(){
+        // Mostly small areas, with the odd empty one, the odd one covering most of the tree and some snapped to the same grid as the objects
+        float posX = this.random.nextFloat()*1000 - 500, posY = this.random.nextFloat()*1000 - 500;
+        int kind = this.random.nextInt(20);
+        if(kind == 0){return new float[]{posX, posY, 0, 0};}
+        if(kind == 1){return new float[]{posX, posY, this.random.nextFloat()*1000, this.random.nextFloat()*1000};}
+        // Lines up with the snapped objects' edges and the lines the tree divides along, sometimes with no width or height
+        if(kind < 5){return new float[]{Math.round(posX/5)*5, Math.round(posY/5)*5, 10*this.random.nextInt(5), 10*this.random.nextInt(5)};}
+        return new float[]{posX, posY, this.random.nextFloat()*120, this.random.nextFloat()*120};
+    }
+    // Instance methods
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1, 2})
+    void intersectingAreaMatchesBruteForce(float looseness){
+        build(looseness, 1);
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        for(int i = 0; i < queryCount; i++){
+            float[] area = randomArea();
+            Set<Integer> expectedObjects = this.expected.getIntersecting(area[0], area[1], area[2], area[3]);
+            sink.clear();
+            int count = this.tree.getObjectsIntersectingArea(area[0], area[1], area[2], area[3], sink);
+            assertEquals(expectedObjects.size(), sink.size(), "an object was missed or came back twice");
+            assertEquals(expectedObjects, new HashSet<Integer>(sink));
+            assertEquals(sink.size(), count);
+            assertEquals(expectedObjects, new HashSet<Integer>(this.tree.getObjectsIntersectingArea(new Vector2(area[0], area[1]), new Vector2(area[2], area[3]))));
+            ArrayList<Integer> visited = new ArrayList<Integer>();
+            this.tree.forEachObjectIntersectingArea(area[0], area[1], area[2], area[3], visited::add);
+            assertEquals(expectedObjects.size(), visited.size());
+            assertEquals(expectedObjects, new HashSet<Integer>(visited));
+        }
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1, 2})
+    void inAreaFindsAtLeastEveryIntersectingObject(float looseness){
+        // The non-exact query can hand back objects that only share a node with the area, but never misses one
+        build(looseness, 2);
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        for(int i = 0; i < queryCount; i++){
+            float[] area = randomArea();
+            sink.clear();
+            this.tree.getObjectsInArea(area[0], area[1], area[2], area[3], sink);
+            assertTrue(new HashSet<Integer>(sink).containsAll(this.expected.getIntersecting(area[0], area[1], area[2], area[3])));
+        }
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1, 2})
+    void containingPointMatchesBruteForce(float looseness){
+        build(looseness, 3);
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        for(int i = 0; i < queryCount; i++){
+            float pointX = this.random.nextFloat()*1000 - 500, pointY = this.random.nextFloat()*1000 - 500;
+            if(i % 10 == 0){
+                // Right on the edge of an object
+                int object = this.random.nextInt(objectCount);
+                if(this.expected.contains(object)){
+                    float[] bounds = this.expected.getBounds(object);
+                    pointX = bounds[0] + bounds[2]/2; pointY = bounds[1];
+                }
+            } else if(i % 10 == 5){
+                // Right on a line the tree divides along
+                pointX = Math.round(pointX/62.5f)*62.5f; pointY = Math.round(pointY/62.5f)*62.5f;
+            }
+            Set<Integer> expectedObjects = this.expected.getContaining(pointX, pointY);
+            sink.clear();
+            this.tree.getObjectsContainingPoint(pointX, pointY, sink);
+            assertEquals(expectedObjects.size(), sink.size(), "an object was missed or came back twice");
+            assertEquals(expectedObjects, new HashSet<Integer>(sink));
+            ArrayList<Integer> visited = new ArrayList<Integer>();
+            this.tree.forEachObjectContainingPoint(pointX, pointY, visited::add);
+            assertEquals(expectedObjects, new HashSet<Integer>(visited));
+        }
+    }
+    @Test
+    void objectsRightOnASplitLine(){
+        Quadtree<Integer> tree = newTree(0);
+        BruteForceIndex expected = new BruteForceIndex(64);
+        // One reaching up to the line down the middle from the west, one with no size right where the lines cross and one with no width lying along the middle
+        float[][] onTheLine = {{-5, 100, 10, 10}, {0, 0, 0, 0}, {0, -200, 0, 40}};
+        for(int i = 0; i < onTheLine.length; i++){
+            tree.add(i, onTheLine[i][0], onTheLine[i][1], onTheLine[i][2], onTheLine[i][3]);
+            expected.put(i, onTheLine[i]);
+        }
+        // Then enough everywhere else that the tree divides a few times over
+        for(int i = onTheLine.length; i < 64; i++){
+            float[] bounds = {-400 + (i % 8)*110, -400 + (i / 8)*110, 4, 4};
+            tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]);
+            expected.put(i, bounds);
+        }
+        assertTrue(tree.getDepth() > 1);
+        ArrayList<Integer> sink = new ArrayList<Integer>();
+        float[][] points = {{0, 100}, {0, 105}, {-10, 100}, {0, 0}, {0, -200}, {0, -180}, {0, -230}};
+        for(int i = 0; i < points.length; i++){
+            sink.clear();
+            tree.getObjectsContainingPoint(points[i][0], points[i][1], sink);
+            assertEquals(expected.getContaining(points[i][0], points[i][1]), new HashSet<Integer>(sink), "at " + points[i][0] + ", " + points[i][1]);
+            assertEquals(new HashSet<Integer>(sink).size(), sink.size(), "an object came back twice");
+        }
+        float[][] areas = {{0, 100, 0, 0}, {-2, 100, 0, 4}, {0, 0, 2, 2}, {0, -200, 10, 0}, {0, -200, 0, 0}, {1, -200, 4, 4}};
+        for(int i = 0; i < areas.length; i++){
+            sink.clear();
+            tree.getObjectsIntersectingArea(areas[i][0], areas[i][1], areas[i][2], areas[i][3], sink);
+            assertEquals(expected.getIntersecting(areas[i][0], areas[i][1], areas[i][2], areas[i][3]), new HashSet<Integer>(sink));
+        }
+        // And the same through a snapshot, which walks the tree without stamps
+        Quadtree<Integer>.Snapshot snapshot = tree.snapshot();
+        for(int i = 0; i < points.length; i++){
+            sink.clear();
+            snapshot.getObjectsContainingPoint(points[i][0], points[i][1], sink);
+            assertEquals(expected.getContaining(points[i][0], points[i][1]), new HashSet<Integer>(sink));
+            assertEquals(new HashSet<Integer>(sink).size(), sink.size(), "an object came back twice");
+        }
+        snapshot.close();
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1, 2})
+    void kNearestComesBackClosestFirst(float looseness){
+        build(looseness, 4);
+        for(int i = 0; i < queryCount; i++){
+            float pointX = this.random.nextFloat()*1100 - 550, pointY = this.random.nextFloat()*1100 - 550;
+            int k = 1 + this.random.nextInt(20);
+            float maxDistance = i % 5 == 0 ? Float.POSITIVE_INFINITY : this.random.nextFloat()*100;
+            ArrayList<Integer> expectedObjects = this.expected.getNearest(pointX, pointY, maxDistance);
+            ArrayList<Integer> objects = this.tree.kNearest(new Vector2(pointX, pointY), k, maxDistance);
+            assertEquals(Math.min(k, expectedObjects.size()), objects.size());
+            assertEquals(objects.size(), new HashSet<Integer>(objects).size(), "no object should come back twice");
+            // Objects the same distance away can come in either order, so only the distances have to line up
+            for(int l = 0; l < objects.size(); l++){
+                assertEquals(this.expected.getDistance(expectedObjects.get(l), pointX, pointY), this.expected.getDistance(objects.get(l), pointX, pointY), "object " + String.valueOf(l) + " is out of order");
+            }
+            Integer nearest = this.tree.nearest(new Vector2(pointX, pointY));
+            assertNotNull(nearest);
+            assertEquals(this.expected.getDistance(this.expected.getNearest(pointX, pointY, Float.POSITIVE_INFINITY).get(0), pointX, pointY), this.expected.getDistance(nearest, pointX, pointY));
+        }
+    }
+    @Test
+    void stampsSurviveTheCounterWrappingAround(){
+        Quadtree<Integer> tree = newTree(0);
+        Quadtree<Integer>.QuadtreeObjectContainer<Integer> container = tree.add(1, 10, 10, 4, 4);
+        tree.add(2, -10, -10, 4, 4);
+        // The second query stamps the container with 2, and then it's taken out while the counter wraps back around to 1
+        assertEquals(1, tree.getObjectsIntersectingArea(new Vector2(10, 10), new Vector2(2, 2)).size());
+        assertEquals(1, tree.getObjectsIntersectingArea(new Vector2(10, 10), new Vector2(2, 2)).size());
+        tree.remove(container);
+        tree.setQueryStamp(-1);
+        assertEquals(1, tree.getObjectsIntersectingArea(new Vector2(0, 0), new Vector2(100, 100)).size());
+        // So once it's back in, the query that gets stamp 2 mustn't think it's already seen it
+        tree.update(container, 10, 10, 4, 4);
+        assertEquals(1, tree.getObjectsIntersectingArea(new Vector2(10, 10), new Vector2(2, 2)).size());
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void geohashesLeadBackToTheirNodes(float looseness){
+        build(looseness, 19);
+        Vector2 rootSize = this.tree.getSize();
+        for(int i = 0; i < queryCount; i++){
+            float pointX = this.random.nextFloat()*1000 - 500, pointY = this.random.nextFloat()*1000 - 500;
+            long mortonCode = this.tree.getMortonCode(pointX, pointY);
+            // Every node on the way down to the leaf holds the point, is the right size for its layer and has the point's Morton code in its range
+            int depth = 0;
+            for(; this.tree.hasNode(this.tree.getGeohash(pointX, pointY, depth), depth); depth++){
+                long geohash = this.tree.getGeohash(pointX, pointY, depth);
+                Vector2 position = this.tree.getNodePosition(geohash, depth), size = this.tree.getNodeSize(geohash, depth);
+                assertEquals(rootSize.getX()/(1 << depth), size.getX());
+                assertEquals(rootSize.getY()/(1 << depth), size.getY());
+                assertTrue(Math.abs(position.getX() - pointX) <= size.getX()/2 && Math.abs(position.getY() - pointY) <= size.getY()/2, "the node at depth " + String.valueOf(depth) + " doesn't hold the point");
+                long start = Quadtree.computeMortonCode(geohash, depth);
+                assertTrue(start <= mortonCode && mortonCode - start < (1L << ((31 - depth) << 1)));
+            }
+            // The leaf is as deep as the tree goes there, so nothing comes back for the layer below it
+            assertTrue(depth > 0);
+            long belowLeaf = this.tree.getGeohash(pointX, pointY, depth);
+            assertNull(this.tree.getNodePosition(belowLeaf, depth));
+            assertNull(this.tree.getNodeSize(belowLeaf, depth));
+        }
+        assertEquals(this.tree.getPosition(), this.tree.getNodePosition(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> this.tree.getGeohash(0, 0, 32));
+        assertThrows(IllegalArgumentException.class, () -> this.tree.hasNode(4, 1));
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void leafIntervalsCoverEveryLeafInTheArea(float looseness){
+        build(looseness, 20);
+        ArrayList<long[]> leaves = getNodes(this.tree);
+        leaves.removeIf(node -> this.tree.hasNode(node[0], (int) node[1] + 1));
+        for(int i = 0; i < queryCount; i++){
+            float posX = this.random.nextFloat()*1000 - 500, posY = this.random.nextFloat()*1000 - 500, sizeX = 1 + this.random.nextFloat()*200, sizeY = 1 + this.random.nextFloat()*200;
+            // Every leaf the area overlaps with, as Morton ranges sorted and merged by hand
+            ArrayList<long[]> ranges = new ArrayList<long[]>();
+            for(long[] leaf : leaves){
+                int depth = (int) leaf[1];
+                Vector2 position = this.tree.getNodePosition(leaf[0], depth), size = this.tree.getNodeSize(leaf[0], depth);
+                if(Math.abs(position.getX() - posX) >= (size.getX() + sizeX)/2 || Math.abs(position.getY() - posY) >= (size.getY() + sizeY)/2){continue;}
+                long start = Quadtree.computeMortonCode(leaf[0], depth);
+                ranges.add(new long[]{start, start + (1L << ((31 - depth) << 1))});
+            }
+            ranges.sort((first, second) -> Long.compare(first[0], second[0]));
+            ArrayList<Long> expectedIntervals = new ArrayList<Long>();
+            for(long[] range : ranges){
+                if(!expectedIntervals.isEmpty() && expectedIntervals.get(expectedIntervals.size() - 1) == range[0]){
+                    expectedIntervals.set(expectedIntervals.size() - 1, range[1]);
+                    continue;
+                }
+                expectedIntervals.add(range[0]); expectedIntervals.add(range[1]);
+            }
+            long[] intervals = this.tree.getLeafIntervalsInArea(posX, posY, sizeX, sizeY);
+            ArrayList<Long> foundIntervals = new ArrayList<Long>(intervals.length);
+            for(long interval : intervals){foundIntervals.add(interval);}
+            assertEquals(expectedIntervals, foundIntervals);
+        }
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void batchQueriesMatchBruteForce(float looseness){
+        build(looseness, 23);
+        float[] areas = new float[queryCount << 2];
+        List<ArrayList<Integer>> intersecting = new ArrayList<ArrayList<Integer>>(), inArea = new ArrayList<ArrayList<Integer>>(), onOtherPool = new ArrayList<ArrayList<Integer>>();
+        for(int i = 0; i < queryCount; i++){
+            float[] area = randomArea();
+            System.arraycopy(area, 0, areas, i << 2, 4);
+            intersecting.add(new ArrayList<Integer>()); inArea.add(new ArrayList<Integer>()); onOtherPool.add(new ArrayList<Integer>());
+        }
+        this.tree.getObjectsIntersectingAreas(areas, intersecting);
+        this.tree.getObjectsInAreas(areas, inArea);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try{this.tree.getObjectsIntersectingAreas(areas, onOtherPool, pool);} finally {pool.shutdown();}
+        for(int i = 0; i < queryCount; i++){
+            int offset = i << 2;
+            Set<Integer> expectedObjects = this.expected.getIntersecting(areas[offset], areas[offset + 1], areas[offset + 2], areas[offset + 3]);
+            assertEquals(expectedObjects.size(), intersecting.get(i).size(), "an object was missed or came back twice");
+            assertEquals(expectedObjects, new HashSet<Integer>(intersecting.get(i)));
+            assertEquals(intersecting.get(i), onOtherPool.get(i));
+            assertTrue(new HashSet<Integer>(inArea.get(i)).containsAll(expectedObjects));
+        }
+        assertThrows(IllegalArgumentException.class, () -> this.tree.getObjectsIntersectingAreas(new float[8], intersecting.subList(0, 1)));
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 2})
+    void bulkLoadAndAddAllMatchBruteForce(float looseness){
+        Random random = new Random(24);
+        BruteForceIndex expected = new BruteForceIndex(objectCount);
+        ArrayList<Integer> items = new ArrayList<Integer>(objectCount);
+        for(int i = 0; i < objectCount; i++){
+            expected.put(i, BruteForceIndex.randomBounds(random));
+            items.add(i);
+        }
+        // Half of them go in up front so that bulkLoad has something to throw away and addAll has something to add to
+        Quadtree<Integer> loadedTree = newTree(looseness), addedTree = newTree(looseness);
+        for(int i = 0; i < objectCount/2; i++){
+            float[] bounds = BruteForceIndex.randomBounds(random);
+            loadedTree.add(-1 - i, bounds[0], bounds[1], bounds[2], bounds[3]);
+        }
+        for(int i = 0; i < objectCount/2; i++){
+            float[] bounds = expected.getBounds(i);
+            addedTree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]);
+        }
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> loaded = loadedTree.bulkLoad(items, object -> new Vector2(expected.getBounds(object)[0], expected.getBounds(object)[1]), object -> new Vector2(expected.getBounds(object)[2], expected.getBounds(object)[3]));
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> added = addedTree.addAll(items.subList(objectCount/2, objectCount), object -> new Vector2(expected.getBounds(object)[0], expected.getBounds(object)[1]), object -> new Vector2(expected.getBounds(object)[2], expected.getBounds(object)[3]));
+        // The containers come back in the same order as the items
+        for(int i = 0; i < objectCount; i++){assertEquals(items.get(i), loaded.get(i).getInstance());}
+        for(int i = 0; i < added.size(); i++){assertEquals(items.get(objectCount/2 + i), added.get(i).getInstance());}
+        assertQueriesMatch(loadedTree, expected, random);
+        assertQueriesMatch(addedTree, expected, random);
+        // And the containers work the same as ones from add afterwards
+        BruteForceIndex mutated = expected.copy();
+        mutate(loadedTree, loaded, mutated, random, 4000);
+        assertQueriesMatch(loadedTree, mutated, random);
+    }
+    @Test
+    void leavesStopDividingAtTheLimits(){
+        Random random = new Random(25);
+        Quadtree<Integer> tree = newTree(0);
+        tree.setMaximumDepth(3);
+        // Far more objects crammed into one corner than a leaf holds, so the only thing stopping the leaves there from dividing is the maximum depth
+        BruteForceIndex expected = new BruteForceIndex(500);
+        ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>> containers = new ArrayList<Quadtree<Integer>.QuadtreeObjectContainer<Integer>>();
+        for(int i = 0; i < 400; i++){
+            float[] bounds = {400 + random.nextFloat()*90, 400 + random.nextFloat()*90, random.nextFloat()*4, random.nextFloat()*4};
+            containers.add(tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            expected.put(i, bounds);
+        }
+        assertEquals(3, tree.getDepth());
+        assertEquals(3, tree.getStats().getDeepestLeaf());
+        assertTrue(tree.getStats().getOverfullLeafCount() > 0);
+        assertQueriesMatch(tree, expected, random);
+        // Raising the limit lets the full leaves divide the next time something's added to them, down to the minimum leaf size which is 20 so they can't get below 31.25 across
+        tree.setMaximumDepth(31);
+        for(int i = 400; i < 500; i++){
+            float[] bounds = {400 + random.nextFloat()*90, 400 + random.nextFloat()*90, random.nextFloat()*4, random.nextFloat()*4};
+            containers.add(tree.add(i, bounds[0], bounds[1], bounds[2], bounds[3]));
+            expected.put(i, bounds);
+        }
+        assertEquals(5, tree.getDepth());
+        assertEquals(5, tree.getStats().getDeepestLeaf());
+        assertQueriesMatch(tree, expected, random);
+        // Taking nearly everything back out merges the leaves again, all the way back to the first layer under the root
+        for(int i = 0; i < 500 - tree.getCollapseThreshold(); i++){
+            tree.remove(containers.get(i));
+            expected.remove(i);
+        }
+        QuadtreeStats stats = tree.getStats();
+        assertEquals(5, stats.getNodeCount());
+        assertEquals(4, stats.getLeafCount());
+        assertEquals(tree.getCollapseThreshold(), stats.getObjectCount());
+        assertQueriesMatch(tree, expected, random);
+        // getDepth never goes back down
+        assertEquals(5, tree.getDepth());
+        assertThrows(IllegalArgumentException.class, () -> tree.setMaximumDepth(0));
+        assertThrows(IllegalArgumentException.class, () -> tree.setMaximumDepth(32));
+    }
+    @Test
+    void nearestOnAnEmptyTreeIsNull(){
+        Quadtree<Integer> emptyTree = newTree(0);
+        assertNull(emptyTree.nearest(new Vector2(0, 0)));
+        assertTrue(emptyTree.kNearest(new Vector2(0, 0), 5, Float.POSITIVE_INFINITY).isEmpty());
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1, 2})
+    void overlappingPairsAreEachHandedOverOnce(float looseness){
+        build(looseness, 5);
+        HashSet<Long> pairs = new HashSet<Long>();
+        int count = this.tree.forEachOverlappingPair((first, second) -> {
+            if(first.equals(second)){fail("object " + String.valueOf(first) + " was paired with itself");}
+            if(!pairs.add(BruteForceIndex.getPairKey(first, second))){fail("pair " + String.valueOf(first) + ", " + String.valueOf(second) + " came up twice");}
+        });
+        assertEquals(this.expected.getOverlappingPairs(), pairs);
+        assertEquals(pairs.size(), count);
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1, 2})
+    void overlappingPairsCanBeNested(float looseness){
+        // The visitor is allowed to query the tree, which includes starting another pass
+        build(looseness, 6);
+        int expectedCount = this.expected.getOverlappingPairs().size();
+        int[] nestedCounts = new int[2];
+        this.tree.forEachOverlappingPair((first, second) -> {
+            if(nestedCounts[0]++ % 100 != 0){return;}
+            assertEquals(expectedCount, this.tree.forEachOverlappingPair((nestedFirst, nestedSecond) -> {}));
+            nestedCounts[1]++;
+        });
+        assertEquals(expectedCount, nestedCounts[0]);
+        assertTrue(nestedCounts[1] > 0);
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1, 2})
+    void raycastHitsTheClosestObject(float looseness){
+        build(looseness, 7);
+        int hits = 0;
+        for(int i = 0; i < queryCount; i++){
+            float originX = this.random.nextFloat()*1000 - 500, originY = this.random.nextFloat()*1000 - 500;
+            float directionX = this.random.nextFloat()*2 - 1, directionY = this.random.nextFloat()*2 - 1;
+            if(i % 10 == 0){directionY = 0;}
+            if(i % 10 == 1){directionX = 0;}
+            if(directionX == 0 && directionY == 0){continue;}
+            float maxDistance = this.random.nextFloat()*600;
+            double length = Math.sqrt((double) directionX*directionX + (double) directionY*directionY);
+            double closest = Double.MAX_VALUE;
+            for(int object = 0; object < objectCount; object++){
+                if(!this.expected.contains(object)){continue;}
+                double distance = this.expected.getRayDistance(object, originX, originY, directionX/length, directionY/length, maxDistance);
+                if(distance >= 0 && distance < closest){closest = distance;}
+            }
+            Integer object = this.tree.raycast(originX, originY, directionX, directionY, maxDistance);
+            if(object == null){
+                assertTrue(closest == Double.MAX_VALUE || closest >= maxDistance - rayLeeway, "the ray missed something " + String.valueOf(closest) + " along");
+                continue;
+            }
+            hits++;
+            double distance = this.expected.getRayDistance(object, originX, originY, directionX/length, directionY/length, maxDistance + rayLeeway);
+            assertTrue(distance >= 0, "the ray hit something it doesn't reach");
+            assertEquals(closest, distance, rayLeeway);
+        }
+        assertTrue(hits > 20, "too few rays hit anything to tell");
+        assertThrows(IllegalArgumentException.class, () -> this.tree.raycast(0, 0, 0, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> this.tree.raycast(0, 0, 1, 0, -1));
+    }
+    @ParameterizedTest(name = "looseness {0}")
+    @ValueSource(floats = {0, 1, 2})
+    void segmentQueryHitsEveryObjectInOrder(float looseness){
+        build(looseness, 8);
+        for(int i = 0; i < queryCount; i++){
+            float startX = this.random.nextFloat()*1000 - 500, startY = this.random.nextFloat()*1000 - 500;
+            float endX = startX + (this.random.nextFloat() - 0.5f)*600, endY = i % 10 == 0 ? startY : startY + (this.random.nextFloat() - 0.5f)*600;
+            ArrayList<Integer> objects = this.tree.segmentQuery(new Vector2(startX, startY), new Vector2(endX, endY));
+            assertEquals(objects.size(), new HashSet<Integer>(objects).size(), "no object should come back twice");
+            double previous = 0;
+            for(int l = 0; l < objects.size(); l++){
+                assertTrue(this.expected.contains(objects.get(l)));
+                double distance = this.expected.getRayDistance(objects.get(l), startX, startY, endX - startX, endY - startY, 1 + 1e-4);
+                assertTrue(distance >= 0, "the segment doesn't reach object " + String.valueOf(objects.get(l)));
+                assertTrue(distance >= previous - 1e-4, "object " + String.valueOf(l) + " is out of order");
+                previous = distance;
+            }
+            HashSet<Integer> found = new HashSet<Integer>(objects);
+            for(int object = 0; object < objectCount; object++){
+                if(!this.expected.contains(object) || found.contains(object)){continue;}
+                // Grazing an edge can go either way in floats, so only objects the segment goes well into have to be found
+                float[] bounds = this.expected.getBounds(object);
+                BruteForceIndex shrunk = new BruteForceIndex(1);
+                shrunk.put(0, bounds[0], bounds[1], bounds[2] - 0.01f, bounds[3] - 0.01f);
+                if(bounds[2] > 0.01f && bounds[3] > 0.01f && shrunk.getRayDistance(0, startX, startY, endX - startX, endY - startY, 1 - 1e-4) >= 0){
+                    fail("the segment missed object " + String.valueOf(object));
+                }
+            }
+        }
+    }
+}